@@ -0,0 +1,275 @@
+package satellite.tools;
+
+import satellite.tools.assets.entities.Device;
+import satellite.tools.assets.entities.Satellite;
+import satellite.tools.structures.ContactIndex;
+import satellite.tools.structures.Interval;
+import satellite.tools.utils.Log;
+import satellite.tools.utils.Utils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * AccessEngine computes the access intervals for every Satellite-Device pair of a scenario. The satellite x device
+ * matrix is split into pair ranges that are fanned out over a ForkJoinPool, each worker running its own Simulation
+ * objects so that no propagator is ever shared between threads. In multiplexed mode the work is split by satellite
+ * instead, and each satellite is propagated once for all the devices.
+ * <p>
+ * Before any propagation, pairs are pre-screened analytically: a device whose latitude lies outside the band a
+ * satellite can be seen from (see Utils.getMaxReachableLatitude) is never propagated against it.
+ */
+public class AccessEngine implements Runnable {
+
+    /**
+     * Number of pairs below which a task stops splitting and computes its range sequentially
+     * */
+    private static final int PAIRS_PER_TASK = 8;
+
+    private String time1;
+    private String time2;
+    private double step;
+    private double th;
+    private final List<Satellite> satellites;
+    private final List<Device> devices;
+    private ForkJoinPool pool = ForkJoinPool.commonPool();
+    private boolean multiplexed = false;
+    private boolean preFilter = true;
+    private boolean[] accessPossible = new boolean[0];
+    private int prunedPairs = 0;
+    private final List<List<Interval>> pairIntervals = new ArrayList<>();
+    private double lastSimTime = 0;
+
+    /**
+     * A Class constructor that configures the scenario for every pair between the satellites and devices provided, with
+     * a start time, end time, time step in seconds and visibility threshold in degrees
+     */
+    public AccessEngine(String timeStart, String timeEnd, List<Device> devices, List<Satellite> satellites,
+                        double step, double th) {
+        this.time1 = timeStart;
+        this.time2 = timeEnd;
+        this.devices = devices;
+        this.satellites = satellites;
+        this.step = step;
+        this.th = th;
+    }
+
+    public void setParams(String timeStart, String timeEnd, double step, double th) {
+        this.time1 = timeStart;
+        this.time2 = timeEnd;
+        this.step = step;
+        this.th = th;
+    }
+
+    /**
+     * Sets the pool in which the pairs are computed. Defaults to the common ForkJoinPool.
+     */
+    public void setPool(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * When enabled, each satellite is propagated once carrying one elevation detector per device, instead of once per
+     * pair. Worth it for dense ground networks, where it divides the propagation work by the number of devices.
+     */
+    public void setMultiplexed(boolean multiplexed) {
+        this.multiplexed = multiplexed;
+    }
+
+    public boolean isMultiplexed() {
+        return multiplexed;
+    }
+
+    /**
+     * Enables or disables the analytic pre-screening of pairs. Enabled by default.
+     */
+    public void setPreFilter(boolean preFilter) {
+        this.preFilter = preFilter;
+    }
+
+    /**
+     * Returns the number of pairs the pre-filter discarded on the last run
+     */
+    public int getPrunedPairs() {
+        return prunedPairs;
+    }
+
+    public List<Satellite> getSatellites() {
+        return satellites;
+    }
+
+    public List<Device> getDevices() {
+        return devices;
+    }
+
+    public int getPairCount() {
+        return satellites.size() * devices.size();
+    }
+
+    public void computeAccess() {
+
+        long t0 = System.currentTimeMillis();
+
+        int pairs = getPairCount();
+        pairIntervals.clear();
+        pairIntervals.addAll(Collections.nCopies(pairs, Collections.emptyList()));
+        screenPairs();
+
+        if (pairs > 0) {
+            pool.invoke(new PairTask(0, multiplexed ? satellites.size() : pairs));
+        }
+
+        lastSimTime = System.currentTimeMillis() - t0;
+        Log.debug("Access computed for " + pairs + " pairs in " + lastSimTime + " ms ("
+                + getPairsPerSecond() + " pairs/s)");
+
+    }
+
+    private void screenPairs() {
+
+        int nDevices = devices.size();
+        accessPossible = new boolean[getPairCount()];
+        prunedPairs = 0;
+
+        if (!preFilter) {
+            Arrays.fill(accessPossible, true);
+            return;
+        }
+
+        for (int s = 0; s < satellites.size(); s++) {
+            double maxLatitude = Utils.getMaxReachableLatitude(satellites.get(s), th);
+            for (int d = 0; d < nDevices; d++) {
+                accessPossible[s * nDevices + d] = Math.abs(devices.get(d).getLat()) <= maxLatitude;
+                if (!accessPossible[s * nDevices + d]) {
+                    prunedPairs++;
+                }
+            }
+        }
+        Log.debug("Pre-filter pruned " + prunedPairs + " of " + getPairCount() + " pairs");
+
+    }
+
+    private void computeSatellites(int from, int to) {
+        int nDevices = devices.size();
+        for (int s = from; s < to; s++) {
+            List<Device> visibleDevices = new ArrayList<>();
+            List<Integer> pairs = new ArrayList<>();
+            for (int d = 0; d < nDevices; d++) {
+                if (accessPossible[s * nDevices + d]) {
+                    visibleDevices.add(devices.get(d));
+                    pairs.add(s * nDevices + d);
+                }
+            }
+            if (visibleDevices.isEmpty()) {
+                continue;
+            }
+            var simulation = new Simulation(satellites.get(s));
+            simulation.setParams(time1, time2, step, th);
+            simulation.computeAccess(visibleDevices);
+            for (int i = 0; i < pairs.size(); i++) {
+                pairIntervals.set(pairs.get(i), simulation.getDeviceIntervals().get(i));
+            }
+        }
+    }
+
+    private void computePairs(int from, int to) {
+        int nDevices = devices.size();
+        // One Simulation is recycled for the whole range, its propagator is only rebuilt when the satellite changes
+        var simulation = new Simulation();
+        simulation.setParams(time1, time2, step, th);
+        Satellite satellite = null;
+        for (int pair = from; pair < to; pair++) {
+            if (!accessPossible[pair]) {
+                continue;
+            }
+            if (satellite != satellites.get(pair / nDevices)) {
+                satellite = satellites.get(pair / nDevices);
+                simulation.setSatellite(satellite);
+            }
+            simulation.reset();
+            simulation.setDevice(devices.get(pair % nDevices));
+            simulation.computeAccess();
+            pairIntervals.set(pair, new ArrayList<>(simulation.getIntervals()));
+        }
+    }
+
+    /**
+     * Returns the access intervals of every pair, indexed by satelliteIndex * devices.size() + deviceIndex
+     */
+    public List<List<Interval>> getPairIntervals() {
+        return pairIntervals;
+    }
+
+    /**
+     * Returns the access intervals between the satellite and device at the given positions of the input lists
+     */
+    public List<Interval> getIntervals(int satelliteIndex, int deviceIndex) {
+        return pairIntervals.get(satelliteIndex * devices.size() + deviceIndex);
+    }
+
+    /**
+     * Returns the access intervals of every pair in a single list, ordered by satellite and then by device
+     */
+    public List<Interval> getIntervals() {
+        List<Interval> intervals = new ArrayList<>();
+        pairIntervals.forEach(intervals::addAll);
+        return intervals;
+    }
+
+    /**
+     * Returns an index of the access intervals of every pair, keyed by device (from) and satellite (to) ids
+     */
+    public ContactIndex getContactIndex() {
+        return new ContactIndex(getIntervals());
+    }
+
+    public double getLastSimTime() {
+        return this.lastSimTime;
+    }
+
+    public double getPairsPerSecond() {
+        return lastSimTime > 0 ? getPairCount() / (lastSimTime / 1000) : 0;
+    }
+
+    @Override
+    public void run() {
+        computeAccess();
+    }
+
+    /**
+     * Splits a range of pair indexes (or satellite indexes, in multiplexed mode) in halves until it is small enough to
+     * be computed sequentially
+     */
+    private class PairTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final int from;
+        private final int to;
+
+        PairTask(int from, int to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (multiplexed && to - from == 1) {
+                computeSatellites(from, to);
+                return;
+            }
+            if (!multiplexed && to - from <= PAIRS_PER_TASK) {
+                computePairs(from, to);
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new PairTask(from, mid), new PairTask(mid, to));
+        }
+
+    }
+
+}
@@ -0,0 +1,471 @@
+package satellite.tools;
+
+import org.hipparchus.analysis.UnivariateFunction;
+import org.hipparchus.analysis.solvers.AllowedSolution;
+import org.hipparchus.analysis.solvers.BracketingNthOrderBrentSolver;
+import org.orekit.propagation.analytical.tle.TLE;
+import org.orekit.time.AbsoluteDate;
+import org.orekit.time.TimeScalesFactory;
+import org.orekit.utils.Constants;
+import satellite.tools.assets.entities.Satellite;
+import satellite.tools.propagation.Sgp4Batch;
+import satellite.tools.propagation.Sgp4Kernel;
+import satellite.tools.structures.Conjunction;
+import satellite.tools.structures.OrbitalElements;
+import satellite.tools.utils.Log;
+import satellite.tools.utils.Utils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+/**
+ * ConjunctionEngine screens a set of primary satellites against a catalog for close approaches below a distance
+ * threshold, and reports the time of closest approach (TCA), miss distance and relative speed of each of them.
+ * <p>
+ * Screening runs in three stages:
+ * <ul>
+ * <li> Apogee / perigee filter: pairs whose radial bands, from their orbital elements, are further apart than the
+ * threshold (plus RADIAL_MARGIN) can never meet and are dropped. Catalog objects left without a pair are not
+ * propagated at all.
+ * <li> Spatial hash: at every time step the remaining catalog objects are propagated (see Sgp4Batch) and hashed in a
+ * grid of cubic cells, and each primary only looks at the 27 cells around it. The cell size is the distance two
+ * objects can close in half a step, so that no approach is missed between samples. Pairs found are then checked with
+ * their relative motion taken as linear over the step, with a bound on the curvature. Steps are screened in parallel.
+ * <li> Refinement: for the candidates left, the TCA is the root of the range rate within the step, found with a root
+ * solver propagating both objects with their Sgp4Kernel.
+ * </ul>
+ * Approaches at the very start or end of the scenario, where the distance is still decreasing or already increasing,
+ * are not reported.
+ */
+public class ConjunctionEngine implements Runnable {
+
+    /**
+     * Margin on the apogee / perigee filter, in meters, for the difference between mean and osculating radii and the
+     * decay over the scenario
+     */
+    public static final double RADIAL_MARGIN = 50e3;
+
+    /**
+     * Upper bounds of the relative speed (m/s) and relative acceleration (m/s^2) of two Earth orbiting objects: twice
+     * the escape velocity and twice the gravity at the surface
+     */
+    private static final double MAX_RELATIVE_SPEED = 2 * Math.sqrt(2 * Constants.WGS84_EARTH_MU
+            / Constants.WGS84_EARTH_EQUATORIAL_RADIUS);
+    private static final double MAX_RELATIVE_ACCELERATION = 2 * Constants.WGS84_EARTH_MU
+            / (Constants.WGS84_EARTH_EQUATORIAL_RADIUS * Constants.WGS84_EARTH_EQUATORIAL_RADIUS);
+
+    /**
+     * Tolerance of the refined TCA, in seconds
+     */
+    private static final double TCA_TOLERANCE = 1e-3;
+    private static final int MAX_SOLVER_EVALUATIONS = 100;
+
+    /**
+     * Number of position and velocity vectors held in memory at once, which sets how many steps are screened per chunk
+     */
+    private static final int VECTORS_PER_CHUNK = 1 << 18;
+
+    /**
+     * Bits per axis of a packed cell key
+     */
+    private static final int CELL_BITS = 21;
+    private static final long CELL_MASK = (1L << CELL_BITS) - 1;
+
+    private String time1;
+    private String time2;
+    private double step;
+    private double threshold;
+    private final List<Satellite> primaries;
+    private final List<Satellite> catalog;
+    private final List<Conjunction> conjunctions = new ArrayList<>();
+    private ForkJoinPool pool = ForkJoinPool.commonPool();
+    private long filteredPairs = 0;
+    private long candidates = 0;
+    private int steps = 0;
+    private double lastSimTime = 0;
+
+    /**
+     * A Class constructor that configures the screening of the primaries against the catalog, with a start time, end
+     * time, time step in seconds and distance threshold in meters
+     */
+    public ConjunctionEngine(String timeStart, String timeEnd, List<Satellite> primaries, List<Satellite> catalog,
+                             double step, double threshold) {
+        this.time1 = timeStart;
+        this.time2 = timeEnd;
+        this.primaries = primaries;
+        this.catalog = catalog;
+        this.step = step;
+        this.threshold = threshold;
+    }
+
+    public void setParams(String timeStart, String timeEnd, double step, double threshold) {
+        this.time1 = timeStart;
+        this.time2 = timeEnd;
+        this.step = step;
+        this.threshold = threshold;
+    }
+
+    /**
+     * Sets the pool in which the time steps are screened and the candidates refined. Defaults to the common
+     * ForkJoinPool.
+     */
+    public void setPool(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    public void computeConjunctions() {
+
+        long t0 = System.currentTimeMillis();
+        conjunctions.clear();
+        candidates = 0;
+
+        AbsoluteDate start = Utils.stamp2AD(time1);
+        double duration = Utils.stamp2AD(time2).durationFrom(start);
+        steps = duration < 0 ? 0 : (int) Math.floor(duration / step) + 1;
+
+        // Apogee / perigee filter, and the catalog objects that remain in some pair
+        int n = primaries.size();
+        BitSet[] pairs = bandFilter();
+        BitSet remaining = new BitSet(catalog.size());
+        filteredPairs = 0;
+        for (BitSet pair : pairs) {
+            remaining.or(pair);
+            filteredPairs += pair.cardinality();
+        }
+        int[] secondaries = remaining.stream().toArray();
+        int m = secondaries.length;
+        if (m == 0 || steps == 0) {
+            lastSimTime = System.currentTimeMillis() - t0;
+            return;
+        }
+
+        // Primaries first, then the remaining catalog objects
+        List<Satellite> objects = new ArrayList<>(primaries);
+        for (int s : secondaries) {
+            objects.add(catalog.get(s));
+        }
+        var batch = Sgp4Batch.fromSatellites(objects);
+        List<Sgp4Kernel> kernels = new ArrayList<>(n + m);
+        double[] epochOffsets = new double[n + m];
+        for (TLE tle : batch.getTLEs()) {
+            var kernel = new Sgp4Kernel(tle);
+            epochOffsets[kernels.size()] = start.durationFrom(kernel.getEpoch());
+            kernels.add(kernel);
+        }
+
+        var screening = new Screening(pairs, secondaries, n);
+        int stepsPerChunk = Math.max(1, Math.min(steps, VECTORS_PER_CHUNK / (n + m)));
+        double[][] positions = new double[stepsPerChunk][3 * (n + m)];
+        double[][] velocities = new double[stepsPerChunk][3 * (n + m)];
+        long[][] found = new long[stepsPerChunk][];
+        long startTime = start.toDate(TimeScalesFactory.getUTC()).getTime();
+
+        for (int first = 0; first < steps; first += stepsPerChunk) {
+
+            int count = Math.min(stepsPerChunk, steps - first);
+            for (int k = 0; k < count; k++) {
+                batch.propagateParallel(start.shiftedBy((first + k) * step), positions[k], velocities[k]);
+            }
+            pool.submit(() -> IntStream.range(0, count).parallel()
+                    .forEach(k -> found[k] = screening.screen(positions[k], velocities[k]))).join();
+
+            // Candidates as (step, pair key) couples, pair key = primary * m + secondary
+            int total = Arrays.stream(found, 0, count).mapToInt(keys -> keys.length).sum();
+            int[] candidateSteps = new int[total];
+            long[] candidateKeys = new long[total];
+            for (int k = 0, c = 0; k < count; k++) {
+                for (long key : found[k]) {
+                    candidateSteps[c] = first + k;
+                    candidateKeys[c++] = key;
+                }
+            }
+            candidates += total;
+
+            Conjunction[] refined = new Conjunction[total];
+            pool.submit(() -> IntStream.range(0, total).parallel().forEach(c -> {
+                int i = (int) (candidateKeys[c] / m);
+                int j = n + (int) (candidateKeys[c] % m);
+                refined[c] = refine(kernels.get(i), kernels.get(j), epochOffsets[i], epochOffsets[j],
+                        candidateSteps[c] * step, duration, startTime, objects.get(i), objects.get(j));
+            })).join();
+            for (Conjunction conjunction : refined) {
+                if (conjunction != null) {
+                    conjunctions.add(conjunction);
+                }
+            }
+
+        }
+
+        conjunctions.sort(Comparator.comparingLong(Conjunction::getTime));
+        lastSimTime = System.currentTimeMillis() - t0;
+        Log.debug("Screened " + n + " primaries against " + catalog.size() + " objects (" + m + " after the band filter) "
+                + "over " + steps + " steps in " + lastSimTime + " ms: " + candidates + " candidates, "
+                + conjunctions.size() + " conjunctions (" + getPairsPerSecond() + " pairs/s)");
+
+    }
+
+    /**
+     * Returns, for every primary, the catalog positions of the objects whose radial band comes within the threshold of
+     * its own, skipping the primary itself when it is part of the catalog
+     */
+    private BitSet[] bandFilter() {
+
+        double[] catalogPerigee = new double[catalog.size()];
+        double[] catalogApogee = new double[catalog.size()];
+        for (int j = 0; j < catalog.size(); j++) {
+            OrbitalElements elements = elementsOf(catalog.get(j));
+            catalogPerigee[j] = elements.getPerigeeRadius();
+            catalogApogee[j] = elements.getApogeeRadius();
+        }
+
+        BitSet[] pairs = new BitSet[primaries.size()];
+        double margin = threshold + RADIAL_MARGIN;
+        for (int i = 0; i < primaries.size(); i++) {
+            Satellite primary = primaries.get(i);
+            OrbitalElements elements = elementsOf(primary);
+            double perigee = elements.getPerigeeRadius() - margin;
+            double apogee = elements.getApogeeRadius() + margin;
+            pairs[i] = new BitSet(catalog.size());
+            for (int j = 0; j < catalog.size(); j++) {
+                if (catalogPerigee[j] <= apogee && catalogApogee[j] >= perigee && !isSame(primary, catalog.get(j))) {
+                    pairs[i].set(j);
+                }
+            }
+        }
+        return pairs;
+
+    }
+
+    /**
+     * Returns the orbital elements of the satellite, or its mean elements from the TLE when it was built from one
+     */
+    private static OrbitalElements elementsOf(Satellite satellite) {
+        if (satellite.getElements() != null) {
+            return satellite.getElements();
+        }
+        TLE tle = new TLE(satellite.getTLE1(), satellite.getTLE2());
+        var elements = new OrbitalElements();
+        elements.setSemiMajorAxis(Math.cbrt(Constants.WGS84_EARTH_MU / (tle.getMeanMotion() * tle.getMeanMotion())));
+        elements.setEccentricity(tle.getE());
+        return elements;
+    }
+
+    private static boolean isSame(Satellite primary, Satellite secondary) {
+        return primary == secondary || (!primary.getTLE1().isEmpty() && primary.getTLE1().equals(secondary.getTLE1())
+                && primary.getTLE2().equals(secondary.getTLE2()));
+    }
+
+    /**
+     * Finds the closest approach of the pair within half a step of the given time (seconds from the start), as the time
+     * at which the range rate turns positive. Returns null when there is none, or when it is above the threshold.
+     */
+    private Conjunction refine(Sgp4Kernel primary, Sgp4Kernel secondary, double primaryOffset, double secondaryOffset,
+                               double time, double duration, long startTime, Satellite s1, Satellite s2) {
+
+        // Deep-space kernels are not thread-safe, each task uses its own
+        Sgp4Kernel k1 = primary.isDeepSpace() ? new Sgp4Kernel(primary.getTLE()) : primary;
+        Sgp4Kernel k2 = secondary.isDeepSpace() ? new Sgp4Kernel(secondary.getTLE()) : secondary;
+        double[] p1 = new double[3];
+        double[] v1 = new double[3];
+        double[] p2 = new double[3];
+        double[] v2 = new double[3];
+        UnivariateFunction rangeRate = t -> {
+            k1.propagateSeconds(primaryOffset + t, p1, v1, 0);
+            k2.propagateSeconds(secondaryOffset + t, p2, v2, 0);
+            return (p2[0] - p1[0]) * (v2[0] - v1[0]) + (p2[1] - p1[1]) * (v2[1] - v1[1])
+                    + (p2[2] - p1[2]) * (v2[2] - v1[2]);
+        };
+
+        double from = Math.max(0, time - step / 2);
+        double to = Math.min(duration, time + step / 2);
+        if (!(rangeRate.value(from) < 0 && rangeRate.value(to) >= 0)) {
+            return null;
+        }
+        var solver = new BracketingNthOrderBrentSolver(0, TCA_TOLERANCE, 0, 5);
+        double tca = solver.solve(MAX_SOLVER_EVALUATIONS, rangeRate, from, to, AllowedSolution.ANY_SIDE);
+        rangeRate.value(tca);
+
+        double missDistance = Math.sqrt(square(p2[0] - p1[0]) + square(p2[1] - p1[1]) + square(p2[2] - p1[2]));
+        if (missDistance > threshold) {
+            return null;
+        }
+        double relativeSpeed = Math.sqrt(square(v2[0] - v1[0]) + square(v2[1] - v1[1]) + square(v2[2] - v1[2]));
+        return new Conjunction(startTime + Math.round(tca * 1000), s1.getId(), s2.getId(), missDistance,
+                relativeSpeed);
+
+    }
+
+    private static double square(double x) {
+        return x * x;
+    }
+
+    public List<Conjunction> getConjunctions() {
+        return conjunctions;
+    }
+
+    public List<Satellite> getPrimaries() {
+        return primaries;
+    }
+
+    public List<Satellite> getCatalog() {
+        return catalog;
+    }
+
+    /**
+     * Returns the number of pairs left by the apogee / perigee filter on the last run
+     */
+    public long getFilteredPairs() {
+        return filteredPairs;
+    }
+
+    /**
+     * Returns the number of pairs and steps that reached the refinement stage on the last run
+     */
+    public long getCandidates() {
+        return candidates;
+    }
+
+    public double getLastSimTime() {
+        return this.lastSimTime;
+    }
+
+    /**
+     * Returns the number of pairs screened per second on the last run, counting every primary and catalog object pair
+     * at every time step
+     */
+    public double getPairsPerSecond() {
+        long pairSteps = (long) primaries.size() * catalog.size() * steps;
+        return lastSimTime > 0 ? pairSteps / (lastSimTime / 1000) : 0;
+    }
+
+    @Override
+    public void run() {
+        computeConjunctions();
+    }
+
+    /**
+     * Screening of one time step: the catalog objects are hashed by cell in an open addressing table, with the objects
+     * of each cell chained, and every primary checks the objects of its 27 neighbouring cells
+     */
+    private class Screening {
+
+        private final BitSet[] pairs;
+        private final int[] secondaries;
+        private final int n;
+        private final double cellSize;
+        private final double linearMargin;
+
+        Screening(BitSet[] pairs, int[] secondaries, int n) {
+            this.pairs = pairs;
+            this.secondaries = secondaries;
+            this.n = n;
+            // Distance covered in half a step at the highest relative speed and acceleration
+            this.linearMargin = MAX_RELATIVE_ACCELERATION * step * step / 8;
+            this.cellSize = threshold + MAX_RELATIVE_SPEED * step / 2 + linearMargin;
+        }
+
+        /**
+         * Returns the keys (primary * m + secondary) of the pairs whose linearized relative motion comes within the
+         * threshold in the step around these positions
+         */
+        long[] screen(double[] positions, double[] velocities) {
+
+            int m = secondaries.length;
+            int capacity = Integer.highestOneBit(Math.max(1, 2 * m - 1)) << 1;
+            long[] cellKeys = new long[capacity];
+            int[] heads = new int[capacity];
+            int[] next = new int[m];
+            Arrays.fill(heads, -1);
+            for (int s = 0; s < m; s++) {
+                int o = 3 * (n + s);
+                if (Double.isNaN(positions[o])) {
+                    continue;
+                }
+                long key = cellKey(cell(positions[o]), cell(positions[o + 1]), cell(positions[o + 2]));
+                int slot = slot(cellKeys, heads, key);
+                cellKeys[slot] = key;
+                next[s] = heads[slot];
+                heads[slot] = s;
+            }
+
+            long[] found = new long[16];
+            int count = 0;
+            double halfStep = step / 2;
+            double reach = threshold + linearMargin;
+            for (int i = 0; i < n; i++) {
+                int o = 3 * i;
+                if (Double.isNaN(positions[o])) {
+                    continue;
+                }
+                long cx = cell(positions[o]);
+                long cy = cell(positions[o + 1]);
+                long cz = cell(positions[o + 2]);
+                for (int dx = -1; dx <= 1; dx++) {
+                    for (int dy = -1; dy <= 1; dy++) {
+                        for (int dz = -1; dz <= 1; dz++) {
+                            long key = cellKey(cx + dx, cy + dy, cz + dz);
+                            int slot = slot(cellKeys, heads, key);
+                            for (int s = heads[slot]; s >= 0; s = next[s]) {
+                                if (!pairs[i].get(secondaries[s])) {
+                                    continue;
+                                }
+                                int q = 3 * (n + s);
+                                double rx = positions[q] - positions[o];
+                                double ry = positions[q + 1] - positions[o + 1];
+                                double rz = positions[q + 2] - positions[o + 2];
+                                if (rx * rx + ry * ry + rz * rz > cellSize * cellSize) {
+                                    continue;
+                                }
+                                // Closest approach of the linearized motion within half a step
+                                double vx = velocities[q] - velocities[o];
+                                double vy = velocities[q + 1] - velocities[o + 1];
+                                double vz = velocities[q + 2] - velocities[o + 2];
+                                double v2 = vx * vx + vy * vy + vz * vz;
+                                double t = v2 > 0 ? -(rx * vx + ry * vy + rz * vz) / v2 : 0;
+                                t = Math.max(-halfStep, Math.min(halfStep, t));
+                                double mx = rx + vx * t;
+                                double my = ry + vy * t;
+                                double mz = rz + vz * t;
+                                if (mx * mx + my * my + mz * mz <= reach * reach) {
+                                    if (count == found.length) {
+                                        found = Arrays.copyOf(found, 2 * count);
+                                    }
+                                    found[count++] = (long) i * m + s;
+                                }
+                            }
+                        }
+                    }
+                }
+            }
+            return Arrays.copyOf(found, count);
+
+        }
+
+        private long cell(double coordinate) {
+            return (long) Math.floor(coordinate / cellSize);
+        }
+
+        private long cellKey(long x, long y, long z) {
+            return (x & CELL_MASK) << (2 * CELL_BITS) | (y & CELL_MASK) << CELL_BITS | (z & CELL_MASK);
+        }
+
+        /**
+         * Returns the slot of the table that holds the cell, or the empty slot where it would go
+         */
+        private int slot(long[] cellKeys, int[] heads, long key) {
+            int mask = heads.length - 1;
+            int slot = (int) (key * 0x9E3779B97F4A7C15L >>> 40) & mask;
+            while (heads[slot] >= 0 && cellKeys[slot] != key) {
+                slot = (slot + 1) & mask;
+            }
+            return slot;
+        }
+
+    }
+
+}
@@ -0,0 +1,385 @@
+package satellite.tools;
+
+import org.orekit.frames.Frame;
+import org.orekit.frames.FramesFactory;
+import org.orekit.time.AbsoluteDate;
+import org.orekit.utils.Constants;
+import satellite.tools.assets.entities.Satellite;
+import satellite.tools.propagation.Sgp4Batch;
+import satellite.tools.structures.CoverageGrid;
+import satellite.tools.utils.Log;
+import satellite.tools.utils.Utils;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * CoverageEngine computes the coverage of a constellation over a CoverageGrid: for every cell, the fraction of the
+ * scenario in which at least one satellite is above the visibility threshold, the longest gap without access and the
+ * mean revisit time.
+ * <p>
+ * Time is sampled at the time step. At each step every satellite is propagated once (see Sgp4Batch) and rotated to the
+ * Earth-fixed frame, and only the cells under the circle it can be seen from (its Earth central angle, plus the
+ * ACCESS_BAND_MARGIN) have their elevation checked. Cells are split in bands of rows computed in a ForkJoinPool, each
+ * band holding its own statistics, so that no cell is shared between threads.
+ * <p>
+ * Each visible sample accounts for one time step, so results are within a step per pass of the ones of Simulation's
+ * event detection. Gaps are counted in whole steps without access; the maximum gap includes the time before the first
+ * and after the last access, while the mean revisit only counts the gaps between accesses.
+ */
+public class CoverageEngine implements Runnable {
+
+    /**
+     * Number of grid rows below which a task stops splitting and computes its band sequentially
+     */
+    private static final int ROWS_PER_TASK = 4;
+
+    /**
+     * Number of satellite positions held in memory at once, which sets how many steps are propagated per chunk
+     */
+    private static final int POSITIONS_PER_CHUNK = 1 << 18;
+
+    // The Earth frame comes from Simulation, which loads the orekit data the TEME frame needs
+    private static final Frame earthFrame = Simulation.getEarthFrame();
+    private static final Frame teme = FramesFactory.getTEME();
+
+    private String time1;
+    private String time2;
+    private double step;
+    private double th;
+    private final CoverageGrid grid;
+    private final List<Satellite> satellites;
+    private ForkJoinPool pool = ForkJoinPool.commonPool();
+
+    private int steps = 0;
+    private int[] lastVisible = new int[0];
+    private int[] visibleSteps = new int[0];
+    private int[] maxGapSteps = new int[0];
+    private long[] gapSumSteps = new long[0];
+    private int[] gapCount = new int[0];
+    private long cellChecks = 0;
+    private double lastSimTime = 0;
+
+    // Per chunk, per step and satellite: Earth-fixed position and the circle of cells it can be seen from
+    private int chunkFirst;
+    private int chunkSteps;
+    private double[] positions = new double[0];
+    private double[] subLatitude = new double[0];
+    private double[] subLongitude = new double[0];
+    private double[] sinSubLatitude = new double[0];
+    private double[] cosSubLatitude = new double[0];
+    private double[] centralAngle = new double[0];
+
+    /**
+     * A Class constructor that configures the scenario for the given grid and satellites, with a start time, end time,
+     * time step in seconds and visibility threshold in degrees
+     */
+    public CoverageEngine(String timeStart, String timeEnd, CoverageGrid grid, List<Satellite> satellites,
+                          double step, double th) {
+        this.time1 = timeStart;
+        this.time2 = timeEnd;
+        this.grid = grid;
+        this.satellites = satellites;
+        this.step = step;
+        this.th = th;
+    }
+
+    public void setParams(String timeStart, String timeEnd, double step, double th) {
+        this.time1 = timeStart;
+        this.time2 = timeEnd;
+        this.step = step;
+        this.th = th;
+    }
+
+    /**
+     * Sets the pool in which the grid bands are computed. Defaults to the common ForkJoinPool.
+     */
+    public void setPool(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    public void computeCoverage() {
+
+        long t0 = System.currentTimeMillis();
+
+        AbsoluteDate start = Utils.stamp2AD(time1);
+        steps = (int) Math.floor(Utils.stamp2AD(time2).durationFrom(start) / step) + 1;
+        int cells = grid.size();
+        lastVisible = new int[cells];
+        Arrays.fill(lastVisible, -1);
+        visibleSteps = new int[cells];
+        maxGapSteps = new int[cells];
+        gapSumSteps = new long[cells];
+        gapCount = new int[cells];
+        cellChecks = 0;
+
+        int nSatellites = satellites.size();
+        if (nSatellites > 0) {
+            var batch = Sgp4Batch.fromSatellites(satellites);
+            int stepsPerChunk = Math.max(1, Math.min(steps, POSITIONS_PER_CHUNK / nSatellites));
+            allocateChunk(stepsPerChunk * nSatellites);
+            double[] inertial = new double[3 * nSatellites];
+            for (chunkFirst = 0; chunkFirst < steps; chunkFirst += stepsPerChunk) {
+                chunkSteps = Math.min(stepsPerChunk, steps - chunkFirst);
+                for (int k = 0; k < chunkSteps; k++) {
+                    AbsoluteDate date = start.shiftedBy((chunkFirst + k) * step);
+                    batch.propagateParallel(date, inertial, null);
+                    toEarthFixed(date, inertial, k * nSatellites);
+                }
+                pool.invoke(new BandTask(0, grid.getRows()));
+            }
+        }
+
+        // The time after the last access, or the whole scenario for cells never seen
+        for (int c = 0; c < cells; c++) {
+            maxGapSteps[c] = Math.max(maxGapSteps[c], steps - 1 - lastVisible[c]);
+        }
+
+        lastSimTime = System.currentTimeMillis() - t0;
+        Log.debug("Coverage computed for " + cells + " cells, " + nSatellites + " satellites and " + steps
+                + " steps in " + lastSimTime + " ms (" + getCellsPerSecond() + " cells/s, " + cellChecks
+                + " elevation checks)");
+
+    }
+
+    private void allocateChunk(int size) {
+        positions = new double[3 * size];
+        subLatitude = new double[size];
+        subLongitude = new double[size];
+        sinSubLatitude = new double[size];
+        cosSubLatitude = new double[size];
+        centralAngle = new double[size];
+    }
+
+    /**
+     * Rotates the TEME positions of a step to the Earth-fixed frame and computes the circle each satellite can be seen
+     * from: its sub-satellite point and the largest Earth central angle to a cell that sees it above the threshold
+     */
+    private void toEarthFixed(AbsoluteDate date, double[] inertial, int offset) {
+
+        double[][] m = teme.getTransformTo(earthFrame, date).getRotation().getMatrix();
+        double cosTh = Math.cos(Math.toRadians(th));
+        double thRad = Math.toRadians(th);
+        double margin = Math.toRadians(Utils.ACCESS_BAND_MARGIN);
+
+        for (int s = 0; s < satellites.size(); s++) {
+            int i = offset + s;
+            double x = inertial[3 * s];
+            double y = inertial[3 * s + 1];
+            double z = inertial[3 * s + 2];
+            double ex = m[0][0] * x + m[0][1] * y + m[0][2] * z;
+            double ey = m[1][0] * x + m[1][1] * y + m[1][2] * z;
+            double ez = m[2][0] * x + m[2][1] * y + m[2][2] * z;
+            positions[3 * i] = ex;
+            positions[3 * i + 1] = ey;
+            positions[3 * i + 2] = ez;
+            double r = Math.sqrt(ex * ex + ey * ey + ez * ez);
+            subLatitude[i] = Math.asin(ez / r);
+            subLongitude[i] = Math.atan2(ey, ex);
+            sinSubLatitude[i] = ez / r;
+            cosSubLatitude[i] = Math.cos(subLatitude[i]);
+            double ratio = Constants.WGS84_EARTH_EQUATORIAL_RADIUS * cosTh / r;
+            // Satellites below the threshold cone (or NaN ones out of the model's domain) can not be seen
+            centralAngle[i] = ratio < 1 ? Math.acos(ratio) - thRad + margin : -1;
+        }
+
+    }
+
+    /**
+     * Checks the cells of the given rows under every satellite of the current chunk, step by step
+     */
+    private long computeBand(int rowFrom, int rowTo) {
+
+        int nSatellites = satellites.size();
+        int columns = grid.getColumns();
+        int rows = grid.getRows();
+        double[] cellPositions = grid.getPositions();
+        double[] zenith = grid.getZenith();
+        double sinTh = Math.sin(Math.toRadians(th));
+        double rowHeight = (grid.getMaxLatitude() - grid.getMinLatitude()) / rows;
+        double columnWidth = 360.0 / columns;
+        long checks = 0;
+
+        for (int k = 0; k < chunkSteps; k++) {
+            int globalStep = chunkFirst + k;
+            for (int s = 0; s < nSatellites; s++) {
+                int i = k * nSatellites + s;
+                double lambda = centralAngle[i];
+                if (lambda < 0) {
+                    continue;
+                }
+                double lat = Math.toDegrees(subLatitude[i]);
+                double reach = Math.toDegrees(lambda);
+                int first = Math.max(rowFrom, (int) Math.floor((lat - reach - grid.getMinLatitude()) / rowHeight));
+                int last = Math.min(rowTo - 1, (int) Math.floor((lat + reach - grid.getMinLatitude()) / rowHeight));
+                double cosLambda = Math.cos(lambda);
+                double px = positions[3 * i];
+                double py = positions[3 * i + 1];
+                double pz = positions[3 * i + 2];
+
+                for (int row = first; row <= last; row++) {
+                    // Longitudes of the row within the central angle: cos(d) = sin(a)sin(b) + cos(a)cos(b)cos(dLon)
+                    double rowLat = Math.toRadians(grid.getRowLatitude(row));
+                    double cosDelta = (cosLambda - sinSubLatitude[i] * Math.sin(rowLat))
+                            / (cosSubLatitude[i] * Math.cos(rowLat));
+                    if (cosDelta > 1) {
+                        continue;
+                    }
+                    int fromColumn;
+                    int count;
+                    if (cosDelta <= -1) {
+                        fromColumn = 0;
+                        count = columns;
+                    } else {
+                        double delta = Math.toDegrees(Math.acos(cosDelta));
+                        double lon = Math.toDegrees(subLongitude[i]);
+                        fromColumn = (int) Math.ceil((lon - delta + 180) / columnWidth - 0.5);
+                        int toColumn = (int) Math.floor((lon + delta + 180) / columnWidth - 0.5);
+                        count = Math.min(columns, toColumn - fromColumn + 1);
+                    }
+                    for (int j = 0; j < count; j++) {
+                        int column = Math.floorMod(fromColumn + j, columns);
+                        int c = row * columns + column;
+                        if (lastVisible[c] == globalStep) {
+                            continue;
+                        }
+                        checks++;
+                        double dx = px - cellPositions[3 * c];
+                        double dy = py - cellPositions[3 * c + 1];
+                        double dz = pz - cellPositions[3 * c + 2];
+                        double up = dx * zenith[3 * c] + dy * zenith[3 * c + 1] + dz * zenith[3 * c + 2];
+                        if (up >= sinTh * Math.sqrt(dx * dx + dy * dy + dz * dz)) {
+                            markVisible(c, globalStep);
+                        }
+                    }
+                }
+            }
+        }
+        return checks;
+
+    }
+
+    private void markVisible(int c, int globalStep) {
+        if (lastVisible[c] < globalStep - 1) {
+            int gap = globalStep - 1 - lastVisible[c];
+            maxGapSteps[c] = Math.max(maxGapSteps[c], gap);
+            if (lastVisible[c] >= 0) {
+                gapSumSteps[c] += gap;
+                gapCount[c]++;
+            }
+        }
+        lastVisible[c] = globalStep;
+        visibleSteps[c]++;
+    }
+
+    public CoverageGrid getGrid() {
+        return grid;
+    }
+
+    public List<Satellite> getSatellites() {
+        return satellites;
+    }
+
+    /**
+     * Returns the fraction of the time steps in which the given cell sees at least one satellite
+     */
+    public double getCoverage(int cell) {
+        return steps > 0 ? (double) visibleSteps[cell] / steps : 0;
+    }
+
+    /**
+     * Returns the longest time without access of the given cell, in seconds
+     */
+    public double getMaxGap(int cell) {
+        return maxGapSteps[cell] * step;
+    }
+
+    /**
+     * Returns the mean time between the accesses of the given cell, in seconds, or 0 if it has less than two accesses
+     */
+    public double getMeanRevisit(int cell) {
+        return gapCount[cell] > 0 ? (double) gapSumSteps[cell] / gapCount[cell] * step : 0;
+    }
+
+    /**
+     * Returns the number of separate accesses of the given cell
+     */
+    public int getAccessCount(int cell) {
+        return lastVisible[cell] < 0 ? 0 : gapCount[cell] + 1;
+    }
+
+    /**
+     * Returns the coverage of every cell, in the order of the grid
+     */
+    public double[] getCoverage() {
+        double[] coverage = new double[grid.size()];
+        for (int c = 0; c < coverage.length; c++) {
+            coverage[c] = getCoverage(c);
+        }
+        return coverage;
+    }
+
+    /**
+     * Returns the coverage averaged over the cells, weighted by their area
+     */
+    public double getMeanCoverage() {
+        double sum = 0;
+        double weights = 0;
+        for (int c = 0; c < grid.size(); c++) {
+            double weight = Math.cos(Math.toRadians(grid.getLatitude(c)));
+            sum += weight * getCoverage(c);
+            weights += weight;
+        }
+        return weights > 0 ? sum / weights : 0;
+    }
+
+    public int getSteps() {
+        return steps;
+    }
+
+    public double getLastSimTime() {
+        return this.lastSimTime;
+    }
+
+    public double getCellsPerSecond() {
+        return lastSimTime > 0 ? grid.size() / (lastSimTime / 1000) : 0;
+    }
+
+    @Override
+    public void run() {
+        computeCoverage();
+    }
+
+    /**
+     * Splits a range of grid rows in halves until it is small enough to be computed sequentially
+     */
+    private class BandTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final int from;
+        private final int to;
+
+        BandTask(int from, int to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= ROWS_PER_TASK) {
+                long checks = computeBand(from, to);
+                synchronized (CoverageEngine.this) {
+                    cellChecks += checks;
+                }
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new BandTask(from, mid), new BandTask(mid, to));
+        }
+
+    }
+
+}
@@ -0,0 +1,318 @@
+package satellite.tools;
+
+import org.orekit.frames.Frame;
+import org.orekit.frames.FramesFactory;
+import org.orekit.time.AbsoluteDate;
+import org.orekit.time.TimeScalesFactory;
+import satellite.tools.assets.entities.Satellite;
+import satellite.tools.propagation.Sgp4Batch;
+import satellite.tools.utils.Log;
+import satellite.tools.utils.Utils;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * GroundTrackIndex answers "which satellites fly over this region between t1 and t2" for a whole catalog without
+ * propagating it again. The catalog is propagated once over the scenario (see Sgp4Batch) and the geodetic sub-satellite
+ * point of every satellite at every time step is kept in float columns.
+ * <p>
+ * Samples are then indexed by time bucket and latitude / longitude cell: for each bucket, the satellites that have a
+ * sample in each cell are listed in compressed rows (one offsets array and one ids array per bucket), built in
+ * parallel. A query only reads the cells and buckets it overlaps, and checks the samples of the satellites listed there
+ * against the region and the time range.
+ * <p>
+ * Queries are exact with respect to the samples: a satellite that crosses a region between two time steps without a
+ * sample inside is not reported, so the time step should be small against the size of the queried regions. The
+ * samples take 8 bytes per satellite and time step.
+ */
+public class GroundTrackIndex {
+
+    /**
+     * Default size of the index cells, in degrees
+     */
+    public static final double DEFAULT_CELL_SIZE = 5;
+
+    /**
+     * Default duration of the index time buckets, in seconds
+     */
+    public static final double DEFAULT_BUCKET_DURATION = 600;
+
+    /**
+     * Largest number of samples (satellites times time steps) an index can hold, as they are kept in arrays
+     */
+    public static final long MAX_SAMPLES = Integer.MAX_VALUE - 8;
+
+    private static final Frame earthFrame = Simulation.getEarthFrame();
+    private static final Frame teme = FramesFactory.getTEME();
+
+    private String time1;
+    private String time2;
+    private double step;
+    private double cellSize = DEFAULT_CELL_SIZE;
+    private double bucketDuration = DEFAULT_BUCKET_DURATION;
+    private final List<Satellite> satellites;
+
+    private long startTime;
+    private int steps = 0;
+    private int stepsPerBucket = 1;
+    private int rows;
+    private int columns;
+    private float[] latitudes = new float[0];
+    private float[] longitudes = new float[0];
+    private int[][] bucketOffsets = new int[0][];
+    private int[][] bucketIds = new int[0][];
+    private double lastSimTime = 0;
+
+    /**
+     * A Class constructor that configures the index for the given catalog, with a start time, end time and time step
+     * in seconds
+     */
+    public GroundTrackIndex(String timeStart, String timeEnd, List<Satellite> satellites, double step) {
+        this.time1 = timeStart;
+        this.time2 = timeEnd;
+        this.satellites = satellites;
+        this.step = step;
+    }
+
+    public void setParams(String timeStart, String timeEnd, double step) {
+        this.time1 = timeStart;
+        this.time2 = timeEnd;
+        this.step = step;
+    }
+
+    /**
+     * Sets the size of the index cells in degrees and the duration of the time buckets in seconds. Takes effect on the
+     * next build().
+     */
+    public void setResolution(double cellSize, double bucketDuration) {
+        if (cellSize <= 0 || bucketDuration <= 0) {
+            throw new IllegalArgumentException("Invalid index resolution: cells of " + cellSize + " deg, buckets of "
+                    + bucketDuration + " s");
+        }
+        this.cellSize = cellSize;
+        this.bucketDuration = bucketDuration;
+    }
+
+    public void build() {
+
+        long t0 = System.currentTimeMillis();
+
+        AbsoluteDate start = Utils.stamp2AD(time1);
+        startTime = start.toDate(TimeScalesFactory.getUTC()).getTime();
+        steps = (int) Math.floor(Utils.stamp2AD(time2).durationFrom(start) / step) + 1;
+        stepsPerBucket = Math.max(1, (int) Math.round(bucketDuration / step));
+        rows = (int) Math.ceil(180 / cellSize);
+        columns = (int) Math.ceil(360 / cellSize);
+
+        int n = satellites.size();
+        long samples = Math.multiplyExact((long) steps, (long) n);
+        if (samples > MAX_SAMPLES) {
+            throw new IllegalArgumentException(n + " satellites over " + steps + " time steps make " + samples
+                    + " samples, more than the " + MAX_SAMPLES + " an index can hold: use a longer step or a shorter"
+                    + " window");
+        }
+        latitudes = new float[(int) samples];
+        longitudes = new float[(int) samples];
+        if (n > 0) {
+            var batch = Sgp4Batch.fromSatellites(satellites);
+            double[] positions = new double[3 * n];
+            for (int k = 0; k < steps; k++) {
+                AbsoluteDate date = start.shiftedBy(k * step);
+                batch.propagateParallel(date, positions, null);
+                storeSubSatellitePoints(date, positions, k * n);
+            }
+        }
+
+        int buckets = (steps + stepsPerBucket - 1) / stepsPerBucket;
+        bucketOffsets = new int[buckets][];
+        bucketIds = new int[buckets][];
+        IntStream.range(0, buckets).parallel().forEach(this::indexBucket);
+
+        lastSimTime = System.currentTimeMillis() - t0;
+        Log.debug("Ground track index built for " + n + " satellites and " + steps + " steps in " + lastSimTime
+                + " ms");
+
+    }
+
+    /**
+     * Rotates the TEME positions of a step to the Earth-fixed frame and stores their geodetic latitude and longitude
+     */
+    private void storeSubSatellitePoints(AbsoluteDate date, double[] positions, int offset) {
+
+        double[][] m = teme.getTransformTo(earthFrame, date).getRotation().getMatrix();
+        double[] lla = new double[3];
+        for (int s = 0; s < satellites.size(); s++) {
+            double x = positions[3 * s];
+            double y = positions[3 * s + 1];
+            double z = positions[3 * s + 2];
+            Utils.ecef2geodetic(m[0][0] * x + m[0][1] * y + m[0][2] * z, m[1][0] * x + m[1][1] * y + m[1][2] * z,
+                    m[2][0] * x + m[2][1] * y + m[2][2] * z, lla, 0);
+            latitudes[offset + s] = (float) lla[0];
+            longitudes[offset + s] = (float) lla[1];
+        }
+
+    }
+
+    /**
+     * Lists, for every cell, the satellites with a sample in it during the given bucket
+     */
+    private void indexBucket(int bucket) {
+
+        int n = satellites.size();
+        int cells = rows * columns;
+        int firstStep = bucket * stepsPerBucket;
+        int lastStep = Math.min(steps, firstStep + stepsPerBucket);
+
+        // Keys cell * n + satellite, sorted and made unique
+        long[] keys = new long[(lastStep - firstStep) * n];
+        int count = 0;
+        for (int k = firstStep; k < lastStep; k++) {
+            for (int s = 0; s < n; s++) {
+                int cell = cellOf(latitudes[k * n + s], longitudes[k * n + s]);
+                if (cell >= 0) {
+                    keys[count++] = (long) cell * n + s;
+                }
+            }
+        }
+        Arrays.sort(keys, 0, count);
+
+        int[] offsets = new int[cells + 1];
+        int[] ids = new int[count];
+        int size = 0;
+        for (int i = 0; i < count; i++) {
+            if (i > 0 && keys[i] == keys[i - 1]) {
+                continue;
+            }
+            ids[size++] = (int) (keys[i] % n);
+            offsets[(int) (keys[i] / n) + 1]++;
+        }
+        for (int c = 0; c < cells; c++) {
+            offsets[c + 1] += offsets[c];
+        }
+        bucketOffsets[bucket] = offsets;
+        bucketIds[bucket] = Arrays.copyOf(ids, size);
+
+    }
+
+    private int cellOf(double latitude, double longitude) {
+        if (Double.isNaN(latitude) || Double.isNaN(longitude)) {
+            return -1;
+        }
+        return rowOf(latitude) * columns + columnOf(longitude);
+    }
+
+    private int rowOf(double latitude) {
+        return Math.max(0, Math.min(rows - 1, (int) Math.floor((latitude + 90) / cellSize)));
+    }
+
+    private int columnOf(double longitude) {
+        return Math.floorMod((int) Math.floor((longitude + 180) / cellSize), columns);
+    }
+
+    /**
+     * Returns the positions in the catalog of the satellites with a sub-satellite point inside the region between the
+     * given unix times (ms), in increasing order. Latitudes and longitudes are in degrees; a region with minLon greater
+     * than maxLon crosses the antimeridian.
+     */
+    public int[] query(double minLat, double maxLat, double minLon, double maxLon, long from, long to) {
+
+        int n = satellites.size();
+        int firstStep = (int) Math.max(0, Math.ceil((from - startTime) / (1000 * step)));
+        int lastStep = (int) Math.min(steps - 1, Math.floor((to - startTime) / (1000 * step)));
+        if (n == 0 || firstStep > lastStep || minLat > maxLat) {
+            return new int[0];
+        }
+
+        boolean wraps = minLon > maxLon;
+        int firstRow = rowOf(minLat);
+        int lastRow = rowOf(maxLat);
+        int firstColumn = columnOf(minLon);
+        int columnCount = Math.floorMod(columnOf(maxLon) - firstColumn, columns) + 1;
+        if (!wraps && maxLon - minLon >= 360 - cellSize) {
+            columnCount = columns;
+        }
+
+        boolean[] checked = new boolean[n];
+        boolean[] found = new boolean[n];
+        int results = 0;
+        for (int bucket = firstStep / stepsPerBucket; bucket <= lastStep / stepsPerBucket; bucket++) {
+            int[] offsets = bucketOffsets[bucket];
+            int[] ids = bucketIds[bucket];
+            for (int row = firstRow; row <= lastRow; row++) {
+                for (int j = 0; j < columnCount; j++) {
+                    int cell = row * columns + (firstColumn + j) % columns;
+                    for (int i = offsets[cell]; i < offsets[cell + 1]; i++) {
+                        int s = ids[i];
+                        if (checked[s]) {
+                            continue;
+                        }
+                        checked[s] = true;
+                        if (overflies(s, minLat, maxLat, minLon, maxLon, wraps, firstStep, lastStep)) {
+                            found[s] = true;
+                            results++;
+                        }
+                    }
+                }
+            }
+        }
+
+        int[] result = new int[results];
+        for (int s = 0, i = 0; s < n; s++) {
+            if (found[s]) {
+                result[i++] = s;
+            }
+        }
+        return result;
+
+    }
+
+    private boolean overflies(int s, double minLat, double maxLat, double minLon, double maxLon, boolean wraps,
+                              int firstStep, int lastStep) {
+        int n = satellites.size();
+        for (int k = firstStep; k <= lastStep; k++) {
+            double lat = latitudes[k * n + s];
+            double lon = longitudes[k * n + s];
+            boolean inLongitude = wraps ? lon >= minLon || lon <= maxLon : lon >= minLon && lon <= maxLon;
+            if (lat >= minLat && lat <= maxLat && inLongitude) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the geodetic latitude (degrees) of the satellite at the given position of the catalog at the given step
+     */
+    public double getLatitude(int step, int satellite) {
+        return latitudes[step * satellites.size() + satellite];
+    }
+
+    /**
+     * Returns the longitude (degrees) of the satellite at the given position of the catalog at the given step
+     */
+    public double getLongitude(int step, int satellite) {
+        return longitudes[step * satellites.size() + satellite];
+    }
+
+    /**
+     * Returns the unix time (ms) of the given step
+     */
+    public long getTime(int step) {
+        return startTime + Math.round(step * this.step * 1000);
+    }
+
+    public int getSteps() {
+        return steps;
+    }
+
+    public List<Satellite> getSatellites() {
+        return satellites;
+    }
+
+    public double getLastSimTime() {
+        return this.lastSimTime;
+    }
+
+}
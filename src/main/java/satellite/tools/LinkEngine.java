@@ -0,0 +1,422 @@
+package satellite.tools;
+
+import org.hipparchus.analysis.UnivariateFunction;
+import org.hipparchus.analysis.solvers.AllowedSolution;
+import org.hipparchus.analysis.solvers.BracketingNthOrderBrentSolver;
+import org.orekit.time.AbsoluteDate;
+import org.orekit.time.TimeScalesFactory;
+import org.orekit.utils.Constants;
+import satellite.tools.assets.entities.Satellite;
+import satellite.tools.propagation.Sgp4Batch;
+import satellite.tools.propagation.Sgp4Kernel;
+import satellite.tools.structures.Interval;
+import satellite.tools.utils.Log;
+import satellite.tools.utils.Utils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+/**
+ * LinkEngine computes the inter-satellite link windows of every pair of a constellation: the intervals in which both
+ * satellites are closer than a maximum range and the line between them stays above a grazing height over the Earth,
+ * taken as a sphere of equatorial radius.
+ * <p>
+ * Every satellite is propagated once per time step (see Sgp4Batch). Candidate pairs are found by sort and sweep: the
+ * satellites are sorted along the X axis and each one is only compared with those that follow it within the maximum
+ * range, so the work grows with the number of links instead of the number of pairs. Steps are swept in parallel, and
+ * the sorted lists of visible pairs of consecutive steps are then compared to open and close windows. Window bounds are
+ * refined with a root solver on the link margin, propagating both satellites with their Sgp4Kernel.
+ * <p>
+ * Links that are visible at the start or at the end of the scenario are bounded by its dates: the end date is sampled
+ * as a last step when the scenario is not a whole number of steps. Links that open and close between two time steps
+ * are not detected, so the step should be short against the shortest link expected.
+ */
+public class LinkEngine implements Runnable {
+
+    /**
+     * Tolerance of the refined window bounds, in seconds
+     */
+    private static final double CROSSING_TOLERANCE = 1e-3;
+    private static final int MAX_SOLVER_EVALUATIONS = 100;
+
+    /**
+     * Number of satellite positions held in memory at once, which sets how many steps are swept per chunk
+     */
+    private static final int POSITIONS_PER_CHUNK = 1 << 18;
+
+    /**
+     * Bits of a sweep key that hold the satellite position, the rest holds the X coordinate in meters
+     */
+    private static final int INDEX_BITS = 20;
+    private static final long X_OFFSET = 1L << 40;
+
+    private String time1;
+    private String time2;
+    private double step;
+    private double maxRange;
+    private double grazingHeight;
+    private final List<Satellite> satellites;
+    private final List<Interval> intervals = new ArrayList<>();
+    private long checkedPairs = 0;
+    private int steps = 0;
+    private ForkJoinPool pool = ForkJoinPool.commonPool();
+    private double lastSimTime = 0;
+
+    /**
+     * A Class constructor that configures the scenario for every pair of the satellites provided, with a start time, end
+     * time, time step in seconds, maximum link range in meters and grazing height in meters
+     */
+    public LinkEngine(String timeStart, String timeEnd, List<Satellite> satellites, double step, double maxRange,
+                      double grazingHeight) {
+        if (satellites.size() >= 1 << INDEX_BITS) {
+            throw new IllegalArgumentException("At most " + ((1 << INDEX_BITS) - 1) + " satellites are supported");
+        }
+        this.time1 = timeStart;
+        this.time2 = timeEnd;
+        this.satellites = satellites;
+        this.step = step;
+        this.maxRange = maxRange;
+        this.grazingHeight = grazingHeight;
+    }
+
+    public void setParams(String timeStart, String timeEnd, double step, double maxRange, double grazingHeight) {
+        this.time1 = timeStart;
+        this.time2 = timeEnd;
+        this.step = step;
+        this.maxRange = maxRange;
+        this.grazingHeight = grazingHeight;
+    }
+
+    /**
+     * Sets the pool in which the time steps are swept. Defaults to the common ForkJoinPool.
+     */
+    public void setPool(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    public void computeLinks() {
+
+        long t0 = System.currentTimeMillis();
+        intervals.clear();
+        checkedPairs = 0;
+
+        int n = satellites.size();
+        AbsoluteDate start = Utils.stamp2AD(time1);
+        double duration = Utils.stamp2AD(time2).durationFrom(start);
+        // Every step from the start, plus the end date when it is not on the grid
+        steps = duration < 0 ? 0 : (int) Math.floor(duration / step) + 1;
+        if (steps > 0 && (steps - 1) * step < duration) {
+            steps++;
+        }
+        if (n < 2 || duration < 0) {
+            lastSimTime = System.currentTimeMillis() - t0;
+            return;
+        }
+
+        var batch = Sgp4Batch.fromSatellites(satellites);
+        List<Sgp4Kernel> kernels = new ArrayList<>(n);
+        for (int s = 0; s < n; s++) {
+            kernels.add(new Sgp4Kernel(batch.getTLEs().get(s)));
+        }
+        var windows = new WindowTracker(start, kernels);
+
+        int stepsPerChunk = Math.max(1, Math.min(steps, POSITIONS_PER_CHUNK / n));
+        double[] positions = new double[3 * n * stepsPerChunk];
+        long[][] visible = new long[stepsPerChunk][];
+        long[] checks = new long[stepsPerChunk];
+        double[] stepPositions = new double[3 * n];
+
+        for (int first = 0; first < steps; first += stepsPerChunk) {
+            int count = Math.min(stepsPerChunk, steps - first);
+            for (int k = 0; k < count; k++) {
+                batch.propagateParallel(start.shiftedBy(stepTime(first + k, duration)), stepPositions, null);
+                System.arraycopy(stepPositions, 0, positions, 3 * n * k, 3 * n);
+            }
+            pool.submit(() -> IntStream.range(0, count).parallel().forEach(k -> {
+                long[] counter = new long[1];
+                visible[k] = sweep(positions, 3 * n * k, counter);
+                checks[k] = counter[0];
+            })).join();
+            for (int k = 0; k < count; k++) {
+                windows.update(stepTime(first + k, duration), visible[k]);
+                checkedPairs += checks[k];
+            }
+            windows.flush();
+        }
+        windows.close(duration);
+
+        intervals.sort(Comparator.comparingLong(Interval::getStart));
+        lastSimTime = System.currentTimeMillis() - t0;
+        Log.debug("Links computed for " + n + " satellites and " + steps + " steps in " + lastSimTime + " ms: "
+                + intervals.size() + " windows, " + checkedPairs + " pairs checked out of "
+                + (long) steps * n * (n - 1) / 2 + " (" + getPairsPerSecond() + " pairs/s)");
+
+    }
+
+    /**
+     * Seconds from the start of the given step, the last one being the end of the scenario
+     */
+    private double stepTime(int index, double duration) {
+        return Math.min(index * step, duration);
+    }
+
+    /**
+     * Returns the sorted keys (i * n + j, with i lower than j) of the pairs in sight at one step, comparing each
+     * satellite only with the ones that follow it along X within the maximum range
+     */
+    private long[] sweep(double[] positions, int offset, long[] checks) {
+
+        int n = satellites.size();
+        long[] order = new long[n];
+        int valid = 0;
+        for (int s = 0; s < n; s++) {
+            double x = positions[offset + 3 * s];
+            if (!Double.isNaN(x)) {
+                order[valid++] = ((long) Math.floor(x) + X_OFFSET) << INDEX_BITS | s;
+            }
+        }
+        Arrays.sort(order, 0, valid);
+
+        long[] pairs = new long[16];
+        int count = 0;
+        long reach = (long) Math.ceil(maxRange) + 1;
+        for (int a = 0; a < valid; a++) {
+            long xa = order[a] >> INDEX_BITS;
+            int i = (int) (order[a] & ((1 << INDEX_BITS) - 1));
+            for (int b = a + 1; b < valid && (order[b] >> INDEX_BITS) - xa <= reach; b++) {
+                int j = (int) (order[b] & ((1 << INDEX_BITS) - 1));
+                checks[0]++;
+                if (margin(positions, offset + 3 * i, positions, offset + 3 * j) >= 0) {
+                    if (count == pairs.length) {
+                        pairs = Arrays.copyOf(pairs, 2 * count);
+                    }
+                    pairs[count++] = (long) Math.min(i, j) * n + Math.max(i, j);
+                }
+            }
+        }
+        Arrays.sort(pairs, 0, count);
+        return Arrays.copyOf(pairs, count);
+
+    }
+
+    /**
+     * Link margin between two positions (m): positive when they are within the maximum range and the segment between
+     * them clears the grazing height. It is continuous, so its roots are the window bounds.
+     */
+    private double margin(double[] p, int i, double[] q, int j) {
+        double dx = q[j] - p[i];
+        double dy = q[j + 1] - p[i + 1];
+        double dz = q[j + 2] - p[i + 2];
+        double d2 = dx * dx + dy * dy + dz * dz;
+        double rangeMargin = maxRange - Math.sqrt(d2);
+        if (rangeMargin < 0) {
+            return rangeMargin;
+        }
+        // Point of the segment closest to the center of the Earth
+        double t = d2 > 0 ? -(p[i] * dx + p[i + 1] * dy + p[i + 2] * dz) / d2 : 0;
+        t = Math.max(0, Math.min(1, t));
+        double cx = p[i] + t * dx;
+        double cy = p[i + 1] + t * dy;
+        double cz = p[i + 2] + t * dz;
+        double clearance = Math.sqrt(cx * cx + cy * cy + cz * cz) - Constants.WGS84_EARTH_EQUATORIAL_RADIUS
+                - grazingHeight;
+        return Math.min(rangeMargin, clearance);
+    }
+
+    public List<Interval> getIntervals() {
+        return intervals;
+    }
+
+    /**
+     * Returns the link windows between the satellites at the given positions of the input list
+     */
+    public List<Interval> getIntervals(int satelliteIndex, int otherIndex) {
+        int from = satellites.get(Math.min(satelliteIndex, otherIndex)).getId();
+        int to = satellites.get(Math.max(satelliteIndex, otherIndex)).getId();
+        List<Interval> result = new ArrayList<>();
+        for (Interval interval : intervals) {
+            if (interval.getFirstFrom() == from && interval.getFirstTo() == to) {
+                result.add(interval);
+            }
+        }
+        return result;
+    }
+
+    public List<Satellite> getSatellites() {
+        return satellites;
+    }
+
+    /**
+     * Returns the number of pair checks the sweep made on the last run
+     */
+    public long getCheckedPairs() {
+        return checkedPairs;
+    }
+
+    public double getLastSimTime() {
+        return this.lastSimTime;
+    }
+
+    /**
+     * Returns the number of pairs and time steps covered per second on the last run
+     */
+    public double getPairsPerSecond() {
+        int n = satellites.size();
+        long pairSteps = (long) n * (n - 1) / 2 * steps;
+        return lastSimTime > 0 ? pairSteps / (lastSimTime / 1000) : 0;
+    }
+
+    @Override
+    public void run() {
+        computeLinks();
+    }
+
+    /**
+     * A time at which the link margin of a pair changes sign, bracketed between two steps (seconds from the start)
+     * until it is refined
+     */
+    private static class Crossing {
+
+        private final long key;
+        private final double t0;
+        private final double t1;
+        private double time;
+
+        Crossing(long key, double t0, double t1) {
+            this.key = key;
+            this.t0 = t0;
+            this.t1 = t1;
+            this.time = t1;
+        }
+
+    }
+
+    /**
+     * Compares the visible pairs of consecutive steps: pairs that appear open a window and pairs that disappear close
+     * it. Bounds are refined in a batch per chunk of steps, in parallel unless some orbit is deep-space, because the
+     * deep-space kernels are not thread-safe.
+     */
+    private class WindowTracker {
+
+        private final long startTime;
+        private final List<Sgp4Kernel> kernels;
+        private final double[] epochOffsets;
+        private final boolean parallel;
+        private final List<Crossing> crossings = new ArrayList<>();
+        private final List<Crossing[]> closed = new ArrayList<>();
+        private long[] open = new long[0];
+        private Crossing[] openedAt = new Crossing[0];
+        private double previousTime = 0;
+        private boolean first = true;
+
+        WindowTracker(AbsoluteDate start, List<Sgp4Kernel> kernels) {
+            this.startTime = start.toDate(TimeScalesFactory.getUTC()).getTime();
+            this.kernels = kernels;
+            this.epochOffsets = new double[kernels.size()];
+            boolean deepSpace = false;
+            for (int s = 0; s < kernels.size(); s++) {
+                epochOffsets[s] = start.durationFrom(kernels.get(s).getEpoch());
+                deepSpace |= kernels.get(s).isDeepSpace();
+            }
+            this.parallel = !deepSpace;
+        }
+
+        void update(double time, long[] visible) {
+
+            Crossing[] opened = new Crossing[visible.length];
+            int a = 0;
+            int b = 0;
+            while (a < open.length || b < visible.length) {
+                if (b >= visible.length || (a < open.length && open[a] < visible[b])) {
+                    closed.add(new Crossing[]{openedAt[a], crossing(open[a], previousTime, time)});
+                    a++;
+                } else if (a >= open.length || visible[b] < open[a]) {
+                    opened[b] = first ? new Crossing(visible[b], time, time) : crossing(visible[b], previousTime, time);
+                    b++;
+                } else {
+                    opened[b++] = openedAt[a++];
+                }
+            }
+            open = visible;
+            openedAt = opened;
+            previousTime = time;
+            first = false;
+
+        }
+
+        void close(double time) {
+            for (int a = 0; a < open.length; a++) {
+                closed.add(new Crossing[]{openedAt[a], new Crossing(open[a], time, time)});
+            }
+            open = new long[0];
+            openedAt = new Crossing[0];
+            flush();
+        }
+
+        /**
+         * Refines the pending crossings and adds the windows closed so far
+         */
+        void flush() {
+
+            if (parallel) {
+                pool.submit(() -> crossings.parallelStream().forEach(this::refine)).join();
+            } else {
+                crossings.forEach(this::refine);
+            }
+            crossings.clear();
+
+            int n = satellites.size();
+            for (Crossing[] window : closed) {
+                long key = window[0].key;
+                Satellite s1 = satellites.get((int) (key / n));
+                Satellite s2 = satellites.get((int) (key % n));
+                intervals.add(new Interval(startTime + Math.round(window[0].time * 1000),
+                        startTime + Math.round(window[1].time * 1000), s1.getId(), s2.getId()));
+            }
+            closed.clear();
+
+        }
+
+        private Crossing crossing(long key, double t0, double t1) {
+            var crossing = new Crossing(key, t0, t1);
+            crossings.add(crossing);
+            return crossing;
+        }
+
+        /**
+         * Finds the time at which the link margin of the pair changes sign between both steps
+         */
+        private void refine(Crossing crossing) {
+
+            int n = satellites.size();
+            int i = (int) (crossing.key / n);
+            int j = (int) (crossing.key % n);
+            Sgp4Kernel k1 = kernels.get(i);
+            Sgp4Kernel k2 = kernels.get(j);
+            double[] p = new double[3];
+            double[] q = new double[3];
+            UnivariateFunction g = t -> {
+                k1.propagateSeconds(epochOffsets[i] + t, p, null, 0);
+                k2.propagateSeconds(epochOffsets[j] + t, q, null, 0);
+                return margin(p, 0, q, 0);
+            };
+            double g0 = g.value(crossing.t0);
+            double g1 = g.value(crossing.t1);
+            if ((g0 < 0) == (g1 < 0)) {
+                // Sampled and refined margins disagree by rounding only, the bound stays on the grid
+                crossing.time = g1 >= 0 ? crossing.t1 : crossing.t0;
+                return;
+            }
+            var solver = new BracketingNthOrderBrentSolver(0, CROSSING_TOLERANCE, 0, 5);
+            crossing.time = solver.solve(MAX_SOLVER_EVALUATIONS, g, crossing.t0, crossing.t1,
+                    AllowedSolution.ANY_SIDE);
+
+        }
+
+    }
+
+}
@@ -1,13 +1,13 @@
 package satellite.tools;
 
+import org.hipparchus.analysis.UnivariateFunction;
+import org.hipparchus.analysis.solvers.AllowedSolution;
+import org.hipparchus.analysis.solvers.BracketingNthOrderBrentSolver;
 import org.hipparchus.geometry.euclidean.threed.Vector3D;
 import org.hipparchus.ode.events.Action;
 import org.orekit.bodies.BodyShape;
 import org.orekit.bodies.GeodeticPoint;
 import org.orekit.bodies.OneAxisEllipsoid;
-import org.orekit.data.DataContext;
-import org.orekit.data.DataProvidersManager;
-import org.orekit.data.DirectoryCrawler;
 import org.orekit.frames.Frame;
 import org.orekit.frames.FramesFactory;
 import org.orekit.frames.TopocentricFrame;
@@ -26,16 +26,33 @@ import org.orekit.utils.TimeStampedPVCoordinates;
 import satellite.tools.assets.Asset;
 import satellite.tools.assets.entities.Device;
 import satellite.tools.assets.entities.Satellite;
+import satellite.tools.propagation.EphemerisCache;
+import satellite.tools.propagation.Sgp4Batch;
+import satellite.tools.propagation.Sgp4Kernel;
+import satellite.tools.structures.ChebyshevEphemeris;
 import satellite.tools.structures.Ephemeris;
+import satellite.tools.structures.EphemerisBlock;
+import satellite.tools.structures.GroundTrack;
 import satellite.tools.structures.Interval;
+import satellite.tools.structures.IntervalSet;
+import satellite.tools.utils.EarthOrientationTable;
 import satellite.tools.utils.Log;
+import satellite.tools.utils.TransformCache;
 import satellite.tools.utils.Utils;
 
-import java.io.File;
 import java.util.ArrayList;
 import java.util.Date;
+import java.util.Iterator;
 import java.util.List;
+import java.util.NoSuchElementException;
 import java.util.Properties;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * Simulation condenses the main entry class for the software. It propagates orbits and output results based on the
@@ -48,21 +65,21 @@ public class Simulation implements Runnable {
      * */
     private static final Properties prop = Utils.loadProperties("sim.properties");
     private static final String orekitPath = (String) prop.get("orekit_data_path");
-    private static final File orekitFile = Utils.loadFile(orekitPath);
-
-    private static final DataProvidersManager manager = DataContext.getDefault().getDataProvidersManager();
 
     static {
-        manager.addProvider(new DirectoryCrawler(orekitFile));
-        Log.debug("Manager loaded");
+        Utils.loadOrekitData(orekitPath);
     }
 
     private static final Frame inertialFrame = FramesFactory.getEME2000();
     private static final Frame earthFrame = FramesFactory.getITRF(IERSConventions.IERS_2010, true);
+    private static final Frame temeFrame = FramesFactory.getTEME();
     private static final BodyShape earth = new OneAxisEllipsoid(Constants.WGS84_EARTH_EQUATORIAL_RADIUS,
             Constants.WGS84_EARTH_FLATTENING,
             earthFrame);
     private static final double TH_DETECTION = Double.parseDouble((String) prop.get("th_detection"));
+    private static final double ADAPTIVE_RATE_MARGIN = 1.05;
+    private static final int MAX_SOLVER_EVALUATIONS = 100;
+    private static final int MIN_PARALLEL_CHUNK = 512;
 
     /**
      * Mutable variables
@@ -72,13 +89,23 @@ public class Simulation implements Runnable {
     private double step = Double.parseDouble((String) prop.get("time_step"));
     private double th = Math.toRadians(Double.parseDouble((String) prop.get("visibility_threshold")));
     private TopocentricFrame topocentricFrame;
+    private Transform earthToTopocentric;
     private TLEPropagator tlePropagator;
     private Satellite satellite;
     private Device device;
     private final List<Interval> intervalList = new ArrayList<>();
     private final List<Ephemeris> ephemerisList = new ArrayList<>();
+    private final List<List<Interval>> deviceIntervals = new ArrayList<>();
     private Date contact = new Date();
     private double lastSimTime = 0;
+    private double minPassDuration = 0;
+    private int lastPropagations = 0;
+    private EarthOrientationTable earthOrientation;
+    private TransformCache transformCache;
+    private Sgp4Kernel kernel;
+    private EphemerisCache ephemerisCache;
+    private final double[] kernelPosition = new double[3];
+    private final double[] kernelVelocity = new double[3];
 
     /**
      * Default constructor
@@ -179,6 +206,13 @@ public class Simulation implements Runnable {
         return TH_DETECTION;
     }
 
+    /**
+     * Returns the Earth-fixed frame (ITRF 2010) in which devices are defined
+     */
+    public static Frame getEarthFrame() {
+        return earthFrame;
+    }
+
     public List<Interval> getIntervals() {
         return intervalList;
     }
@@ -198,8 +232,47 @@ public class Simulation implements Runnable {
 
     public void setDevice(Device device) {
         this.device = device;
+        this.topocentricFrame = toTopocentricFrame(device);
+        this.earthToTopocentric = earthToTopocentric(topocentricFrame);
+    }
+
+    /**
+     * The transform between the Earth frame and a topocentric frame does not depend on time, so it is computed once
+     */
+    private static Transform earthToTopocentric(TopocentricFrame frame) {
+        return earthFrame.getTransformTo(frame, AbsoluteDate.J2000_EPOCH);
+    }
+
+    /**
+     * Returns the transform from the inertial frame to the Earth frame, interpolated from the Earth orientation table in
+     * fast frames mode. Otherwise, dates of a time grid are taken from the transform cache, if one is set, and any other
+     * date is computed by Orekit.
+     */
+    private Transform toEarthFrame(AbsoluteDate date, boolean onGrid) {
+        if (earthOrientation != null) {
+            return earthOrientation.getTransform(date);
+        }
+        if (onGrid && transformCache != null) {
+            return transformCache.getTransform(date);
+        }
+        return inertialFrame.getTransformTo(earthFrame, date);
+    }
+
+    private Transform toEarthFrame(AbsoluteDate date) {
+        return toEarthFrame(date, false);
+    }
+
+    /**
+     * Returns the transform from the inertial frame to the device's topocentric frame: the inertial to Earth part, then
+     * the device's fixed rotation
+     */
+    private Transform inertialToTopocentric(AbsoluteDate date, boolean onGrid) {
+        return new Transform(date, toEarthFrame(date, onGrid), earthToTopocentric);
+    }
+
+    private static TopocentricFrame toTopocentricFrame(Device device) {
         GeodeticPoint geodeticPoint = new GeodeticPoint(device.getLatRad(), device.getLonRad(), device.getHeight());
-        this.topocentricFrame = new TopocentricFrame(earth, geodeticPoint, device.getName());
+        return new TopocentricFrame(earth, geodeticPoint, device.getName());
     }
 
     public void setSatellite(Satellite satellite) {
@@ -211,6 +284,29 @@ public class Simulation implements Runnable {
             tle = new TLE(satellite.getTLE1(), satellite.getTLE2());
         }
         this.tlePropagator = TLEPropagator.selectExtrapolator(tle);
+        if (kernel != null) {
+            this.kernel = new Sgp4Kernel(tle);
+        }
+        if (ephemerisCache != null) {
+            this.ephemerisCache = new EphemerisCache(tle, ephemerisCache.getErrorBudget());
+        }
+    }
+
+    /**
+     * Leaves the Simulation as if it was just built with its current assets and parameters: detectors and step handlers
+     * are removed from the propagator and every result list is emptied. Meant for workers that recycle a pool of
+     * Simulations instead of allocating one per job.
+     */
+    public void reset() {
+        if (tlePropagator != null) {
+            tlePropagator.clearEventsDetectors();
+            tlePropagator.clearStepHandlers();
+        }
+        intervalList.clear();
+        ephemerisList.clear();
+        deviceIntervals.clear();
+        contact = new Date();
+        lastSimTime = 0;
     }
 
     public double getTotalAccess() {
@@ -225,6 +321,145 @@ public class Simulation implements Runnable {
         this.step = step;
     }
 
+    /**
+     * Enables the adaptive detection mode of computeAccess(): the elevation check interval is derived from the orbit
+     * instead of the time step, with the guarantee of not missing passes longer than minPassDuration (seconds).
+     * A value of 0 goes back to checking every time step.
+     */
+    public void setAdaptiveDetection(double minPassDuration) {
+        this.minPassDuration = minPassDuration;
+    }
+
+    public double getMinPassDuration() {
+        return minPassDuration;
+    }
+
+    /**
+     * Enables the fast frames mode: the inertial to Earth rotation used by the PVD and sub-satellite point computations
+     * is interpolated from a table with nodes every gridSpacing seconds, precomputed over the simulation window (see
+     * EarthOrientationTable for its accuracy). A value of 0 goes back to the exact Orekit frames.
+     */
+    public void setFastFrames(double gridSpacing) {
+        if (gridSpacing <= 0) {
+            this.earthOrientation = null;
+            return;
+        }
+        this.earthOrientation = new EarthOrientationTable(inertialFrame, earthFrame, gridSpacing);
+        this.earthOrientation.precompute(Utils.stamp2AD(time1), Utils.stamp2AD(time2));
+    }
+
+    /**
+     * Enables the fast frames mode with a table shared with other simulations
+     */
+    public void setFastFrames(EarthOrientationTable earthOrientation) {
+        this.earthOrientation = earthOrientation;
+    }
+
+    public EarthOrientationTable getEarthOrientationTable() {
+        return earthOrientation;
+    }
+
+    /**
+     * Caches the inertial to Earth transforms of the time grids of PVD computations, so that simulations on the same
+     * grid (one per device, or repeated runs) compute each of them once. The cache can be shared by several
+     * simulations, as long as they use the same grids, and should hold every date of the grid (see
+     * newTransformCache()); a null cache disables it.
+     */
+    public void setTransformCache(TransformCache transformCache) {
+        if (transformCache != null && transformCache.getCapacity() < countGridPoints()) {
+            Log.warn("Transform cache of " + transformCache.getCapacity() + " dates for a grid of "
+                    + countGridPoints() + ": dates are evicted before they are reused");
+        }
+        this.transformCache = transformCache;
+    }
+
+    public TransformCache getTransformCache() {
+        return transformCache;
+    }
+
+    /**
+     * Returns a cache of transforms between the frames of Simulation, for setTransformCache(), sized for every date of
+     * the time grid of this simulation
+     */
+    public TransformCache newTransformCache() {
+        return newTransformCache(countGridPoints());
+    }
+
+    /**
+     * Returns a cache of transforms between the frames of Simulation, for setTransformCache(), holding at most the
+     * given number of dates. It should be at least the number of dates of the grids it is shared over.
+     */
+    public static TransformCache newTransformCache(int capacity) {
+        return new TransformCache(inertialFrame, earthFrame, capacity);
+    }
+
+    /**
+     * Returns the number of samples of the time grid of this simulation, as the PVD computations produce them: every
+     * step from the start date, plus the end date (which comes twice when the window is a whole number of steps)
+     */
+    public int countGridPoints() {
+        return countGridPoints(time1, time2, step);
+    }
+
+    public static int countGridPoints(String startTime, String endTime, double stepInSeconds) {
+        return new TimeGrid(Utils.stamp2AD(startTime), Utils.stamp2AD(endTime), stepInSeconds).size();
+    }
+
+    /**
+     * Selects the propagation backend of the PVD and sub-satellite point computations: the allocation-free Sgp4Kernel
+     * when enabled, Orekit's TLEPropagator otherwise (default). Access detection always runs on Orekit's propagator.
+     */
+    public void setKernelPropagation(boolean enabled) {
+        this.kernel = enabled ? new Sgp4Kernel(tlePropagator.getTLE()) : null;
+    }
+
+    public boolean isKernelPropagation() {
+        return kernel != null;
+    }
+
+    /**
+     * Enables interpolated PVD computations: the satellite is propagated at coarse nodes and every sample is obtained by
+     * Hermite interpolation, within the given position error budget in meters (see EphemerisCache). A value of 0 goes
+     * back to propagating every sample.
+     */
+    public void setInterpolation(double errorBudget) {
+        this.ephemerisCache = errorBudget > 0 ? new EphemerisCache(tlePropagator.getTLE(), errorBudget) : null;
+    }
+
+    /**
+     * Enables interpolated PVD computations with a cache shared with other simulations of the same satellite, for
+     * instance one per device
+     */
+    public void setEphemerisCache(EphemerisCache ephemerisCache) {
+        this.ephemerisCache = ephemerisCache;
+    }
+
+    public EphemerisCache getEphemerisCache() {
+        return ephemerisCache;
+    }
+
+    /**
+     * Returns the TLE propagator of the configured satellite
+     */
+    public TLEPropagator getPropagator() {
+        return tlePropagator;
+    }
+
+    /**
+     * Returns the number of propagations performed by the last adaptive access computation
+     */
+    public int getLastPropagations() {
+        return lastPropagations;
+    }
+
+    /**
+     * Analytic pre-screening of the configured pair: returns false when the device's latitude lies outside the band
+     * the satellite can be seen from, in which case computeAccess() would never find an interval
+     */
+    public boolean isAccessPossible() {
+        return Utils.isAccessPossible(device, satellite, Math.toDegrees(th));
+    }
+
     @SuppressWarnings("squid:S2184")
     public void computeAccess() {
 
@@ -233,6 +468,15 @@ public class Simulation implements Runnable {
         intervalList.clear();
 
         contact.setTime(Utils.stamp2unix(time1));
+
+        if (minPassDuration > 0) {
+            tlePropagator.clearEventsDetectors();
+            adaptiveAccessBetweenDates(Utils.stamp2AD(time1), Utils.stamp2AD(time2));
+            IntervalSet.fillTimeSinceLastContact(intervalList, contactReference());
+            lastSimTime = System.currentTimeMillis() - t0;
+            return;
+        }
+
         EventDetector elevDetector = new ElevationDetector(step, TH_DETECTION, topocentricFrame).
                 withConstantElevation(th).
                 withHandler(
@@ -241,17 +485,153 @@ public class Simulation implements Runnable {
                             return Action.CONTINUE;
                         });
 
-        this.tlePropagator.addEventDetector(elevDetector);
-        accessBetweenDates(Utils.stamp2AD(time1), Utils.stamp2AD(time2));
+        // Detectors live for a single run, so re-running this Simulation never evaluates past ones
+        tlePropagator.clearEventsDetectors();
+        tlePropagator.addEventDetector(elevDetector);
+        try {
+            accessBetweenDates(Utils.stamp2AD(time1), Utils.stamp2AD(time2));
+        } finally {
+            tlePropagator.clearEventsDetectors();
+        }
+        IntervalSet.fillTimeSinceLastContact(intervalList, contactReference());
         lastSimTime = System.currentTimeMillis() - t0;
 
     }
 
+    /**
+     * Unix time (ms) of the simulation start, from which the time since last contact of the first pass is measured
+     */
+    private long contactReference() {
+        return Utils.stamp2AD(time1).toDate(TimeScalesFactory.getUTC()).getTime();
+    }
+
+    /**
+     * Computes the access intervals between the configured satellite and every device provided with a single
+     * propagation of the orbit. One ElevationDetector is attached per device, each with its own TopocentricFrame, and
+     * every crossing is routed to the interval list of its device. Results are available through getDeviceIntervals(),
+     * in the same order as the devices provided.
+     */
+    @SuppressWarnings("squid:S2184")
+    public void computeAccess(List<Device> devices) {
+
+        long t0 = System.currentTimeMillis();
+
+        deviceIntervals.clear();
+        tlePropagator.clearEventsDetectors();
+
+        long startTime = Utils.stamp2unix(time1);
+
+        for (Device d : devices) {
+            List<Interval> intervals = new ArrayList<>();
+            deviceIntervals.add(intervals);
+            long[] deviceContact = {startTime};
+            EventDetector elevDetector = new ElevationDetector(step, TH_DETECTION, toTopocentricFrame(d)).
+                    withConstantElevation(th).
+                    withHandler(
+                            (s, detector, increasing) -> {
+                                long time = s.getDate().toDate(TimeScalesFactory.getUTC()).getTime();
+                                if (increasing) {
+                                    deviceContact[0] = time;
+                                } else {
+                                    intervals.add(new Interval(deviceContact[0], time, d.getId(), this.satellite.getId()));
+                                }
+                                return Action.CONTINUE;
+                            });
+            tlePropagator.addEventDetector(elevDetector);
+        }
+
+        try {
+            accessBetweenDates(Utils.stamp2AD(time1), Utils.stamp2AD(time2));
+        } finally {
+            tlePropagator.clearEventsDetectors();
+        }
+        long reference = contactReference();
+        deviceIntervals.forEach(intervals -> IntervalSet.fillTimeSinceLastContact(intervals, reference));
+        lastSimTime = System.currentTimeMillis() - t0;
+
+    }
+
+    /**
+     * Returns the access intervals of the last multi-device run, one list per device
+     */
+    public List<List<Interval>> getDeviceIntervals() {
+        return deviceIntervals;
+    }
+
     private void accessBetweenDates(AbsoluteDate time1, AbsoluteDate time2) {
         double scenarioTime = time2.durationFrom(time1);
         tlePropagator.propagate(time1, time1.shiftedBy(scenarioTime));
     }
 
+    /**
+     * Adaptive access detection. While the device lies outside the satellite's visibility cone (its Earth central angle
+     * to the satellite is above lambda max) no pass can start before that angle closes at the highest angular rate of
+     * the satellite over the ground: orbital rate at perigee plus the Earth's rotation. The next check is placed at that
+     * time plus the minimum pass duration, so the propagator takes large strides when the satellite is far below the
+     * horizon and strides of minPassDuration near it. Crossings are then located within th_detection, like the
+     * ElevationDetector does.
+     */
+    private void adaptiveAccessBetweenDates(AbsoluteDate startDate, AbsoluteDate endDate) {
+
+        TLE tle = tlePropagator.getTLE();
+        double e = tle.getE();
+        double maxRate = tle.getMeanMotion() * Math.sqrt(1 - e * e) / Math.pow(1 - e, 2) * ADAPTIVE_RATE_MARGIN
+                + Constants.WGS84_EARTH_ANGULAR_VELOCITY;
+        double lambdaMax = Math.toRadians(Utils.getMaxCentralAngle(satellite, Math.toDegrees(th))
+                + Utils.ACCESS_BAND_MARGIN);
+        Vector3D station = earth.transform(topocentricFrame.getPoint());
+
+        lastPropagations = 0;
+        var solver = new BracketingNthOrderBrentSolver(0, TH_DETECTION, 0, 5);
+        double[] sample = new double[2];
+        UnivariateFunction g = x -> {
+            sampleElevation(startDate.shiftedBy(x), station, sample);
+            return sample[0];
+        };
+
+        double span = endDate.durationFrom(startDate);
+        double x0 = 0;
+        sampleElevation(startDate, station, sample);
+        double g0 = sample[0];
+        double lambda0 = sample[1];
+
+        while (x0 < span) {
+
+            double stride = minPassDuration;
+            if (lambda0 > lambdaMax) {
+                stride += (lambda0 - lambdaMax) / maxRate;
+            }
+            double x1 = Math.min(x0 + stride, span);
+            sampleElevation(startDate.shiftedBy(x1), station, sample);
+            double g1 = sample[0];
+            double lambda1 = sample[1];
+
+            if ((g0 < 0) != (g1 < 0)) {
+                double root = solver.solve(MAX_SOLVER_EVALUATIONS, g, x0, x1, AllowedSolution.ANY_SIDE);
+                addInterval(tlePropagator.propagate(startDate.shiftedBy(root)), g1 >= 0);
+                lastPropagations++;
+            }
+
+            x0 = x1;
+            g0 = g1;
+            lambda0 = lambda1;
+        }
+
+    }
+
+    /**
+     * Stores the satellite's elevation over the visibility threshold (radians) and its Earth central angle to the
+     * device (radians) at the given date
+     */
+    private void sampleElevation(AbsoluteDate date, Vector3D station, double[] sample) {
+        SpacecraftState state = tlePropagator.propagate(date);
+        Vector3D position = state.getFrame().getTransformTo(earthFrame, date)
+                .transformPosition(state.getPVCoordinates().getPosition());
+        sample[0] = topocentricFrame.getElevation(position, earthFrame, date) - th;
+        sample[1] = Vector3D.angle(position, station);
+        lastPropagations++;
+    }
+
     private void addInterval(SpacecraftState s, boolean dir) {
         try {
             if (dir) {
@@ -285,6 +665,169 @@ public class Simulation implements Runnable {
         propagateAndComputePVD(Utils.stamp2AD(startTime), Utils.stamp2AD(endTime), stepInSeconds);
     }
 
+    /**
+     * Streaming variant of computePVD(): each point is pushed to the sink as soon as it is computed and nothing is kept
+     * in the ephemeris list, so memory stays constant whatever the length of the scenario
+     */
+    public void computePVD(Consumer<Ephemeris> sink) {
+        computePVDBetween(time1, time2, this.step, sink);
+    }
+
+    public void computePVDBetween(long startTime, long endTime, double stepInSeconds, Consumer<Ephemeris> sink) {
+        computePVDBetween(Utils.unix2stamp(startTime), Utils.unix2stamp(endTime), stepInSeconds, sink);
+    }
+
+    public void computePVDBetween(String startTime, String endTime, double stepInSeconds, Consumer<Ephemeris> sink) {
+        long t0 = System.currentTimeMillis();
+        new TimeGrid(Utils.stamp2AD(startTime), Utils.stamp2AD(endTime), stepInSeconds)
+                .forEachRemaining(date -> sink.accept(computePVDOnGrid(date)));
+        lastSimTime = System.currentTimeMillis() - t0;
+    }
+
+    /**
+     * Returns a lazy, sequential Stream of the ephemerides between both dates. Points are propagated as the stream is
+     * consumed, which makes it suitable to pipe long campaigns straight to disk or network.
+     */
+    public Stream<Ephemeris> streamPVDBetween(String startTime, String endTime, double stepInSeconds) {
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(
+                new TimeGrid(Utils.stamp2AD(startTime), Utils.stamp2AD(endTime), stepInSeconds),
+                Spliterator.ORDERED | Spliterator.NONNULL), false).map(this::computePVDOnGrid);
+    }
+
+    /**
+     * Columnar variant of computePVD(): the samples are written straight into the primitive columns of an
+     * EphemerisBlock, without creating any Ephemeris object
+     */
+    public EphemerisBlock computePVDBlock() {
+        return computePVDBlockBetween(time1, time2, this.step);
+    }
+
+    public EphemerisBlock computePVDBlockBetween(long startTime, long endTime, double stepInSeconds) {
+        return computePVDBlockBetween(Utils.unix2stamp(startTime), Utils.unix2stamp(endTime), stepInSeconds);
+    }
+
+    public EphemerisBlock computePVDBlockBetween(String startTime, String endTime, double stepInSeconds) {
+
+        long t0 = System.currentTimeMillis();
+        var grid = new TimeGrid(Utils.stamp2AD(startTime), Utils.stamp2AD(endTime), stepInSeconds);
+        var block = EphemerisBlock.ofSize(getDeviceId(), getSatelliteId(), grid.size());
+
+        for (int i = 0; i < grid.size(); i++) {
+            AbsoluteDate date = grid.get(i);
+            PVCoordinates pvInert = propagatePV(date);
+            var pvDevice = inertialToTopocentric(date, true).transformPVCoordinates(pvInert);
+            setInBlock(block, i, date, pvDevice);
+        }
+
+        lastSimTime = System.currentTimeMillis() - t0;
+        return block;
+    }
+
+    /**
+     * Multi-device variant of computePVDBlockBetween(): the satellite is propagated and brought to the Earth frame once
+     * per instant, then each device only applies its fixed Earth to topocentric transform. Returns one block per
+     * device, in the same order as the devices provided.
+     */
+    public List<EphemerisBlock> computePVDBlocksBetween(List<Device> devices, String startTime, String endTime,
+                                                        double stepInSeconds) {
+
+        long t0 = System.currentTimeMillis();
+        var grid = new TimeGrid(Utils.stamp2AD(startTime), Utils.stamp2AD(endTime), stepInSeconds);
+        List<EphemerisBlock> blocks = new ArrayList<>();
+        List<Transform> deviceTransforms = new ArrayList<>();
+        for (Device d : devices) {
+            blocks.add(EphemerisBlock.ofSize(d.getId(), getSatelliteId(), grid.size()));
+            deviceTransforms.add(earthToTopocentric(toTopocentricFrame(d)));
+        }
+
+        for (int i = 0; i < grid.size(); i++) {
+            AbsoluteDate date = grid.get(i);
+            PVCoordinates pvInert = propagatePV(date);
+            PVCoordinates pvEarth = toEarthFrame(date, true).transformPVCoordinates(pvInert);
+            for (int d = 0; d < devices.size(); d++) {
+                setInBlock(blocks.get(d), i, date, deviceTransforms.get(d).transformPVCoordinates(pvEarth));
+            }
+        }
+
+        lastSimTime = System.currentTimeMillis() - t0;
+        return blocks;
+    }
+
+    /**
+     * Compressed variant of computePVD(): fits Chebyshev series of the given degree to the satellite's position in the
+     * device's frame, over blocks of blockSeconds between both dates. See ChebyshevEphemeris.
+     */
+    public ChebyshevEphemeris computePVDChebyshev(double blockSeconds, int degree) {
+        return computePVDChebyshevBetween(time1, time2, blockSeconds, degree);
+    }
+
+    public ChebyshevEphemeris computePVDChebyshevBetween(String startTime, String endTime, double blockSeconds,
+                                                         int degree) {
+
+        long t0 = System.currentTimeMillis();
+        AbsoluteDate startDate = Utils.stamp2AD(startTime);
+        long start = startDate.toDate(TimeScalesFactory.getUTC()).getTime();
+        long end = Utils.stamp2AD(endTime).toDate(TimeScalesFactory.getUTC()).getTime();
+        var ephemeris = ChebyshevEphemeris.fit(getDeviceId(), getSatelliteId(), start, end, blockSeconds, degree,
+                (seconds, position) -> {
+                    AbsoluteDate date = startDate.shiftedBy(seconds);
+                    Vector3D pos = inertialToTopocentric(date, false)
+                            .transformPosition(propagatePV(date).getPosition());
+                    position[0] = pos.getX();
+                    position[1] = pos.getY();
+                    position[2] = pos.getZ();
+                });
+        lastSimTime = System.currentTimeMillis() - t0;
+        return ephemeris;
+    }
+
+    /**
+     * Parallel variant of computePVDBlock(): the time grid is split in chunks that are computed in the common
+     * ForkJoinPool, each worker with its own propagator built from the same TLE. SGP4 is analytic, every sample only
+     * depends on its date, so the block is identical to the sequential one.
+     */
+    public EphemerisBlock computePVDBlockParallel() {
+        return computePVDBlockParallelBetween(time1, time2, this.step);
+    }
+
+    public EphemerisBlock computePVDBlockParallelBetween(String startTime, String endTime, double stepInSeconds) {
+
+        long t0 = System.currentTimeMillis();
+        var grid = new TimeGrid(Utils.stamp2AD(startTime), Utils.stamp2AD(endTime), stepInSeconds);
+        var block = EphemerisBlock.ofSize(getDeviceId(), getSatelliteId(), grid.size());
+        TLE tle = tlePropagator.getTLE();
+
+        // A few chunks per worker balance the load without building too many propagators
+        int chunk = Math.max(MIN_PARALLEL_CHUNK, grid.size() / (4 * ForkJoinPool.getCommonPoolParallelism()) + 1);
+        int chunks = (grid.size() + chunk - 1) / chunk;
+
+        IntStream.range(0, chunks).parallel().forEach(c -> {
+            // A near-Earth kernel has no mutable state and is shared, deep-space ones wrap an Orekit propagator
+            Sgp4Kernel chunkKernel = kernel == null ? null : kernel.isDeepSpace() ? new Sgp4Kernel(tle) : kernel;
+            TLEPropagator propagator = chunkKernel == null && ephemerisCache == null
+                    ? TLEPropagator.selectExtrapolator(tle) : null;
+            double[] position = new double[3];
+            double[] velocity = new double[3];
+            int to = Math.min(grid.size(), (c + 1) * chunk);
+            for (int i = c * chunk; i < to; i++) {
+                AbsoluteDate date = grid.get(i);
+                PVCoordinates pvInert;
+                if (ephemerisCache != null) {
+                    ephemerisCache.interpolate(date, position, velocity);
+                    pvInert = toPV(position, velocity);
+                } else {
+                    pvInert = chunkKernel != null ? kernelPV(chunkKernel, date, position, velocity)
+                            : propagator.propagate(date).getPVCoordinates();
+                }
+                var pvDevice = inertialToTopocentric(date, true).transformPVCoordinates(pvInert);
+                setInBlock(block, i, date, pvDevice);
+            }
+        });
+
+        lastSimTime = System.currentTimeMillis() - t0;
+        return block;
+    }
+
     public Ephemeris computePVDAt(long timestamp, double step) {
         this.step = step;
         return computePVDAt(Utils.unix2stamp(timestamp));
@@ -294,44 +837,219 @@ public class Simulation implements Runnable {
         return computePVDAt(Utils.stamp2AD(timestamp));
     }
 
+    /**
+     * Inertial position and velocity of the satellite at the given date, from the selected propagation backend
+     */
+    private PVCoordinates propagatePV(AbsoluteDate date) {
+        if (ephemerisCache != null) {
+            ephemerisCache.interpolate(date, kernelPosition, kernelVelocity);
+            return toPV(kernelPosition, kernelVelocity);
+        }
+        if (kernel != null) {
+            return kernelPV(kernel, date, kernelPosition, kernelVelocity);
+        }
+        return tlePropagator.propagate(date).getPVCoordinates();
+    }
+
+    private static PVCoordinates kernelPV(Sgp4Kernel kernel, AbsoluteDate date, double[] position, double[] velocity) {
+        kernel.propagate(date, position, velocity);
+        return toPV(position, velocity);
+    }
+
+    private static PVCoordinates toPV(double[] position, double[] velocity) {
+        return new PVCoordinates(new Vector3D(position[0], position[1], position[2]),
+                new Vector3D(velocity[0], velocity[1], velocity[2]));
+    }
+
     public Ephemeris computePVDAt(AbsoluteDate absoluteDate) {
-        PVCoordinates pvInert = tlePropagator.propagate(absoluteDate).getPVCoordinates();
-        var pvCoordinates = inertialFrame.getTransformTo(topocentricFrame, absoluteDate).transformPVCoordinates(pvInert);
+        PVCoordinates pvInert = propagatePV(absoluteDate);
+        var pvCoordinates = inertialToTopocentric(absoluteDate, false).transformPVCoordinates(pvInert);
         return toEphemeris(absoluteDate, pvCoordinates);
     }
 
-    @SuppressWarnings("squid:S2184")
+    private Ephemeris computePVDOnGrid(AbsoluteDate date) {
+        PVCoordinates pvInert = propagatePV(date);
+        return toEphemeris(date, inertialToTopocentric(date, true).transformPVCoordinates(pvInert));
+    }
+
     private void propagateAndComputePVD(AbsoluteDate startDate, AbsoluteDate endDate, double step) {
 
         long t0 = System.currentTimeMillis();
         ephemerisList.clear();
-        var lastPoint = false;
-        AbsoluteDate pointerDate = startDate;
-        while (pointerDate.compareTo(endDate) <= 0) {
-            // Get the position and velocity of spacecraft in station frame at any time
-            PVCoordinates pvInert = tlePropagator.propagate(pointerDate).getPVCoordinates();
-            var pvDevice = inertialFrame.getTransformTo(topocentricFrame, pointerDate).transformPVCoordinates(pvInert);
-
-            addEphemeris(pointerDate, pvDevice);
-            pointerDate = pointerDate.shiftedBy(step);
-
-            if (pointerDate.compareTo(endDate) > 0 && !lastPoint) {
-                pointerDate = endDate;
-                lastPoint = true;
+        new TimeGrid(startDate, endDate, step).forEachRemaining(date -> ephemerisList.add(computePVDOnGrid(date)));
+        lastSimTime = System.currentTimeMillis() - t0;
+    }
+
+    /**
+     * Walks the time grid of a PVD computation: from the start date every step, closing on the end date. Dates are
+     * computed from their index, so any point of the grid can be obtained without walking the previous ones.
+     */
+    private static class TimeGrid implements Iterator<AbsoluteDate> {
+
+        private final AbsoluteDate startDate;
+        private final AbsoluteDate endDate;
+        private final double step;
+        private final int size;
+        private int index = 0;
+
+        TimeGrid(AbsoluteDate startDate, AbsoluteDate endDate, double step) {
+            this.startDate = startDate;
+            this.endDate = endDate;
+            this.step = step;
+            this.size = countPoints();
+        }
+
+        /**
+         * Every step from the start date up to the end date, plus the end date itself
+         */
+        private int countPoints() {
+            if (startDate.compareTo(endDate) > 0) {
+                return 0;
+            }
+            int last = (int) Math.floor(endDate.durationFrom(startDate) / step);
+            while (startDate.shiftedBy((last + 1) * step).compareTo(endDate) <= 0) {
+                last++;
             }
+            while (last > 0 && startDate.shiftedBy(last * step).compareTo(endDate) > 0) {
+                last--;
+            }
+            return last + 2;
+        }
 
+        int size() {
+            return size;
         }
+
+        AbsoluteDate get(int i) {
+            return i < size - 1 ? startDate.shiftedBy(i * step) : endDate;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return index < size;
+        }
+
+        @Override
+        public AbsoluteDate next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return get(index++);
+        }
+
+    }
+
+    public GroundTrack computeGroundTrack() {
+        return computeGroundTrackBetween(time1, time2, this.step);
+    }
+
+    /**
+     * Computes the ground track of the configured satellite over a time grid in a single call: the TEME to Earth
+     * rotation is computed once per time step and the geodetic conversion is closed form (see Utils.ecef2geodetic), with
+     * no intermediate objects per point on the kernel and interpolation paths.
+     */
+    public GroundTrack computeGroundTrackBetween(String startTime, String endTime, double stepInSeconds) {
+
+        long t0 = System.currentTimeMillis();
+        var grid = new TimeGrid(Utils.stamp2AD(startTime), Utils.stamp2AD(endTime), stepInSeconds);
+        var track = new GroundTrack(getSatelliteId(), gridTimes(grid));
+        double[] position = new double[3];
+        double[] lla = new double[3];
+
+        for (int i = 0; i < grid.size(); i++) {
+            AbsoluteDate date = grid.get(i);
+            if (ephemerisCache != null) {
+                ephemerisCache.interpolate(date, position, null);
+            } else if (kernel != null) {
+                kernel.propagate(date, position, null);
+            } else {
+                Vector3D p = tlePropagator.propagate(date).getPVCoordinates().getPosition();
+                position[0] = p.getX();
+                position[1] = p.getY();
+                position[2] = p.getZ();
+            }
+            toGeodetic(temeToEarth(date), position, 0, lla);
+            track.set(i, lla[0], lla[1], lla[2]);
+        }
+
         lastSimTime = System.currentTimeMillis() - t0;
+        return track;
+
+    }
+
+    /**
+     * Computes the ground tracks of a fleet over a time grid, in the order of the list. Each time step propagates every
+     * satellite at once (see Sgp4Batch) and shares one TEME to Earth rotation between all of them.
+     */
+    public static List<GroundTrack> computeGroundTracks(List<Satellite> satellites, String startTime, String endTime,
+                                                        double stepInSeconds) {
+
+        long t0 = System.currentTimeMillis();
+        var grid = new TimeGrid(Utils.stamp2AD(startTime), Utils.stamp2AD(endTime), stepInSeconds);
+        long[] times = gridTimes(grid);
+        List<GroundTrack> tracks = new ArrayList<>(satellites.size());
+        for (Satellite satellite : satellites) {
+            tracks.add(new GroundTrack(satellite.getId(), times));
+        }
+        if (satellites.isEmpty()) {
+            return tracks;
+        }
+
+        var batch = Sgp4Batch.fromSatellites(satellites);
+        double[] positions = new double[3 * satellites.size()];
+        int chunks = (satellites.size() + MIN_PARALLEL_CHUNK - 1) / MIN_PARALLEL_CHUNK;
+        for (int i = 0; i < grid.size(); i++) {
+            AbsoluteDate date = grid.get(i);
+            batch.propagateParallel(date, positions, null);
+            double[][] rotation = temeToEarth(date);
+            int index = i;
+            IntStream.range(0, chunks).parallel().forEach(c -> {
+                double[] lla = new double[3];
+                int to = Math.min(satellites.size(), (c + 1) * MIN_PARALLEL_CHUNK);
+                for (int s = c * MIN_PARALLEL_CHUNK; s < to; s++) {
+                    toGeodetic(rotation, positions, 3 * s, lla);
+                    tracks.get(s).set(index, lla[0], lla[1], lla[2]);
+                }
+            });
+        }
+
+        Log.debug("Ground tracks of " + satellites.size() + " satellites over " + grid.size() + " steps computed in "
+                + (System.currentTimeMillis() - t0) + " ms");
+        return tracks;
+
+    }
+
+    private static long[] gridTimes(TimeGrid grid) {
+        long[] times = new long[grid.size()];
+        for (int i = 0; i < times.length; i++) {
+            times[i] = grid.get(i).toDate(TimeScalesFactory.getUTC()).getTime();
+        }
+        return times;
+    }
+
+    /**
+     * Rotation matrix from TEME, the frame of SGP4 outputs, to the Earth frame at the given date
+     */
+    private static double[][] temeToEarth(AbsoluteDate date) {
+        return temeFrame.getTransformTo(earthFrame, date).getRotation().getMatrix();
+    }
+
+    private static void toGeodetic(double[][] m, double[] position, int offset, double[] lla) {
+        double x = position[offset];
+        double y = position[offset + 1];
+        double z = position[offset + 2];
+        Utils.ecef2geodetic(m[0][0] * x + m[0][1] * y + m[0][2] * z, m[1][0] * x + m[1][1] * y + m[1][2] * z,
+                m[2][0] * x + m[2][1] * y + m[2][2] * z, lla, 0);
     }
 
     public Ephemeris computeSSPAndGetEphemeris(AbsoluteDate absoluteDate) {
 
-        PVCoordinates pvCoordinates = tlePropagator.propagate(absoluteDate).getPVCoordinates();
+        PVCoordinates pvCoordinates = propagatePV(absoluteDate);
         TimeStampedPVCoordinates timeStampedPVCoordinates = new TimeStampedPVCoordinates(absoluteDate, pvCoordinates);
 
-        Frame bodyFrame = earth.getBodyFrame();
-        Transform t = inertialFrame.getTransformTo(bodyFrame, timeStampedPVCoordinates.getDate());
-        timeStampedPVCoordinates = earth.projectToGround(t.transformPVCoordinates(timeStampedPVCoordinates), inertialFrame);
+        // Projected in the body frame of the ellipsoid, so that toEarthFrame() is the only transform applied
+        Transform t = toEarthFrame(timeStampedPVCoordinates.getDate());
+        timeStampedPVCoordinates = earth.projectToGround(t.transformPVCoordinates(timeStampedPVCoordinates), earthFrame);
 
         double alpha = timeStampedPVCoordinates.getPosition().getAlpha();
         double delta =  timeStampedPVCoordinates.getPosition().getDelta();
@@ -340,10 +1058,6 @@ public class Simulation implements Runnable {
 
     }
 
-    private void addEphemeris(AbsoluteDate absoluteDate, PVCoordinates pvCoordinates) {
-        ephemerisList.add(toEphemeris(absoluteDate, pvCoordinates));
-    }
-
     private Ephemeris toEphemeris(AbsoluteDate absoluteDate, PVCoordinates pvDevice) {
         return toEphemeris(absoluteDate.toDate(TimeScalesFactory.getUTC()), pvDevice);
     }
@@ -364,6 +1078,17 @@ public class Simulation implements Runnable {
                 pos.getZ(), vel.getX(), vel.getY(), vel.getZ(), range, doppler);
     }
 
+    private void setInBlock(EphemerisBlock block, int i, AbsoluteDate absoluteDate, PVCoordinates pvDevice) {
+
+        Vector3D pos = pvDevice.getPosition();
+        Vector3D vel = pvDevice.getVelocity();
+        double range = pos.getNorm();
+        double doppler = Vector3D.dotProduct(pos, vel) / range;
+
+        block.set(i, absoluteDate.toDate(TimeScalesFactory.getUTC()).getTime(), pos.getX(), pos.getY(), pos.getZ(),
+                vel.getX(), vel.getY(), vel.getZ(), range, doppler);
+    }
+
     public List<Ephemeris> getEphemerisList() {
         return ephemerisList;
     }
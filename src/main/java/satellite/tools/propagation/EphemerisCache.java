@@ -0,0 +1,238 @@
+package satellite.tools.propagation;
+
+import org.hipparchus.util.FastMath;
+import org.orekit.propagation.analytical.tle.TLE;
+import org.orekit.propagation.analytical.tle.TLEConstants;
+import org.orekit.time.AbsoluteDate;
+import satellite.tools.assets.entities.Satellite;
+import satellite.tools.utils.Log;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * EphemerisCache answers position and velocity queries for a satellite by cubic Hermite interpolation between nodes
+ * propagated with SGP4 at a coarse, regular spacing. Nodes are aligned to the TLE epoch and propagated the first time
+ * they are needed, so several devices and repeated queries over the same window share them. It is safe to use from
+ * several threads.
+ * <p>
+ * The node spacing is derived from a position error budget (m): the error of a cubic Hermite interpolant is bounded by
+ * h^4 / 384 times the fourth derivative of the trajectory, which for an orbit is of the order of r * w^4, with w the
+ * angular rate. Taking r and w at perigee, and half of the budget to leave room for the perturbations, gives a first
+ * guess h = (192 * budget / (r * w^4))^(1/4). That guess is then checked against direct propagation over the first
+ * orbit and shrunk until the error fits in the budget, which matters for eccentric orbits. A one metre budget on a LEO
+ * orbit leads to nodes about every minute.
+ * <p>
+ * SGP4 velocities are not the exact derivatives of its positions, which sets a floor on the achievable accuracy:
+ * budgets are not taken below MIN_ERROR_BUDGET, and velocity errors follow SGP4's own inconsistency whatever the budget
+ * (about 0.03 m/s for near circular orbits, 0.3 m/s for an eccentricity of 0.05).
+ */
+public class EphemerisCache {
+
+    /**
+     * Default position error budget, in meters
+     */
+    public static final double DEFAULT_ERROR_BUDGET = 1.0;
+
+    /**
+     * Smallest position error budget the interpolation can honor, in meters
+     */
+    public static final double MIN_ERROR_BUDGET = 0.1;
+
+    /**
+     * Upper bound for the node spacing, as a fraction of the orbital period
+     */
+    private static final double MAX_SPACING_FRACTION = 1.0 / 16;
+
+    /**
+     * Share of the error budget given to the Keplerian bound, the rest covers the perturbations
+     */
+    private static final double SAFETY_FACTOR = 0.5;
+
+    /**
+     * Share of the error budget the calibration aims at, and maximum number of times it shrinks the spacing
+     */
+    private static final double CALIBRATION_MARGIN = 0.8;
+    private static final int MAX_CALIBRATIONS = 10;
+
+    private final Sgp4Kernel kernel;
+    private final double errorBudget;
+    private final double spacing;
+    private final Map<Long, double[]> nodes = new ConcurrentHashMap<>();
+
+    public EphemerisCache(TLE tle, double errorBudget) {
+        this(new Sgp4Kernel(tle), errorBudget);
+    }
+
+    public EphemerisCache(Satellite satellite, double errorBudget) {
+        this(new Sgp4Kernel(satellite), errorBudget);
+    }
+
+    private EphemerisCache(Sgp4Kernel kernel, double errorBudget) {
+        if (errorBudget < MIN_ERROR_BUDGET) {
+            Log.warn("Error budget of " + errorBudget + " m below SGP4's interpolation floor, using "
+                    + MIN_ERROR_BUDGET + " m");
+            errorBudget = MIN_ERROR_BUDGET;
+        }
+        this.kernel = kernel;
+        this.errorBudget = errorBudget;
+        this.spacing = calibrateSpacing(kernel, computeSpacing(kernel.getTLE(), errorBudget), errorBudget);
+    }
+
+    /**
+     * First guess of the node spacing (s) for the given TLE's orbit and error budget (m), from the Keplerian bound
+     */
+    public static double computeSpacing(TLE tle, double errorBudget) {
+        double n = tle.getMeanMotion();
+        double e = tle.getE();
+        double a = FastMath.cbrt(TLEConstants.MU / (n * n));
+        double perigeeRadius = a * (1 - e);
+        double perigeeRate = n * (1 + e) * (1 + e) / FastMath.pow(1 - e * e, 1.5);
+        double fourthDerivative = perigeeRadius * FastMath.pow(perigeeRate, 4);
+        double h = FastMath.pow(384 * SAFETY_FACTOR * errorBudget / fourthDerivative, 0.25);
+        return FastMath.min(h, MAX_SPACING_FRACTION * 2 * FastMath.PI / n);
+    }
+
+    /**
+     * Shrinks the spacing until the interpolation error over the first orbit, checked at three points per interval,
+     * stays within a margin of the budget
+     */
+    private static double calibrateSpacing(Sgp4Kernel kernel, double spacing, double errorBudget) {
+
+        double period = 2 * FastMath.PI / kernel.getTLE().getMeanMotion();
+        double target = CALIBRATION_MARGIN * errorBudget;
+        double[] n0 = new double[6];
+        double[] n1 = new double[6];
+        double[] expected = new double[3];
+        double[] position = new double[3];
+
+        for (int iteration = 0; iteration < MAX_CALIBRATIONS; iteration++) {
+            double maxError = 0;
+            propagateNode(kernel, 0, n0);
+            for (int k = 0; k * spacing < period; k++) {
+                propagateNode(kernel, (k + 1) * spacing, n1);
+                for (double x = 0.25; x < 1; x += 0.25) {
+                    hermite(n0, n1, x, spacing, position, null, 0);
+                    kernel.propagateSeconds((k + x) * spacing, expected, null, 0);
+                    maxError = FastMath.max(maxError, FastMath.sqrt(square(position[0] - expected[0])
+                            + square(position[1] - expected[1]) + square(position[2] - expected[2])));
+                }
+                System.arraycopy(n1, 0, n0, 0, 6);
+            }
+            if (maxError <= target) {
+                break;
+            }
+            spacing *= FastMath.max(0.5, 0.95 * FastMath.pow(target / maxError, 0.25));
+        }
+        return spacing;
+
+    }
+
+    private static double square(double x) {
+        return x * x;
+    }
+
+    /**
+     * Propagates every node needed to interpolate between both dates
+     */
+    public void precompute(AbsoluteDate start, AbsoluteDate end) {
+        long first = (long) FastMath.floor(start.durationFrom(kernel.getEpoch()) / spacing);
+        long last = (long) FastMath.floor(end.durationFrom(kernel.getEpoch()) / spacing) + 1;
+        for (long k = first; k <= last; k++) {
+            getNode(k);
+        }
+    }
+
+    /**
+     * Writes the interpolated TEME position (m) and velocity (m/s) at the given date into the first three cells of each
+     * array
+     */
+    public void interpolate(AbsoluteDate date, double[] position, double[] velocity) {
+        interpolateSeconds(date.durationFrom(kernel.getEpoch()), position, velocity, 0);
+    }
+
+    /**
+     * Writes the interpolated TEME position (m) and velocity (m/s) the given number of seconds after the TLE epoch into
+     * the arrays, starting at the given offset. The velocity array may be null when only positions are needed.
+     */
+    public void interpolateSeconds(double secondsSinceEpoch, double[] position, double[] velocity, int offset) {
+
+        long k = (long) FastMath.floor(secondsSinceEpoch / spacing);
+        hermite(getNode(k), getNode(k + 1), secondsSinceEpoch / spacing - k, spacing, position, velocity, offset);
+
+    }
+
+    /**
+     * Cubic Hermite interpolation at the fraction x of the interval between two nodes (position followed by velocity)
+     * that are h seconds apart
+     */
+    private static void hermite(double[] n0, double[] n1, double x, double h, double[] position, double[] velocity,
+                                int offset) {
+
+        // Cubic Hermite basis and its derivative
+        double x2 = x * x;
+        double x3 = x2 * x;
+        double h00 = 2 * x3 - 3 * x2 + 1;
+        double h10 = x3 - 2 * x2 + x;
+        double h01 = -2 * x3 + 3 * x2;
+        double h11 = x3 - x2;
+        double d00 = (6 * x2 - 6 * x) / h;
+        double d10 = 3 * x2 - 4 * x + 1;
+        double d01 = -d00;
+        double d11 = 3 * x2 - 2 * x;
+
+        for (int j = 0; j < 3; j++) {
+            position[offset + j] = h00 * n0[j] + h10 * h * n0[j + 3] + h01 * n1[j] + h11 * h * n1[j + 3];
+            if (velocity != null) {
+                velocity[offset + j] = d00 * n0[j] + d10 * n0[j + 3] + d01 * n1[j] + d11 * n1[j + 3];
+            }
+        }
+
+    }
+
+    private double[] getNode(long k) {
+        return nodes.computeIfAbsent(k, this::computeNode);
+    }
+
+    private double[] computeNode(long k) {
+        double[] node = new double[6];
+        // Deep-space kernels wrap an Orekit propagator, which can not be used by several threads at once
+        synchronized (kernel) {
+            propagateNode(kernel, k * spacing, node);
+        }
+        return node;
+    }
+
+    private static void propagateNode(Sgp4Kernel kernel, double secondsSinceEpoch, double[] node) {
+        double[] velocity = new double[3];
+        kernel.propagateSeconds(secondsSinceEpoch, node, velocity, 0);
+        System.arraycopy(velocity, 0, node, 3, 3);
+    }
+
+    public TLE getTLE() {
+        return kernel.getTLE();
+    }
+
+    public double getErrorBudget() {
+        return errorBudget;
+    }
+
+    /**
+     * Returns the spacing between nodes, in seconds
+     */
+    public double getSpacing() {
+        return spacing;
+    }
+
+    /**
+     * Returns the number of nodes propagated so far
+     */
+    public int getNodeCount() {
+        return nodes.size();
+    }
+
+    public void clear() {
+        nodes.clear();
+    }
+
+}
@@ -0,0 +1,282 @@
+package satellite.tools.propagation;
+
+import org.hipparchus.util.FastMath;
+import org.orekit.propagation.analytical.tle.TLE;
+import org.orekit.time.AbsoluteDate;
+import satellite.tools.assets.entities.Satellite;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * Sgp4Batch propagates many TLEs to the same instant. The SGP4 initialization constants of every satellite are stored
+ * in primitive columns (one array per constant, structure of arrays), and each call walks them in a tight loop that
+ * writes the TEME positions (m), and optionally velocities (m/s), into flat arrays: satellite k at [3k, 3k + 2].
+ * <p>
+ * The math is the one of Sgp4Kernel, which computes the constants and shares the periodic terms, so results are
+ * identical to it and to Orekit's TLEPropagator. Deep-space satellites are evaluated through their own Sgp4Kernel (that
+ * is, Orekit's SDP4). Satellites whose eccentricity leaves the model's domain get NaN coordinates instead of failing the
+ * whole batch.
+ */
+public class Sgp4Batch {
+
+    /**
+     * Number of satellites per task in parallel propagation
+     */
+    private static final int SATELLITES_PER_TASK = 1024;
+
+    private final int size;
+    private final AbsoluteDate reference;
+    private final List<TLE> tles;
+    private final Sgp4Kernel[] deepSpace;
+    private int deepSpaceCount = 0;
+
+    private final double[] epochOffset;
+    private final double[] e0;
+    private final double[] i0;
+    private final double[] raan0;
+    private final double[] argp0;
+    private final double[] m0;
+    private final double[] bstar;
+    private final double[] a0dp;
+    private final double[] xn0dp;
+    private final double[] cosi0;
+    private final double[] sini0;
+    private final double[] xmdot;
+    private final double[] omgdot;
+    private final double[] xnodot;
+    private final double[] xnodcf;
+    private final double[] t2cof;
+    private final double[] c1;
+    private final double[] c4;
+    private final double[] c5;
+    private final double[] eta;
+    private final boolean[] lessThan220;
+    private final double[] delM0;
+    private final double[] d2;
+    private final double[] d3;
+    private final double[] d4;
+    private final double[] t3cof;
+    private final double[] t4cof;
+    private final double[] t5cof;
+    private final double[] sinM0;
+    private final double[] omgcof;
+    private final double[] xmcof;
+
+    public Sgp4Batch(List<TLE> tles) {
+
+        this.tles = tles;
+        this.size = tles.size();
+        this.reference = size > 0 ? tles.get(0).getDate() : AbsoluteDate.J2000_EPOCH;
+        this.deepSpace = new Sgp4Kernel[size];
+        epochOffset = new double[size];
+        e0 = new double[size];
+        i0 = new double[size];
+        raan0 = new double[size];
+        argp0 = new double[size];
+        m0 = new double[size];
+        bstar = new double[size];
+        a0dp = new double[size];
+        xn0dp = new double[size];
+        cosi0 = new double[size];
+        sini0 = new double[size];
+        xmdot = new double[size];
+        omgdot = new double[size];
+        xnodot = new double[size];
+        xnodcf = new double[size];
+        t2cof = new double[size];
+        c1 = new double[size];
+        c4 = new double[size];
+        c5 = new double[size];
+        eta = new double[size];
+        lessThan220 = new boolean[size];
+        delM0 = new double[size];
+        d2 = new double[size];
+        d3 = new double[size];
+        d4 = new double[size];
+        t3cof = new double[size];
+        t4cof = new double[size];
+        t5cof = new double[size];
+        sinM0 = new double[size];
+        omgcof = new double[size];
+        xmcof = new double[size];
+
+        for (int k = 0; k < size; k++) {
+            var kernel = new Sgp4Kernel(tles.get(k));
+            epochOffset[k] = kernel.getEpoch().durationFrom(reference);
+            if (kernel.isDeepSpace()) {
+                deepSpace[k] = kernel;
+                deepSpaceCount++;
+                continue;
+            }
+            e0[k] = kernel.e0;
+            i0[k] = kernel.i0;
+            raan0[k] = kernel.raan0;
+            argp0[k] = kernel.argp0;
+            m0[k] = kernel.m0;
+            bstar[k] = kernel.bstar;
+            a0dp[k] = kernel.a0dp;
+            xn0dp[k] = kernel.xn0dp;
+            cosi0[k] = kernel.cosi0;
+            sini0[k] = kernel.sini0;
+            xmdot[k] = kernel.xmdot;
+            omgdot[k] = kernel.omgdot;
+            xnodot[k] = kernel.xnodot;
+            xnodcf[k] = kernel.xnodcf;
+            t2cof[k] = kernel.t2cof;
+            c1[k] = kernel.c1;
+            c4[k] = kernel.c4;
+            c5[k] = kernel.c5;
+            eta[k] = kernel.eta;
+            lessThan220[k] = kernel.lessThan220;
+            delM0[k] = kernel.delM0;
+            d2[k] = kernel.d2;
+            d3[k] = kernel.d3;
+            d4[k] = kernel.d4;
+            t3cof[k] = kernel.t3cof;
+            t4cof[k] = kernel.t4cof;
+            t5cof[k] = kernel.t5cof;
+            sinM0[k] = kernel.sinM0;
+            omgcof[k] = kernel.omgcof;
+            xmcof[k] = kernel.xmcof;
+        }
+
+    }
+
+    /**
+     * Builds a batch from the TLEs of a list of Satellite objects, in the same order
+     */
+    public static Sgp4Batch fromSatellites(List<Satellite> satellites) {
+        List<TLE> tles = new ArrayList<>(satellites.size());
+        for (Satellite satellite : satellites) {
+            tles.add(new Sgp4Kernel(satellite).getTLE());
+        }
+        return new Sgp4Batch(tles);
+    }
+
+    /**
+     * Returns the positions of every satellite at the given date in a new array of 3 * size() values
+     */
+    public double[] propagate(AbsoluteDate date) {
+        double[] positions = new double[3 * size];
+        propagate(date, positions, null);
+        return positions;
+    }
+
+    /**
+     * Writes the positions, and the velocities unless the array is null, of every satellite at the given date
+     */
+    public void propagate(AbsoluteDate date, double[] positions, double[] velocities) {
+        propagateRange(date.durationFrom(reference), 0, size, positions, velocities);
+    }
+
+    /**
+     * Same as propagate(), with the satellites split in ranges computed in the common ForkJoinPool. Deep-space
+     * satellites are evaluated sequentially beforehand, as their Orekit propagators can not be shared between threads.
+     */
+    public void propagateParallel(AbsoluteDate date, double[] positions, double[] velocities) {
+        double dt = date.durationFrom(reference);
+        if (deepSpaceCount > 0) {
+            for (int k = 0; k < size; k++) {
+                if (deepSpace[k] != null) {
+                    deepSpace[k].propagateSeconds(dt - epochOffset[k], positions, velocities, 3 * k);
+                }
+            }
+        }
+        int tasks = (size + SATELLITES_PER_TASK - 1) / SATELLITES_PER_TASK;
+        IntStream.range(0, tasks).parallel().forEach(t -> propagateNearEarth(dt, t * SATELLITES_PER_TASK,
+                Math.min(size, (t + 1) * SATELLITES_PER_TASK), positions, velocities));
+    }
+
+    private void propagateRange(double dt, int from, int to, double[] positions, double[] velocities) {
+        if (deepSpaceCount > 0) {
+            for (int k = from; k < to; k++) {
+                if (deepSpace[k] != null) {
+                    deepSpace[k].propagateSeconds(dt - epochOffset[k], positions, velocities, 3 * k);
+                }
+            }
+        }
+        propagateNearEarth(dt, from, to, positions, velocities);
+    }
+
+    /**
+     * Secular terms of SGP4 over the columns, followed by the periodic terms shared with Sgp4Kernel
+     */
+    private void propagateNearEarth(double dt, int from, int to, double[] positions, double[] velocities) {
+
+        for (int k = from; k < to; k++) {
+
+            if (deepSpace[k] != null) {
+                continue;
+            }
+
+            double tSince = (dt - epochOffset[k]) / 60.0;
+            double xmdf = m0[k] + xmdot[k] * tSince;
+            double omgadf = argp0[k] + omgdot[k] * tSince;
+            double xn0ddf = raan0[k] + xnodot[k] * tSince;
+            double omega = omgadf;
+            double xmp = xmdf;
+            double tsq = tSince * tSince;
+            double xnode = xn0ddf + xnodcf[k] * tsq;
+            double tempa = 1 - c1[k] * tSince;
+            double tempe = bstar[k] * c4[k] * tSince;
+            double templ = t2cof[k] * tsq;
+
+            if (!lessThan220[k]) {
+                double delomg = omgcof[k] * tSince;
+                double delm = 1. + eta[k] * FastMath.cos(xmdf);
+                delm = xmcof[k] * (delm * delm * delm - delM0[k]);
+                double temp = delomg + delm;
+                xmp = xmdf + temp;
+                omega = omgadf - temp;
+                double tcube = tsq * tSince;
+                double tfour = tSince * tcube;
+                tempa = tempa - d2[k] * tsq - d3[k] * tcube - d4[k] * tfour;
+                tempe = tempe + bstar[k] * c5[k] * (FastMath.sin(xmp) - sinM0[k]);
+                templ = templ + t3cof[k] * tcube + tfour * (t4cof[k] + tSince * t5cof[k]);
+            }
+
+            double a = a0dp[k] * tempa * tempa;
+            double e = FastMath.max(e0[k] - tempe, 1e-6);
+            double xl = xmp + omega + xnode + xn0dp[k] * templ;
+
+            if (e > 1 - 1e-6) {
+                setNaN(positions, velocities, 3 * k);
+                continue;
+            }
+            Sgp4Kernel.computePV(a, e, i0[k], omega, xnode, xl, sini0[k], cosi0[k], positions, velocities, 3 * k);
+
+        }
+
+    }
+
+    private static void setNaN(double[] positions, double[] velocities, int offset) {
+        for (int j = offset; j < offset + 3; j++) {
+            positions[j] = Double.NaN;
+            if (velocities != null) {
+                velocities[j] = Double.NaN;
+            }
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public List<TLE> getTLEs() {
+        return tles;
+    }
+
+    /**
+     * Returns true if the satellite at the given position is evaluated with Orekit's SDP4
+     */
+    public boolean isDeepSpace(int k) {
+        return deepSpace[k] != null;
+    }
+
+    public int getDeepSpaceCount() {
+        return deepSpaceCount;
+    }
+
+}
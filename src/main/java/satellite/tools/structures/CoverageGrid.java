@@ -0,0 +1,132 @@
+package satellite.tools.structures;
+
+import org.orekit.utils.Constants;
+
+/**
+ * CoverageGrid is a regular latitude / longitude grid of ground points on the WGS84 ellipsoid, used by CoverageEngine.
+ * Cells are numbered row by row, from the southernmost row and from -180 degrees of longitude, and each cell is
+ * represented by its center. The Earth-fixed position (m) and local zenith of every center are precomputed in flat
+ * arrays, cell c at [3c, 3c + 2].
+ */
+public class CoverageGrid {
+
+    private final double resolution;
+    private final double minLatitude;
+    private final double maxLatitude;
+    private final int rows;
+    private final int columns;
+    private final double[] positions;
+    private final double[] zenith;
+
+    /**
+     * Builds a grid with the given resolution between two latitudes, all in degrees
+     */
+    public CoverageGrid(double resolution, double minLatitude, double maxLatitude) {
+
+        if (resolution <= 0 || minLatitude < -90 || maxLatitude > 90 || minLatitude >= maxLatitude) {
+            throw new IllegalArgumentException("Invalid grid: resolution " + resolution + ", latitudes [" + minLatitude
+                    + ", " + maxLatitude + "]");
+        }
+        this.resolution = resolution;
+        this.minLatitude = minLatitude;
+        this.maxLatitude = maxLatitude;
+        this.rows = Math.max(1, (int) Math.round((maxLatitude - minLatitude) / resolution));
+        this.columns = Math.max(1, (int) Math.round(360 / resolution));
+        this.positions = new double[3 * size()];
+        this.zenith = new double[3 * size()];
+
+        double a = Constants.WGS84_EARTH_EQUATORIAL_RADIUS;
+        double e2 = Constants.WGS84_EARTH_FLATTENING * (2 - Constants.WGS84_EARTH_FLATTENING);
+        for (int row = 0; row < rows; row++) {
+            double lat = Math.toRadians(getRowLatitude(row));
+            double sinLat = Math.sin(lat);
+            double cosLat = Math.cos(lat);
+            double n = a / Math.sqrt(1 - e2 * sinLat * sinLat);
+            for (int column = 0; column < columns; column++) {
+                double lon = Math.toRadians(getColumnLongitude(column));
+                int c = 3 * (row * columns + column);
+                zenith[c] = cosLat * Math.cos(lon);
+                zenith[c + 1] = cosLat * Math.sin(lon);
+                zenith[c + 2] = sinLat;
+                positions[c] = n * zenith[c];
+                positions[c + 1] = n * zenith[c + 1];
+                positions[c + 2] = (1 - e2) * n * sinLat;
+            }
+        }
+
+    }
+
+    /**
+     * Returns the latitude of the centers of the given row, in degrees
+     */
+    public double getRowLatitude(int row) {
+        return minLatitude + (row + 0.5) * (maxLatitude - minLatitude) / rows;
+    }
+
+    /**
+     * Returns the longitude of the centers of the given column, in degrees
+     */
+    public double getColumnLongitude(int column) {
+        return -180 + (column + 0.5) * 360.0 / columns;
+    }
+
+    public double getLatitude(int cell) {
+        return getRowLatitude(cell / columns);
+    }
+
+    public double getLongitude(int cell) {
+        return getColumnLongitude(cell % columns);
+    }
+
+    /**
+     * Returns the cell that contains the given point (degrees), or -1 if its latitude is outside the grid
+     */
+    public int getCell(double latitude, double longitude) {
+        if (latitude < minLatitude || latitude > maxLatitude) {
+            return -1;
+        }
+        int row = Math.min(rows - 1, (int) ((latitude - minLatitude) / (maxLatitude - minLatitude) * rows));
+        double wrapped = longitude - 360 * Math.floor((longitude + 180) / 360);
+        int column = Math.min(columns - 1, (int) ((wrapped + 180) / 360 * columns));
+        return row * columns + column;
+    }
+
+    public int size() {
+        return rows * columns;
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    public int getColumns() {
+        return columns;
+    }
+
+    public double getResolution() {
+        return resolution;
+    }
+
+    public double getMinLatitude() {
+        return minLatitude;
+    }
+
+    public double getMaxLatitude() {
+        return maxLatitude;
+    }
+
+    /**
+     * Returns the Earth-fixed positions (m) of the cell centers, cell c at [3c, 3c + 2]
+     */
+    public double[] getPositions() {
+        return positions;
+    }
+
+    /**
+     * Returns the local zenith (unit vectors normal to the ellipsoid) of the cell centers, cell c at [3c, 3c + 2]
+     */
+    public double[] getZenith() {
+        return zenith;
+    }
+
+}
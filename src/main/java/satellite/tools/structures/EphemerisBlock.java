@@ -0,0 +1,245 @@
+package satellite.tools.structures;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * This Class stores a series of Position, Velocity, Range and Doppler samples between two assets in columns of
+ * primitives: one long[] for the times and one double[] per quantity. It holds the same values as a List of Ephemeris
+ * objects in a fraction of the memory, and numeric loops over a single column stay cache-friendly.
+ * <p>
+ * Column getters return the backing arrays, which may be longer than the block: only the first size() values are
+ * samples.
+ */
+public class EphemerisBlock {
+
+    private int indexFrom;
+    private int indexTo;
+    private int size = 0;
+    private long[] time;
+    private double[] posX;
+    private double[] posY;
+    private double[] posZ;
+    private double[] velX;
+    private double[] velY;
+    private double[] velZ;
+    private double[] range;
+    private double[] dopplerShift;
+
+    public EphemerisBlock(int capacity) {
+        time = new long[capacity];
+        posX = new double[capacity];
+        posY = new double[capacity];
+        posZ = new double[capacity];
+        velX = new double[capacity];
+        velY = new double[capacity];
+        velZ = new double[capacity];
+        range = new double[capacity];
+        dopplerShift = new double[capacity];
+    }
+
+    public EphemerisBlock(int indexFrom, int indexTo, int capacity) {
+        this(capacity);
+        this.indexFrom = indexFrom;
+        this.indexTo = indexTo;
+    }
+
+    /**
+     * Returns a block that already holds the given number of (zeroed) samples, to be filled with set(). Distinct
+     * positions may be set from different threads.
+     */
+    public static EphemerisBlock ofSize(int indexFrom, int indexTo, int size) {
+        var block = new EphemerisBlock(indexFrom, indexTo, size);
+        block.size = size;
+        return block;
+    }
+
+    /**
+     * Appends a sample at the end of the block, growing the columns if needed
+     */
+    public void add(long time, double posX, double posY, double posZ, double velX, double velY, double velZ,
+                    double range, double dopplerShift) {
+        if (size == this.time.length) {
+            resize(Math.max(16, size + (size >> 1)));
+        }
+        int i = size++;
+        this.time[i] = time;
+        this.posX[i] = posX;
+        this.posY[i] = posY;
+        this.posZ[i] = posZ;
+        this.velX[i] = velX;
+        this.velY[i] = velY;
+        this.velZ[i] = velZ;
+        this.range[i] = range;
+        this.dopplerShift[i] = dopplerShift;
+    }
+
+    /**
+     * Replaces the sample at the given position
+     */
+    public void set(int i, long time, double posX, double posY, double posZ, double velX, double velY, double velZ,
+                    double range, double dopplerShift) {
+        if (i >= size) {
+            throw new IndexOutOfBoundsException("Index " + i + " out of bounds for size " + size);
+        }
+        this.time[i] = time;
+        this.posX[i] = posX;
+        this.posY[i] = posY;
+        this.posZ[i] = posZ;
+        this.velX[i] = velX;
+        this.velY[i] = velY;
+        this.velZ[i] = velZ;
+        this.range[i] = range;
+        this.dopplerShift[i] = dopplerShift;
+    }
+
+    /**
+     * Shrinks the columns to the number of samples in the block
+     */
+    public void trimToSize() {
+        if (size < time.length) {
+            resize(size);
+        }
+    }
+
+    private void resize(int capacity) {
+        time = Arrays.copyOf(time, capacity);
+        posX = Arrays.copyOf(posX, capacity);
+        posY = Arrays.copyOf(posY, capacity);
+        posZ = Arrays.copyOf(posZ, capacity);
+        velX = Arrays.copyOf(velX, capacity);
+        velY = Arrays.copyOf(velY, capacity);
+        velZ = Arrays.copyOf(velZ, capacity);
+        range = Arrays.copyOf(range, capacity);
+        dopplerShift = Arrays.copyOf(dopplerShift, capacity);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void clear() {
+        size = 0;
+    }
+
+    public void setAssetsInContact(int indexFrom, int indexTo) {
+        this.indexFrom = indexFrom;
+        this.indexTo = indexTo;
+    }
+
+    public int getIndexFrom() {
+        return indexFrom;
+    }
+
+    public int getIndexTo() {
+        return indexTo;
+    }
+
+    public long getTime(int i) {
+        return time[i];
+    }
+
+    public double getPosX(int i) {
+        return posX[i];
+    }
+
+    public double getPosY(int i) {
+        return posY[i];
+    }
+
+    public double getPosZ(int i) {
+        return posZ[i];
+    }
+
+    public double getVelX(int i) {
+        return velX[i];
+    }
+
+    public double getVelY(int i) {
+        return velY[i];
+    }
+
+    public double getVelZ(int i) {
+        return velZ[i];
+    }
+
+    public double getRange(int i) {
+        return range[i];
+    }
+
+    public double getDopplerShift(int i) {
+        return dopplerShift[i];
+    }
+
+    public long[] getTimes() {
+        return time;
+    }
+
+    public double[] getPosX() {
+        return posX;
+    }
+
+    public double[] getPosY() {
+        return posY;
+    }
+
+    public double[] getPosZ() {
+        return posZ;
+    }
+
+    public double[] getVelX() {
+        return velX;
+    }
+
+    public double[] getVelY() {
+        return velY;
+    }
+
+    public double[] getVelZ() {
+        return velZ;
+    }
+
+    public double[] getRanges() {
+        return range;
+    }
+
+    public double[] getDopplerShifts() {
+        return dopplerShift;
+    }
+
+    /**
+     * Returns the sample at the given position as a new Ephemeris object
+     */
+    public Ephemeris getEphemeris(int i) {
+        if (i >= size) {
+            throw new IndexOutOfBoundsException("Index " + i + " out of bounds for size " + size);
+        }
+        return new Ephemeris(time[i], indexFrom, indexTo, posX[i], posY[i], posZ[i], velX[i], velY[i], velZ[i],
+                range[i], dopplerShift[i]);
+    }
+
+    /**
+     * Returns a read-only List view of the block. Ephemeris objects are created on access and are not backed by the
+     * block, so changes on them are not written back.
+     */
+    public List<Ephemeris> asList() {
+        return new EphemerisView();
+    }
+
+    private class EphemerisView extends AbstractList<Ephemeris> implements RandomAccess {
+
+        @Override
+        public Ephemeris get(int index) {
+            return getEphemeris(index);
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+    }
+
+}
@@ -0,0 +1,443 @@
+package satellite.tools.structures;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.function.Consumer;
+
+/**
+ * EphemerisStore reads the samples of an ephemeris between two assets from a binary file mapped in memory. Opening a
+ * store only reads its header, samples are loaded by the operating system when they are first accessed and the pages are
+ * shared with every other process that maps the same file.
+ * <p>
+ * The file holds a fixed header followed by one column per quantity, like EphemerisBlock: the times (long), then the
+ * positions, velocities, range and Doppler (double), all little-endian. Columns are laid out with a fixed stride, the
+ * capacity the file was written with, so that they can be written as the samples come (see Writer). Samples are on a
+ * regular grid, so the sample at a given time is found by arithmetic from the epoch and the step. Only the last sample
+ * may fall short of the grid, as the simulation time grids end at the end date.
+ * <p>
+ * Files larger than 2 GB are mapped in several segments. A store is safe to read from several threads.
+ */
+public class EphemerisStore implements Closeable {
+
+    private static final int MAGIC = 0x45504853;
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 64;
+    private static final int COLUMNS = 9;
+
+    /**
+     * Size of the mapped segments, a multiple of 8 so that no value straddles two segments
+     */
+    private static final int SEGMENT_SHIFT = 30;
+    private static final long SEGMENT_SIZE = 1L << SEGMENT_SHIFT;
+    private static final long SEGMENT_MASK = SEGMENT_SIZE - 1;
+
+    /**
+     * Size of the buffers used to write columns, in bytes, split between the columns
+     */
+    private static final int WRITE_BUFFER_SIZE = 1 << 16;
+
+    private final FileChannel channel;
+    private final MappedByteBuffer[] segments;
+    private final int indexFrom;
+    private final int indexTo;
+    private final long epoch;
+    private final long step;
+    private final long size;
+    private final long stride;
+
+    private EphemerisStore(FileChannel channel, MappedByteBuffer[] segments, int indexFrom, int indexTo, long epoch,
+                           long step, long size, long stride) {
+        this.channel = channel;
+        this.segments = segments;
+        this.indexFrom = indexFrom;
+        this.indexTo = indexTo;
+        this.epoch = epoch;
+        this.step = step;
+        this.size = size;
+        this.stride = stride;
+    }
+
+    /**
+     * Writes the samples of a block to a file, replacing it if it exists. The samples must be evenly spaced in time,
+     * except for the last one which may come earlier than the grid. A last sample repeating the time of the previous
+     * one, as the blocks of Simulation have when the window is a whole number of steps, is left out.
+     */
+    public static void write(Path path, EphemerisBlock block) throws IOException {
+        int size = block.size();
+        if (size > 1 && block.getTime(size - 1) == block.getTime(size - 2)) {
+            size--;
+        }
+        try (Writer writer = newWriter(path, block.getIndexFrom(), block.getIndexTo(), size)) {
+            writer.add(block);
+        } catch (IllegalArgumentException e) {
+            Files.deleteIfExists(path);
+            throw e;
+        }
+    }
+
+    /**
+     * Returns a writer that streams samples to a file, replacing it if it exists, for ephemerides too large to be held
+     * in memory. The capacity is the largest number of samples the file will take (see Simulation.countGridPoints()):
+     * it sets the stride of the columns, and any capacity left unused stays in the file.
+     */
+    public static Writer newWriter(Path path, int indexFrom, int indexTo, long capacity) throws IOException {
+        if (capacity < 0 || capacity > (Long.MAX_VALUE - HEADER_SIZE) / (COLUMNS * 8)) {
+            throw new IllegalArgumentException("Invalid capacity: " + capacity);
+        }
+        return new Writer(FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING), indexFrom, indexTo, capacity);
+    }
+
+    /**
+     * Opens a file written by write() or a Writer and maps it in memory
+     */
+    public static EphemerisStore open(Path path) throws IOException {
+
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            long fileSize = channel.size();
+            if (fileSize < HEADER_SIZE) {
+                throw new IOException("Not an ephemeris store: " + path);
+            }
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            while (header.hasRemaining()) {
+                if (channel.read(header, header.position()) < 0) {
+                    throw new IOException("Not an ephemeris store: " + path);
+                }
+            }
+            header.flip();
+            if (header.getInt() != MAGIC) {
+                throw new IOException("Not an ephemeris store: " + path);
+            }
+            int version = header.getInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported ephemeris store version: " + version);
+            }
+            int indexFrom = header.getInt();
+            int indexTo = header.getInt();
+            long epoch = header.getLong();
+            long step = header.getLong();
+            long size = header.getLong();
+            long stride = header.getLong();
+            if (size < 0 || stride < size || fileSize < HEADER_SIZE + 8 * ((COLUMNS - 1) * stride + size)) {
+                throw new IOException("Truncated ephemeris store: " + path);
+            }
+
+            int count = (int) ((fileSize + SEGMENT_SIZE - 1) >>> SEGMENT_SHIFT);
+            MappedByteBuffer[] segments = new MappedByteBuffer[count];
+            for (int s = 0; s < count; s++) {
+                long position = (long) s << SEGMENT_SHIFT;
+                segments[s] = channel.map(FileChannel.MapMode.READ_ONLY, position,
+                        Math.min(SEGMENT_SIZE, fileSize - position));
+                segments[s].order(ByteOrder.LITTLE_ENDIAN);
+            }
+            return new EphemerisStore(channel, segments, indexFrom, indexTo, epoch, step, size, stride);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+
+    }
+
+    /**
+     * Returns the position of the last sample at or before the given unix time (ms), or -1 if the time is out of the
+     * span of the store
+     */
+    public long indexOf(long time) {
+        if (size == 0 || time < epoch) {
+            return -1;
+        }
+        long last = getTime(size - 1);
+        if (time >= last) {
+            return time == last ? size - 1 : -1;
+        }
+        return Math.min(size - 2, (time - epoch) / step);
+    }
+
+    /**
+     * Returns the last sample at or before the given unix time (ms), or null if the time is out of the span of the
+     * store
+     */
+    public Ephemeris getEphemerisAt(long time) {
+        long i = indexOf(time);
+        return i < 0 ? null : getEphemeris(i);
+    }
+
+    /**
+     * Returns the sample at the given position as a new Ephemeris object
+     */
+    public Ephemeris getEphemeris(long i) {
+        checkIndex(i);
+        return new Ephemeris(getTime(i), indexFrom, indexTo, getPosX(i), getPosY(i), getPosZ(i), getVelX(i),
+                getVelY(i), getVelZ(i), getRange(i), getDopplerShift(i));
+    }
+
+    /**
+     * Copies the samples between two positions (the last one excluded) into a new EphemerisBlock
+     */
+    public EphemerisBlock toBlock(long from, long to) {
+        if (from < 0 || to > size || from > to) {
+            throw new IndexOutOfBoundsException("Range [" + from + ", " + to + ") out of bounds for size " + size);
+        }
+        var block = new EphemerisBlock(indexFrom, indexTo, (int) (to - from));
+        for (long i = from; i < to; i++) {
+            block.add(getTime(i), getPosX(i), getPosY(i), getPosZ(i), getVelX(i), getVelY(i), getVelZ(i), getRange(i),
+                    getDopplerShift(i));
+        }
+        return block;
+    }
+
+    private void checkIndex(long i) {
+        if (i < 0 || i >= size) {
+            throw new IndexOutOfBoundsException("Index " + i + " out of bounds for size " + size);
+        }
+    }
+
+    private long offset(int column, long i) {
+        return HEADER_SIZE + 8 * (column * stride + i);
+    }
+
+    private long readLong(long offset) {
+        return segments[(int) (offset >>> SEGMENT_SHIFT)].getLong((int) (offset & SEGMENT_MASK));
+    }
+
+    private double readDouble(long offset) {
+        return segments[(int) (offset >>> SEGMENT_SHIFT)].getDouble((int) (offset & SEGMENT_MASK));
+    }
+
+    public long getTime(long i) {
+        return readLong(offset(0, i));
+    }
+
+    public double getPosX(long i) {
+        return readDouble(offset(1, i));
+    }
+
+    public double getPosY(long i) {
+        return readDouble(offset(2, i));
+    }
+
+    public double getPosZ(long i) {
+        return readDouble(offset(3, i));
+    }
+
+    public double getVelX(long i) {
+        return readDouble(offset(4, i));
+    }
+
+    public double getVelY(long i) {
+        return readDouble(offset(5, i));
+    }
+
+    public double getVelZ(long i) {
+        return readDouble(offset(6, i));
+    }
+
+    public double getRange(long i) {
+        return readDouble(offset(7, i));
+    }
+
+    public double getDopplerShift(long i) {
+        return readDouble(offset(8, i));
+    }
+
+    public long size() {
+        return size;
+    }
+
+    public int getIndexFrom() {
+        return indexFrom;
+    }
+
+    public int getIndexTo() {
+        return indexTo;
+    }
+
+    /**
+     * Returns the unix time (ms) of the first sample
+     */
+    public long getEpoch() {
+        return epoch;
+    }
+
+    /**
+     * Returns the spacing between samples, in milliseconds
+     */
+    public long getStep() {
+        return step;
+    }
+
+    /**
+     * Closes the file. The mapping itself is released once the store is no longer referenced.
+     */
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * Writer streams evenly spaced samples to a store file: each column is buffered and written at its place in the
+     * file as it fills, and the header is written on close(), so that memory stays constant whatever the number of
+     * samples. It can be given as the sink of Simulation.computePVD(). A sample repeating the time of the previous one
+     * is left out if it is the last one, as in write().
+     * <p>
+     * A writer is not thread-safe.
+     */
+    public static class Writer implements Consumer<Ephemeris>, Closeable {
+
+        private final FileChannel out;
+        private final int indexFrom;
+        private final int indexTo;
+        private final long capacity;
+        private final ByteBuffer[] buffers = new ByteBuffer[COLUMNS];
+        private final long[] written = new long[COLUMNS];
+        private long size = 0;
+        private long epoch = 0;
+        private long step = 0;
+        private long lastTime = 0;
+        private boolean repeated = false;
+        private boolean offGrid = false;
+        private boolean closed = false;
+
+        private Writer(FileChannel out, int indexFrom, int indexTo, long capacity) {
+            this.out = out;
+            this.indexFrom = indexFrom;
+            this.indexTo = indexTo;
+            this.capacity = capacity;
+            for (int c = 0; c < COLUMNS; c++) {
+                buffers[c] = ByteBuffer.allocateDirect(WRITE_BUFFER_SIZE / COLUMNS / 8 * 8)
+                        .order(ByteOrder.LITTLE_ENDIAN);
+            }
+        }
+
+        /**
+         * Adds a sample after the previous ones
+         */
+        public void add(long time, double posX, double posY, double posZ, double velX, double velY, double velZ,
+                        double range, double dopplerShift) throws IOException {
+
+            if (size > 0 && time == lastTime) {
+                repeated = true;
+                return;
+            }
+            if (size == capacity) {
+                throw new IllegalArgumentException("More samples than the capacity of " + capacity);
+            }
+            long expected = epoch + size * step;
+            if (size == 0) {
+                epoch = time;
+            } else if (size == 1 && time > epoch && !repeated) {
+                step = time - epoch;
+            } else if (repeated || offGrid || time <= lastTime || time > expected) {
+                // Only the last sample may come earlier than the grid, or repeat the previous one
+                throw new IllegalArgumentException("Samples are not evenly spaced at position " + size + ": " + time
+                        + " instead of " + expected);
+            } else if (time < expected) {
+                offGrid = true;
+            }
+
+            if (!buffers[0].hasRemaining()) {
+                flush();
+            }
+            buffers[0].putLong(time);
+            buffers[1].putDouble(posX);
+            buffers[2].putDouble(posY);
+            buffers[3].putDouble(posZ);
+            buffers[4].putDouble(velX);
+            buffers[5].putDouble(velY);
+            buffers[6].putDouble(velZ);
+            buffers[7].putDouble(range);
+            buffers[8].putDouble(dopplerShift);
+            lastTime = time;
+            size++;
+
+        }
+
+        /**
+         * Adds every sample of the block after the previous ones. A last sample repeating the time of the previous one
+         * is left out, so that the blocks of consecutive windows of Simulation can be added one after the other.
+         */
+        public void add(EphemerisBlock block) throws IOException {
+            int n = block.size();
+            if (n > 1 && block.getTime(n - 1) == block.getTime(n - 2)) {
+                n--;
+            }
+            for (int i = 0; i < n; i++) {
+                add(block.getTime(i), block.getPosX(i), block.getPosY(i), block.getPosZ(i), block.getVelX(i),
+                        block.getVelY(i), block.getVelZ(i), block.getRange(i), block.getDopplerShift(i));
+            }
+        }
+
+        /**
+         * Adds the sample, wrapping write errors in an UncheckedIOException
+         */
+        @Override
+        public void accept(Ephemeris ephemeris) {
+            try {
+                add(ephemeris.getTime(), ephemeris.getPosX(), ephemeris.getPosY(), ephemeris.getPosZ(),
+                        ephemeris.getVelX(), ephemeris.getVelY(), ephemeris.getVelZ(), ephemeris.getRange(),
+                        ephemeris.getDopplerShift());
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        /**
+         * Returns the number of samples written so far
+         */
+        public long size() {
+            return size;
+        }
+
+        private void flush() throws IOException {
+            for (int c = 0; c < COLUMNS; c++) {
+                ByteBuffer buffer = buffers[c];
+                buffer.flip();
+                long position = HEADER_SIZE + 8 * (c * capacity + written[c]);
+                written[c] += buffer.remaining() / 8;
+                while (buffer.hasRemaining()) {
+                    position += out.write(buffer, position);
+                }
+                buffer.clear();
+            }
+        }
+
+        /**
+         * Writes the samples left in the buffers and the header, then closes the file
+         */
+        @Override
+        public void close() throws IOException {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            try (out) {
+                flush();
+                ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+                header.putInt(MAGIC);
+                header.putInt(VERSION);
+                header.putInt(indexFrom);
+                header.putInt(indexTo);
+                header.putLong(epoch);
+                header.putLong(step);
+                header.putLong(size);
+                header.putLong(capacity);
+                header.clear();
+                long position = 0;
+                while (header.hasRemaining()) {
+                    position += out.write(header, position);
+                }
+            }
+        }
+
+    }
+
+}
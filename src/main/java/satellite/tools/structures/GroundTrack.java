@@ -0,0 +1,86 @@
+package satellite.tools.structures;
+
+/**
+ * This Class stores the ground track of a satellite over a time grid in columns of primitives: the unix times (ms), and
+ * the WGS84 geodetic latitude and longitude (degrees) and height (m) of the satellite at each of them.
+ * <p>
+ * Tracks computed together for a fleet share the same times array.
+ */
+public class GroundTrack {
+
+    private final int satelliteId;
+    private final long[] times;
+    private final double[] latitudes;
+    private final double[] longitudes;
+    private final double[] heights;
+
+    public GroundTrack(int satelliteId, long[] times) {
+        this.satelliteId = satelliteId;
+        this.times = times;
+        this.latitudes = new double[times.length];
+        this.longitudes = new double[times.length];
+        this.heights = new double[times.length];
+    }
+
+    /**
+     * Sets the point at the given position of the time grid
+     */
+    public void set(int i, double latitude, double longitude, double height) {
+        latitudes[i] = latitude;
+        longitudes[i] = longitude;
+        heights[i] = height;
+    }
+
+    public int size() {
+        return times.length;
+    }
+
+    public int getSatelliteId() {
+        return satelliteId;
+    }
+
+    public long getTime(int i) {
+        return times[i];
+    }
+
+    public double getLatitude(int i) {
+        return latitudes[i];
+    }
+
+    public double getLongitude(int i) {
+        return longitudes[i];
+    }
+
+    public double getHeight(int i) {
+        return heights[i];
+    }
+
+    public long[] getTimes() {
+        return times;
+    }
+
+    public double[] getLatitudes() {
+        return latitudes;
+    }
+
+    public double[] getLongitudes() {
+        return longitudes;
+    }
+
+    public double[] getHeights() {
+        return heights;
+    }
+
+    /**
+     * Returns the point at the given position as a new Ephemeris object with its time, geodetic latitude and longitude.
+     * This is not what Simulation.computeSSPAndGetEphemeris() returns: that method takes the TLE output (TEME) as if it
+     * were EME2000 and returns the geocentric latitude of the ground point, which differs from the geodetic latitude
+     * of the tracks by up to about 0.19 degrees.
+     */
+    public Ephemeris getEphemeris(int i) {
+        var ephemeris = new Ephemeris(satelliteId, latitudes[i], longitudes[i]);
+        ephemeris.setTime(times[i]);
+        return ephemeris;
+    }
+
+}
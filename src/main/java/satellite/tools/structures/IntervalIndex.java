@@ -0,0 +1,173 @@
+package satellite.tools.structures;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * IntervalIndex answers "which intervals contain time t" and "which intervals overlap [a, b]" over an immutable set of
+ * intervals in O(log n + k) time, k being the number of results.
+ * <p>
+ * Intervals are sorted by start in flat arrays, which are read as an implicit balanced binary tree: the element at
+ * position i is a node of level l when the l lowest bits of i are ones, and its children are at i +/- 2^(l-1). Each node
+ * also stores the largest end of its subtree, so that queries skip the subtrees that end before the queried time. Apart
+ * from the intervals themselves, the index takes 24 bytes and a reference per interval.
+ * <p>
+ * Interval bounds are inclusive, as contact windows are. Results are returned in increasing start order.
+ */
+public class IntervalIndex {
+
+    /**
+     * Subtrees up to this level are scanned linearly, which is faster than walking them
+     */
+    private static final int LINEAR_SCAN_LEVEL = 3;
+
+    private final Interval[] intervals;
+    private final long[] starts;
+    private final long[] ends;
+    private final long[] maxEnds;
+    private final int maxLevel;
+
+    public IntervalIndex(List<Interval> intervals) {
+
+        this.intervals = intervals.toArray(new Interval[0]);
+        Arrays.sort(this.intervals, Comparator.comparingLong(Interval::getStart));
+        int n = this.intervals.length;
+        starts = new long[n];
+        ends = new long[n];
+        maxEnds = new long[n];
+        for (int i = 0; i < n; i++) {
+            starts[i] = this.intervals[i].getStart();
+            ends[i] = this.intervals[i].getEnd();
+        }
+        maxLevel = buildMaxEnds();
+
+    }
+
+    /**
+     * Fills the largest end of each subtree bottom up, level by level. Nodes whose right subtree is beyond the array use
+     * the largest end of the last complete subtree instead.
+     */
+    private int buildMaxEnds() {
+
+        int n = starts.length;
+        if (n == 0) {
+            return 0;
+        }
+        int lastIndex = 0;
+        long last = 0;
+        for (int i = 0; i < n; i += 2) {
+            lastIndex = i;
+            maxEnds[i] = ends[i];
+            last = ends[i];
+        }
+        int level = 1;
+        for (; 1 << level <= n; level++) {
+            int half = 1 << (level - 1);
+            for (int i = (half << 1) - 1; i < n; i += half << 2) {
+                long left = maxEnds[i - half];
+                long right = i + half < n ? maxEnds[i + half] : last;
+                maxEnds[i] = Math.max(ends[i], Math.max(left, right));
+            }
+            lastIndex = ((lastIndex >> level) & 1) != 0 ? lastIndex - half : lastIndex + half;
+            if (lastIndex < n && maxEnds[lastIndex] > last) {
+                last = maxEnds[lastIndex];
+            }
+        }
+        return level - 1;
+
+    }
+
+    /**
+     * Returns the intervals that contain the given time
+     */
+    public List<Interval> stab(long time) {
+        return overlap(time, time);
+    }
+
+    /**
+     * Returns the intervals that share at least an instant with [from, to]
+     */
+    public List<Interval> overlap(long from, long to) {
+        List<Interval> result = new ArrayList<>();
+        forEachOverlapping(from, to, result::add);
+        return result;
+    }
+
+    /**
+     * Returns the number of intervals that share at least an instant with [from, to]
+     */
+    public int count(long from, long to) {
+        int[] count = new int[1];
+        forEachOverlapping(from, to, interval -> count[0]++);
+        return count[0];
+    }
+
+    /**
+     * Passes every interval that shares at least an instant with [from, to] to the consumer, in increasing start order
+     */
+    public void forEachOverlapping(long from, long to, Consumer<Interval> consumer) {
+
+        int n = starts.length;
+        if (n == 0) {
+            return;
+        }
+
+        // In-order walk of the implicit tree: each entry holds a node, its level and whether its left side is done
+        int[] nodes = new int[2 * (maxLevel + 2)];
+        int[] levels = new int[nodes.length];
+        boolean[] leftDone = new boolean[nodes.length];
+        int top = 0;
+        nodes[0] = (1 << maxLevel) - 1;
+        levels[0] = maxLevel;
+        top++;
+
+        while (top > 0) {
+            top--;
+            int x = nodes[top];
+            int level = levels[top];
+            if (level <= LINEAR_SCAN_LEVEL) {
+                int i0 = x >> level << level;
+                int i1 = Math.min(n, i0 + (1 << (level + 1)) - 1);
+                for (int i = i0; i < i1 && starts[i] <= to; i++) {
+                    if (ends[i] >= from) {
+                        consumer.accept(intervals[i]);
+                    }
+                }
+            } else if (!leftDone[top]) {
+                int left = x - (1 << (level - 1));
+                leftDone[top] = true;
+                top++;
+                if (left >= n || maxEnds[left] >= from) {
+                    nodes[top] = left;
+                    levels[top] = level - 1;
+                    leftDone[top] = false;
+                    top++;
+                }
+            } else if (x < n && starts[x] <= to) {
+                if (ends[x] >= from) {
+                    consumer.accept(intervals[x]);
+                }
+                nodes[top] = x + (1 << (level - 1));
+                levels[top] = level - 1;
+                leftDone[top] = false;
+                top++;
+            }
+        }
+
+    }
+
+    public int size() {
+        return intervals.length;
+    }
+
+    /**
+     * Returns the indexed intervals, sorted by start
+     */
+    public List<Interval> getIntervals() {
+        return List.of(intervals);
+    }
+
+}
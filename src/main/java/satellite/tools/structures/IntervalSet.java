@@ -0,0 +1,328 @@
+package satellite.tools.structures;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * IntervalSet is an immutable set of time intervals (unix times in ms) stored as disjoint, sorted intervals in two
+ * long[] columns. Like Interval, bounds are inclusive and durations are end - start, so intervals that overlap or touch
+ * are merged on construction, and gaps share their bounds with the intervals around them.
+ * <p>
+ * Union, intersection, difference and complement walk both sets once, in linear time, and never box a value, so they
+ * scale to the millions of windows of a device network. Coverage and revisit statistics (the gaps between consecutive
+ * intervals) are computed from the same columns.
+ */
+public class IntervalSet {
+
+    private static final IntervalSet EMPTY = new IntervalSet(new long[0], new long[0], 0);
+
+    private final long[] starts;
+    private final long[] ends;
+    private final int size;
+
+    private IntervalSet(long[] starts, long[] ends, int size) {
+        this.starts = starts;
+        this.ends = ends;
+        this.size = size;
+    }
+
+    public static IntervalSet empty() {
+        return EMPTY;
+    }
+
+    /**
+     * Builds the set covered by the given intervals, in any order and possibly overlapping
+     */
+    public static IntervalSet of(List<Interval> intervals) {
+        int n = intervals.size();
+        long[] starts = new long[n];
+        long[] ends = new long[n];
+        for (int i = 0; i < n; i++) {
+            starts[i] = intervals.get(i).getStart();
+            ends[i] = intervals.get(i).getEnd();
+        }
+        return build(starts, ends);
+    }
+
+    /**
+     * Builds the set covered by the intervals [starts[i], ends[i]], in any order and possibly overlapping. The arrays
+     * are copied, so later changes to them do not affect the set.
+     */
+    public static IntervalSet fromArrays(long[] starts, long[] ends) {
+        if (starts.length != ends.length) {
+            throw new IllegalArgumentException("Got " + starts.length + " starts and " + ends.length + " ends");
+        }
+        return build(Arrays.copyOf(starts, starts.length), Arrays.copyOf(ends, ends.length));
+    }
+
+    /**
+     * Builds the set from columns owned by it, which are sorted and merged in place
+     */
+    private static IntervalSet build(long[] starts, long[] ends) {
+
+        for (int i = 0; i < starts.length; i++) {
+            if (ends[i] < starts[i]) {
+                throw new IllegalArgumentException("Interval ends before it starts: [" + starts[i] + ", " + ends[i]
+                        + "]");
+            }
+        }
+
+        // Whether an instant is covered only depends on how many starts and ends come before it, so pairing the
+        // columns sorted separately covers the same instants as the original intervals
+        Arrays.sort(starts);
+        Arrays.sort(ends);
+        int n = starts.length;
+        int count = 0;
+        for (int i = 0; i < n; i++) {
+            if (count > 0 && starts[i] <= ends[count - 1]) {
+                ends[count - 1] = Math.max(ends[count - 1], ends[i]);
+            } else {
+                starts[count] = starts[i];
+                ends[count] = ends[i];
+                count++;
+            }
+        }
+        return new IntervalSet(starts, ends, count);
+
+    }
+
+    /**
+     * Returns the intervals covered by this set or by the other one
+     */
+    public IntervalSet union(IntervalSet other) {
+
+        long[] s = new long[size + other.size];
+        long[] e = new long[size + other.size];
+        int count = 0;
+        int i = 0;
+        int j = 0;
+        while (i < size || j < other.size) {
+            long start;
+            long end;
+            if (j >= other.size || (i < size && starts[i] <= other.starts[j])) {
+                start = starts[i];
+                end = ends[i++];
+            } else {
+                start = other.starts[j];
+                end = other.ends[j++];
+            }
+            if (count > 0 && start <= e[count - 1]) {
+                e[count - 1] = Math.max(e[count - 1], end);
+            } else {
+                s[count] = start;
+                e[count] = end;
+                count++;
+            }
+        }
+        return new IntervalSet(s, e, count);
+
+    }
+
+    /**
+     * Returns the intervals covered by both this set and the other one
+     */
+    public IntervalSet intersect(IntervalSet other) {
+
+        long[] s = new long[size + other.size];
+        long[] e = new long[size + other.size];
+        int count = 0;
+        int i = 0;
+        int j = 0;
+        while (i < size && j < other.size) {
+            long start = Math.max(starts[i], other.starts[j]);
+            long end = Math.min(ends[i], other.ends[j]);
+            if (start <= end) {
+                s[count] = start;
+                e[count] = end;
+                count++;
+            }
+            if (ends[i] < other.ends[j]) {
+                i++;
+            } else {
+                j++;
+            }
+        }
+        return new IntervalSet(s, e, count);
+
+    }
+
+    /**
+     * Returns the gaps of this set within [from, to]. Zero length intervals of the set split the gaps around them.
+     */
+    public IntervalSet complement(long from, long to) {
+
+        long[] s = new long[size + 1];
+        long[] e = new long[size + 1];
+        int count = 0;
+        long cursor = from;
+        for (int i = 0; i < size && starts[i] <= to; i++) {
+            if (ends[i] < from) {
+                continue;
+            }
+            if (starts[i] > cursor) {
+                s[count] = cursor;
+                e[count] = starts[i];
+                count++;
+            }
+            cursor = Math.max(cursor, ends[i]);
+        }
+        if (cursor < to) {
+            s[count] = cursor;
+            e[count] = to;
+            count++;
+        }
+        return new IntervalSet(s, e, count);
+
+    }
+
+    /**
+     * Returns the parts of this set that are not in the other one. Single instants left where both sets touch are
+     * dropped.
+     */
+    public IntervalSet difference(IntervalSet other) {
+        if (size == 0) {
+            return this;
+        }
+        IntervalSet result = intersect(other.complement(starts[0], ends[size - 1]));
+        int count = 0;
+        for (int i = 0; i < result.size; i++) {
+            if (result.ends[i] > result.starts[i]) {
+                result.starts[count] = result.starts[i];
+                result.ends[count] = result.ends[i];
+                count++;
+            }
+        }
+        return new IntervalSet(result.starts, result.ends, count);
+    }
+
+    /**
+     * Returns the part of this set within [from, to]
+     */
+    public IntervalSet clip(long from, long to) {
+        return intersect(new IntervalSet(new long[]{from}, new long[]{to}, 1));
+    }
+
+    /**
+     * Returns true if the given time is covered by the set
+     */
+    public boolean contains(long time) {
+        int i = Arrays.binarySearch(starts, 0, size, time);
+        if (i >= 0) {
+            return true;
+        }
+        int previous = -i - 2;
+        return previous >= 0 && ends[previous] >= time;
+    }
+
+    /**
+     * Returns the summed duration of the intervals, in ms
+     */
+    public long getTotalDuration() {
+        long total = 0;
+        for (int i = 0; i < size; i++) {
+            total += ends[i] - starts[i];
+        }
+        return total;
+    }
+
+    /**
+     * Returns the fraction of [from, to] covered by the set
+     */
+    public double getCoverage(long from, long to) {
+        if (to <= from) {
+            return 0;
+        }
+        return (double) clip(from, to).getTotalDuration() / (to - from);
+    }
+
+    /**
+     * Returns the longest time between the end of an interval and the start of the next one, in ms, or 0 if the set has
+     * less than two intervals
+     */
+    public long getMaxRevisitGap() {
+        long max = 0;
+        for (int i = 1; i < size; i++) {
+            max = Math.max(max, starts[i] - ends[i - 1]);
+        }
+        return max;
+    }
+
+    /**
+     * Returns the mean time between the end of an interval and the start of the next one, in ms, or 0 if the set has
+     * less than two intervals
+     */
+    public double getMeanRevisitGap() {
+        if (size < 2) {
+            return 0;
+        }
+        long total = 0;
+        for (int i = 1; i < size; i++) {
+            total += starts[i] - ends[i - 1];
+        }
+        return (double) total / (size - 1);
+    }
+
+    /**
+     * Sets the time since last contact of every interval: the time between its start and the latest end of the
+     * intervals that started before it, or since the given time for the first ones. Overlapping intervals get 0. The
+     * order of the list is left as it is.
+     */
+    public static void fillTimeSinceLastContact(List<Interval> intervals, long since) {
+        List<Interval> sorted = new ArrayList<>(intervals);
+        sorted.sort(Comparator.comparingLong(Interval::getStart));
+        long lastEnd = since;
+        for (Interval interval : sorted) {
+            interval.setTimeSinceLastContact(Math.max(0, interval.getStart() - lastEnd));
+            lastEnd = Math.max(lastEnd, interval.getEnd());
+        }
+    }
+
+    /**
+     * Returns the intervals of the set as Interval objects, without assets
+     */
+    public List<Interval> toIntervals() {
+        List<Interval> intervals = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            intervals.add(new Interval(starts[i], ends[i]));
+        }
+        return intervals;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public long getStart(int i) {
+        return starts[i];
+    }
+
+    public long getEnd(int i) {
+        return ends[i];
+    }
+
+    /**
+     * Returns a copy of the interval starts
+     */
+    public long[] getStarts() {
+        return Arrays.copyOf(starts, size);
+    }
+
+    /**
+     * Returns a copy of the interval ends
+     */
+    public long[] getEnds() {
+        return Arrays.copyOf(ends, size);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < size; i++) {
+            sb.append(starts[i]).append(',').append(ends[i]).append(System.lineSeparator());
+        }
+        return sb.toString();
+    }
+
+}
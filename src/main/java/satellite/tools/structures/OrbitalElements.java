@@ -103,6 +103,20 @@ public class OrbitalElements {
         this.eccentricity = eccentricity;
     }
 
+    /**
+     * Returns the distance from the center of the Earth at perigee, in meters
+     */
+    public double getPerigeeRadius() {
+        return semiMajorAxis * (1 - eccentricity);
+    }
+
+    /**
+     * Returns the distance from the center of the Earth at apogee, in meters
+     */
+    public double getApogeeRadius() {
+        return semiMajorAxis * (1 + eccentricity);
+    }
+
     public double getInclination() {
         return inclination;
     }
@@ -2,6 +2,7 @@ package satellite.tools.structures;
 
 import satellite.tools.exceptions.SatElsetException;
 import satellite.tools.exceptions.ValueOutOfRangeException;
+import satellite.tools.utils.TleWriter;
 
 import java.io.Serializable;
 import java.text.DecimalFormat;
@@ -46,6 +47,11 @@ public class SatElset implements Serializable {
      */
     private static final String BLANKCARD = "                                                                     ";
 
+    /**
+     * Card writers, one per thread
+     */
+    private static final ThreadLocal<TleWriter> WRITER = ThreadLocal.withInitial(TleWriter::new);
+
     /**
      * Argument of Perigee
      */
@@ -56,8 +62,6 @@ public class SatElset implements Serializable {
      */
     private double bstar;
 
-    private DecimalFormat df1 = new DecimalFormat("0");
-
     /**
      * FIX: added US locale-specific format (decimal symbol causing problems at different locales)
      */
@@ -80,18 +84,6 @@ public class SatElset implements Serializable {
 
     private DecimalFormat df5 = new DecimalFormat("00000");
 
-    /**
-     * FIX: added US locale-specific format (decimal symbol causing problems at different locales)
-     */
-    private DecimalFormat dfdot7 = new DecimalFormat(".0000000", new DecimalFormatSymbols(Locale.US));
-//  private DecimalFormat dfdot7 = new DecimalFormat(".0000000");
-
-    /**
-     * FIX: added US locale-specific format (decimal symbol causing problems at different locales)
-     */
-    private DecimalFormat dfdot8 = new DecimalFormat(".00000000", new DecimalFormatSymbols(Locale.US));
-//  private DecimalFormat dfdot8 = new DecimalFormat(".00000000");
-
     /**
      * orbit shape [0.0, < 1.0]
      */
@@ -216,6 +208,36 @@ public class SatElset implements Serializable {
         this.satID = elset.satID;
     }
 
+    /**
+     * Sets all the elements at once, without checks, for the views of
+     * TleCatalog. Angles are in radians.
+     */
+    void setElements(int satID, String satClass, String intDesig, int epochYr,
+                     double epochDay, double nDot, double nDotDot, double bstar,
+                     int ephemerisType, int elsetNum, double inclination,
+                     double rightAscension, double eccentricity, double argPerigee,
+                     double meanAnomaly, double meanMotion, int revNum) {
+        this.name = " ";
+        this.satID = satID;
+        this.satClass = satClass;
+        this.intDesig = intDesig;
+        this.epochYr = epochYr;
+        this.epochDay = epochDay;
+        this.nDot = nDot;
+        this.nDotDot = nDotDot;
+        this.bstar = bstar;
+        this.ephemerisType = ephemerisType;
+        this.elsetNum = elsetNum;
+        this.inclination = inclination;
+        this.rightAscension = rightAscension;
+        this.eccentricity = eccentricity;
+        this.argPerigee = argPerigee;
+        this.meanAnomaly = meanAnomaly;
+        this.meanMotion = meanMotion;
+        this.revNum = revNum;
+        this.isValid = true;
+    }
+
     /**
      * This constructor takes the two lines of the standard 2-line elset format
      * as inputs and calls the constructor with a blank name.
@@ -723,58 +745,6 @@ public class SatElset implements Serializable {
         return false;
     }
 
-    /**
-     * This method analyzes the supplied value val and breaks it into sign,
-     * mantissa, and exponent parts, each of which is constructed as an integer.
-     * The mantissa is constrained to be either 00000 or be in the range
-     * [10000,99999] (5 significant digits), representing the values 0.10000 to
-     * 0.99999. The exponent must lie in the range [-9,9] (single digit). The
-     * returned mantissa and exponent are "clamped" at the limit values 0000 and
-     * 0 or 9999 and 9 if the constraints can't be achieved.
-     *
-     * @param val   the double value to format
-     * @param parts the int array containing the sign, mantissa, and exponent
-     * @return boolean true if the formatting could be done within the
-     * constraints
-     */
-    private boolean formatInt(double val, int[] parts) {
-
-        double absVal = Math.abs(val);
-        int exp = 0;
-
-        // determine sign of value
-        parts[0] = (val < 0.0) ? -1 : 1;
-
-        if (absVal <= 1.0E-10) {
-            // too small in magnitude to fit format constraints
-            parts[1] = 0;
-            parts[2] = 0;
-            return false;
-        }
-
-        if (absVal >= 1.0E9) {
-            // too large in magnitude to fit format constraints
-            parts[1] = 99999;
-            parts[2] = 9;
-            return false;
-        }
-
-        exp = 0; // start with representation absVal * 10^0
-        while (absVal > 1.0) { // reduce absVal and increase exponent parts[2]
-            absVal /= 10.0;
-            exp++;
-        }
-        while (absVal < 0.1) { // increase absVal and reduce exponent parts[2]
-            absVal *= 10.0;
-            exp--;
-        }
-        parts[1] = (int) (absVal * 1.0E5 + 0.5);
-        // save first 5 significant digits as a integer
-        parts[2] = exp;
-
-        return true;
-    }
-
     /**
      * This method returns the orbital argument of perigee as a double.
      *
@@ -832,94 +802,14 @@ public class SatElset implements Serializable {
      * @return the String containing card1
      */
     public String getCard1() {
-
-        String card1 = "1 00001U 00000000 70001.00000000 +.00000000 +00000+0 +00000+0 0 00009";
-
-        // Sat ID
-        String satIDstr = df5.format(satID);
-        StringBuffer card1sb = new StringBuffer(card1);
-        card1sb.replace(2, 7, satIDstr);
-
-        card1sb.replace(7, 8, satClass);
-
-        // International Designator
+        // The designator is kept padded to 8 columns, as the card shows it
         int idLen = intDesig.length();
-        if (idLen > 0) {
-            if (idLen < 8) {
-                intDesig += BLANKCARD.substring(0, 8 - idLen);
-            }
-            card1sb.replace(9, 17, intDesig.substring(0, 8));
-        }
-
-        DecimalFormat df = new DecimalFormat(" 00");
-        int tempYr = epochYr;
-        if (tempYr > 1900) {
-            tempYr -= 1900;
-            if (tempYr > 100) {
-                tempYr -= 100;
-            }
+        if (idLen > 0 && idLen < 8) {
+            intDesig += BLANKCARD.substring(0, 8 - idLen);
         }
-        String yrStr = df.format(tempYr);
-        card1sb.replace(17, 20, yrStr);
-
-        // Epoch Day
-        String dayStr = df3dot8.format(epochDay);
-        card1sb.replace(20, 32, dayStr);
-
-        // N dot
-        String nDotStr = dfdot8.format(nDot);
-        if (nDotStr.charAt(0) == '-') {
-            card1sb.replace(33, 43, nDotStr);
-        } else {
-            card1sb.replace(33, 43, " " + nDotStr);
-        }
-
-        // N dot dot
-        int[] parts = new int[3]; // sign, mantissa, and power of 10
-        String signStr;
-
-        formatInt(nDotDot, parts); // represent nDotdot as +/-.NNNNNE+/-N
-        String mantissa = df5.format(parts[1]);
-        signStr = (parts[0] < 0) ? "-" : " ";
-        String exp = df1.format(parts[2]);
-        if (exp.charAt(0) == '-') {
-            card1sb.replace(44, 52, signStr + mantissa + exp);
-        } else {
-            /** FIX: "0" in the exponent has a zero sign to get the checksums correct  */
-            if (exp.charAt(0) == '0') card1sb.replace(44, 52, signStr + mantissa + "-" + exp);
-            else card1sb.replace(44, 52, signStr + mantissa + "+" + exp);
-            // card1sb.replace(44, 52, signStr + mantissa + "+" + exp);
-        }
-
-        // B star
-        formatInt(bstar, parts); // represent Bstar as +/-.NNNNNE+/-N
-        mantissa = df5.format(parts[1]);
-        signStr = (parts[0] < 0) ? "-" : " ";
-        exp = df1.format(parts[2]);
-        if (exp.charAt(0) == '-') {
-            card1sb.replace(53, 61, signStr + mantissa + exp);
-        } else {
-            /** FIX: "0" in the exponent has a zero sign to get the checksums correct  */
-            if (exp.charAt(0) == '0') card1sb.replace(53, 61, signStr + mantissa + "-" + exp);
-            else card1sb.replace(53, 61, signStr + mantissa + "+" + exp);
-            // card1sb.replace(53, 61, signStr + mantissa + "+" + exp);
-        }
-
-        // Ephemeris type
-        String ephTypeStr = df1.format(ephemerisType);
-        card1sb.replace(62, 63, ephTypeStr);
-
-        // Elset num
-        String elnoStr = df4.format(elsetNum);
-        card1sb.replace(64, 68, elnoStr);
-
-        card1sb.replace(68, 69, Integer.toString(checkSum(card1sb.substring(0,
-                68))));
-        card1 = new String(card1sb);
-
-/** FIX: commented out the second card1 initialiser    */
-//        card1 = new String(card1sb);
-        return card1;
+        TleWriter writer = WRITER.get();
+        writer.formatCard1(this);
+        return writer.getCard();
     }
 
     /**
@@ -928,40 +818,9 @@ public class SatElset implements Serializable {
      * @return the String containing card2
      */
     public String getCard2() {
-
-        String card2 = "2 00001  60.0000  90.0000 0010000  90.0000  90.0000 15.00000000    19";
-
-        StringBuffer card2sb = new StringBuffer(card2);
-        String satIDstr = df5.format(satID);
-        card2sb.replace(2, 7, satIDstr);
-
-        String incStr = df3dot4.format(inclination * TODEGREES);
-        card2sb.replace(8, 16, incStr);
-
-        String rtAscStr = df3dot4.format(rightAscension * TODEGREES);
-        card2sb.replace(17, 25, rtAscStr);
-
-        String eccStr = dfdot7.format(eccentricity);
-        card2sb.replace(26, 33, eccStr.substring(1, 8));
-
-        String argPerStr = df3dot4.format(argPerigee * TODEGREES);
-        card2sb.replace(34, 42, argPerStr);
-
-        String meanAnomStr = df3dot4.format(meanAnomaly * TODEGREES);
-        card2sb.replace(43, 51, meanAnomStr);
-
-        String meanMotionStr = df2dot8.format(meanMotion);
-        card2sb.replace(52, 63, meanMotionStr);
-
-        String revnumStr = df5.format(revNum);
-        card2sb.replace(63, 68, revnumStr);
-
-        // Compute the checksum
-        card2sb.replace(68, 69, Integer.toString(checkSum(card2sb.substring(0,
-                68))));
-        card2 = new String(card2sb);
-
-        return card2;
+        TleWriter writer = WRITER.get();
+        writer.formatCard2(this);
+        return writer.getCard();
     }
 
     /**
@@ -0,0 +1,382 @@
+package satellite.tools.structures;
+
+import satellite.tools.assets.entities.Satellite;
+import satellite.tools.utils.Log;
+import satellite.tools.utils.TleReader;
+import satellite.tools.utils.TleWriter;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * TleCatalog holds a large number of element sets in primitive columns, one array per field, taking about
+ * BYTES_PER_ENTRY bytes of heap per element set instead of the kilobytes of a SatElset (with its DecimalFormats and
+ * Strings). Entries are numbered in the order they are added.
+ * <p>
+ * Element sets are handed out as SatElset on demand: get(index) builds a new one, while get(index, elset) overwrites
+ * the given one, so that a single SatElset can be reused as a view over the whole catalog. Names are not kept, and the
+ * international designator is kept padded (or cut) to the 8 columns of the card.
+ */
+public class TleCatalog {
+
+    /**
+     * Heap taken by an element set in the columns
+     */
+    public static final int BYTES_PER_ENTRY = 4 + 1 + 8 + 2 + 10 * 8 + 1 + 2 + 4;
+
+    private static final double TODEGREES = 180.0 / Math.PI;
+
+    private int size = 0;
+    private int[] satID;
+    private byte[] classification;
+    private long[] intDesig;
+    private short[] epochYr;
+    private double[] epochDay;
+    private double[] nDot;
+    private double[] nDotDot;
+    private double[] bstar;
+    private double[] inclination;
+    private double[] rightAscension;
+    private double[] eccentricity;
+    private double[] argPerigee;
+    private double[] meanAnomaly;
+    private double[] meanMotion;
+    private byte[] ephemerisType;
+    private short[] elsetNum;
+    private int[] revNum;
+
+    /**
+     * Positions sorted by satellite id, built on the first lookup
+     */
+    private int[] byId = null;
+
+    public TleCatalog() {
+        this(1024);
+    }
+
+    public TleCatalog(int capacity) {
+        allocate(Math.max(1, capacity));
+    }
+
+    /**
+     * Reads the valid entries of a TLE or 3LE file (see TleReader) into a new catalog
+     */
+    public static TleCatalog read(Path path) throws IOException {
+        var catalog = new TleCatalog();
+        var reader = new TleReader();
+        reader.read(path, catalog::add);
+        catalog.trimToSize();
+        Log.debug("Catalog of " + catalog.size() + " element sets from " + path + ", "
+                + (long) catalog.size() * BYTES_PER_ENTRY / 1024 + " kB");
+        return catalog;
+    }
+
+    /**
+     * Adds the element set and returns its index
+     */
+    public int add(TleRecord record) {
+        int i = next();
+        satID[i] = record.getSatID();
+        classification[i] = (byte) record.getClassification();
+        intDesig[i] = pack(record.getCard1(), 9);
+        epochYr[i] = (short) record.getEpochYr();
+        epochDay[i] = record.getEpochDay();
+        nDot[i] = record.getNdot();
+        nDotDot[i] = record.getNdotdot();
+        bstar[i] = record.getBstar();
+        inclination[i] = record.getInclination();
+        rightAscension[i] = record.getRightAscension();
+        eccentricity[i] = record.getEccentricity();
+        argPerigee[i] = record.getArgPerigee();
+        meanAnomaly[i] = record.getMeanAnomaly();
+        meanMotion[i] = record.getMeanMotion();
+        ephemerisType[i] = (byte) record.getEphemerisType();
+        elsetNum[i] = (short) record.getElsetNum();
+        revNum[i] = record.getRevNum();
+        return i;
+    }
+
+    /**
+     * Adds the element set and returns its index
+     */
+    public int add(SatElset elset) {
+        int i = next();
+        satID[i] = elset.getSatID();
+        classification[i] = (byte) elset.getSecClass().charAt(0);
+        String designator = elset.getIntDesig();
+        byte[] chars = new byte[8];
+        for (int c = 0; c < 8; c++) {
+            chars[c] = (byte) (c < designator.length() ? designator.charAt(c) : ' ');
+        }
+        intDesig[i] = pack(chars, 0);
+        epochYr[i] = (short) elset.getEpochYr();
+        epochDay[i] = elset.getEpochDay();
+        nDot[i] = elset.getNdot();
+        nDotDot[i] = elset.getNdotdot();
+        bstar[i] = elset.getBstar();
+        inclination[i] = elset.getInclination();
+        rightAscension[i] = elset.getRightAscension();
+        eccentricity[i] = elset.getEccentricity();
+        argPerigee[i] = elset.getArgPerigee();
+        meanAnomaly[i] = elset.getMeanAnomaly();
+        meanMotion[i] = elset.getMeanMotion();
+        ephemerisType[i] = (byte) elset.getEphemerisType();
+        elsetNum[i] = (short) elset.getElsetNum();
+        revNum[i] = elset.getRevNum();
+        return i;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns a new SatElset with the element set at the given index
+     */
+    public SatElset get(int index) {
+        return get(index, new SatElset());
+    }
+
+    /**
+     * Overwrites the given SatElset with the element set at the given index and returns it
+     */
+    public SatElset get(int index, SatElset elset) {
+        check(index);
+        elset.setElements(satID[index], classification(index), getIntDesig(index), epochYr[index], epochDay[index],
+                nDot[index], nDotDot[index], bstar[index], ephemerisType[index], elsetNum[index], inclination[index],
+                rightAscension[index], eccentricity[index], argPerigee[index], meanAnomaly[index], meanMotion[index],
+                revNum[index]);
+        return elset;
+    }
+
+    /**
+     * Returns the index of the first element set of the satellite, or -1 if there is none
+     */
+    public int indexOf(int id) {
+        if (byId == null) {
+            long[] keys = new long[size];
+            for (int i = 0; i < size; i++) {
+                keys[i] = (long) satID[i] << 32 | i;
+            }
+            Arrays.sort(keys);
+            byId = new int[size];
+            for (int i = 0; i < size; i++) {
+                byId[i] = (int) keys[i];
+            }
+        }
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (satID[byId[middle]] < id) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low < size && satID[byId[low]] == id ? byId[low] : -1;
+    }
+
+    /**
+     * Formats card 1 of the element set at the given index into the writer and returns its length
+     */
+    public int formatCard1(int index, TleWriter writer) {
+        check(index);
+        return writer.formatCard1(satID[index], classification(index), getIntDesig(index), epochYr[index],
+                epochDay[index], nDot[index], nDotDot[index], bstar[index], ephemerisType[index], elsetNum[index]);
+    }
+
+    /**
+     * Formats card 2 of the element set at the given index into the writer and returns its length
+     */
+    public int formatCard2(int index, TleWriter writer) {
+        check(index);
+        return writer.formatCard2(satID[index], inclination[index] * TODEGREES, rightAscension[index] * TODEGREES,
+                eccentricity[index], argPerigee[index] * TODEGREES, meanAnomaly[index] * TODEGREES, meanMotion[index],
+                revNum[index]);
+    }
+
+    /**
+     * Returns a new Satellite with the given id from the cards of the element set at the given index
+     */
+    public Satellite toSatellite(int index, int id) {
+        var writer = new TleWriter();
+        formatCard1(index, writer);
+        String line1 = writer.getCard();
+        formatCard2(index, writer);
+        return new Satellite(id, line1, writer.getCard());
+    }
+
+    /**
+     * Frees the capacity left over after the last element set
+     */
+    public void trimToSize() {
+        if (satID.length > size) {
+            resize(size);
+        }
+    }
+
+    /**
+     * Returns the number of element sets the columns can hold before growing
+     */
+    public int getCapacity() {
+        return satID.length;
+    }
+
+    /**
+     * Returns the heap taken by the columns, from their capacities: BYTES_PER_ENTRY per entry of capacity, plus the
+     * lookup index by id once it is built
+     */
+    public long getColumnBytes() {
+        long bytes = (long) satID.length * Integer.BYTES + classification.length + (long) intDesig.length * Long.BYTES
+                + (long) epochYr.length * Short.BYTES + (long) ephemerisType.length
+                + (long) elsetNum.length * Short.BYTES + (long) revNum.length * Integer.BYTES;
+        for (double[] column : new double[][]{epochDay, nDot, nDotDot, bstar, inclination, rightAscension,
+                eccentricity, argPerigee, meanAnomaly, meanMotion}) {
+            bytes += (long) column.length * Double.BYTES;
+        }
+        return byId == null ? bytes : bytes + (long) byId.length * Integer.BYTES;
+    }
+
+    public int getSatID(int index) {
+        check(index);
+        return satID[index];
+    }
+
+    public String getIntDesig(int index) {
+        check(index);
+        char[] chars = new char[8];
+        for (int c = 0; c < 8; c++) {
+            chars[c] = (char) (intDesig[index] >>> (56 - 8 * c) & 0xff);
+        }
+        return new String(chars);
+    }
+
+    /**
+     * Returns the epoch as a unix time in milliseconds, with two-digit years from 57 to 99 in the 1900s
+     */
+    public long getEpochMillis(int index) {
+        check(index);
+        return TleRecord.epochMillis(epochYr[index], epochDay[index]);
+    }
+
+    public double getInclination(int index) {
+        check(index);
+        return inclination[index];
+    }
+
+    public double getRightAscension(int index) {
+        check(index);
+        return rightAscension[index];
+    }
+
+    public double getEccentricity(int index) {
+        check(index);
+        return eccentricity[index];
+    }
+
+    public double getArgPerigee(int index) {
+        check(index);
+        return argPerigee[index];
+    }
+
+    public double getMeanAnomaly(int index) {
+        check(index);
+        return meanAnomaly[index];
+    }
+
+    /**
+     * Returns the mean motion in revolutions per day
+     */
+    public double getMeanMotion(int index) {
+        check(index);
+        return meanMotion[index];
+    }
+
+    public double getBstar(int index) {
+        check(index);
+        return bstar[index];
+    }
+
+    private String classification(int index) {
+        switch (classification[index]) {
+            case 'U':
+                return "U";
+            case 'C':
+                return "C";
+            case 'S':
+                return "S";
+            case 'T':
+                return "T";
+            default:
+                return String.valueOf((char) classification[index]);
+        }
+    }
+
+    private void check(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of catalog of " + size);
+        }
+    }
+
+    /**
+     * Returns the index for a new element set, growing the columns if needed
+     */
+    private int next() {
+        if (size == satID.length) {
+            resize(Math.max(size + 1, size + (size >> 1)));
+        }
+        byId = null;
+        return size++;
+    }
+
+    private static long pack(byte[] bytes, int from) {
+        long packed = 0;
+        for (int c = 0; c < 8; c++) {
+            packed = packed << 8 | (bytes[from + c] & 0xff);
+        }
+        return packed;
+    }
+
+    private void allocate(int capacity) {
+        satID = new int[capacity];
+        classification = new byte[capacity];
+        intDesig = new long[capacity];
+        epochYr = new short[capacity];
+        epochDay = new double[capacity];
+        nDot = new double[capacity];
+        nDotDot = new double[capacity];
+        bstar = new double[capacity];
+        inclination = new double[capacity];
+        rightAscension = new double[capacity];
+        eccentricity = new double[capacity];
+        argPerigee = new double[capacity];
+        meanAnomaly = new double[capacity];
+        meanMotion = new double[capacity];
+        ephemerisType = new byte[capacity];
+        elsetNum = new short[capacity];
+        revNum = new int[capacity];
+    }
+
+    private void resize(int capacity) {
+        satID = Arrays.copyOf(satID, capacity);
+        classification = Arrays.copyOf(classification, capacity);
+        intDesig = Arrays.copyOf(intDesig, capacity);
+        epochYr = Arrays.copyOf(epochYr, capacity);
+        epochDay = Arrays.copyOf(epochDay, capacity);
+        nDot = Arrays.copyOf(nDot, capacity);
+        nDotDot = Arrays.copyOf(nDotDot, capacity);
+        bstar = Arrays.copyOf(bstar, capacity);
+        inclination = Arrays.copyOf(inclination, capacity);
+        rightAscension = Arrays.copyOf(rightAscension, capacity);
+        eccentricity = Arrays.copyOf(eccentricity, capacity);
+        argPerigee = Arrays.copyOf(argPerigee, capacity);
+        meanAnomaly = Arrays.copyOf(meanAnomaly, capacity);
+        meanMotion = Arrays.copyOf(meanMotion, capacity);
+        ephemerisType = Arrays.copyOf(ephemerisType, capacity);
+        elsetNum = Arrays.copyOf(elsetNum, capacity);
+        revNum = Arrays.copyOf(revNum, capacity);
+    }
+
+}
@@ -0,0 +1,504 @@
+package satellite.tools.structures;
+
+import satellite.tools.assets.entities.Satellite;
+import satellite.tools.utils.Utils;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * TleRecord is a mutable two (or three) line element set, parsed straight from the bytes of the cards into primitive
+ * fields. It is meant to be reused: TleReader parses every entry of a file into the same instance, so reading a
+ * catalog creates no object per entry. Fields, ranges and checksums are validated as SatElset does, but failures are
+ * reported through parse() and getError() instead of exceptions.
+ * <p>
+ * Getters follow SatElset: angles are returned in radians, or in degrees by the *Deg variants, and the mean motion in
+ * revolutions per day. Strings (name, international designator, cards) are only built when asked for.
+ */
+public class TleRecord {
+
+    /**
+     * Length of a card, checksum included
+     */
+    public static final int CARD_LENGTH = 69;
+
+    /**
+     * Longest name kept for 3LE entries
+     */
+    public static final int MAX_NAME_LENGTH = 64;
+
+    private static final double TORADIANS = Math.PI / 180.0;
+    private static final double[] POW10 = {1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11, 1e12, 1e13,
+            1e14, 1e15, 1e16, 1e17, 1e18};
+
+    private final byte[] card1 = new byte[CARD_LENGTH];
+    private final byte[] card2 = new byte[CARD_LENGTH];
+    private final byte[] name = new byte[MAX_NAME_LENGTH];
+    private int nameLength = 0;
+    private long index;
+    private long offset;
+    private String error;
+
+    private int satID;
+    private char classification;
+    private int epochYr;
+    private double epochDay;
+    private double nDot;
+    private double nDotDot;
+    private double bstar;
+    private int ephemerisType;
+    private int elsetNum;
+    private double inclination;
+    private double rightAscension;
+    private double eccentricity;
+    private double argPerigee;
+    private double meanAnomaly;
+    private double meanMotion;
+    private int revNum;
+
+    /**
+     * Parses the cards found in the buffer at the given positions, which may end with a carriage return or be short of
+     * the checksum column. Returns false, with the reason in getError(), if the entry is not a valid element set.
+     */
+    public boolean parse(byte[] buffer, int line1, int length1, int line2, int length2) {
+
+        error = null;
+        if (!copyCard(buffer, line1, length1, card1) || !copyCard(buffer, line2, length2, card2)) {
+            return fail("Card shorter than 68 columns");
+        }
+        if (card1[0] != '1' || card2[0] != '2') {
+            return fail("Cards not numbered 1 and 2");
+        }
+        for (int i = 2; i < 7; i++) {
+            if (card1[i] != card2[i]) {
+                return fail("Satellite numbers differ between cards");
+            }
+        }
+        if (!checksumMatches(card1) || !checksumMatches(card2)) {
+            return fail("Checksum error");
+        }
+
+        // Card 1
+        satID = parseCatalogNumber(card1);
+        if (satID < 1) {
+            return fail("Satellite number out of range");
+        }
+        classification = (char) card1[7];
+        if (classification != 'U' && classification != 'C' && classification != 'S' && classification != 'T') {
+            return fail("Classification error");
+        }
+        epochYr = parseInt(card1, 18, 20);
+        epochDay = parseDecimal(card1, 20, 32);
+        if (epochYr < 0 || !(epochDay >= 0 && epochDay <= 367)) {
+            return fail("Epoch out of range");
+        }
+        nDot = parseDecimal(card1, 33, 43);
+        nDotDot = parseExponential(card1, 44);
+        bstar = parseExponential(card1, 53);
+        if (Double.isNaN(nDot) || Double.isNaN(nDotDot) || Double.isNaN(bstar)) {
+            return fail("Invalid mean motion derivatives or drag term");
+        }
+        ephemerisType = parseInt(card1, 62, 63);
+        if (ephemerisType != 0 && ephemerisType != 2) {
+            return fail("Ephemeris type out of range");
+        }
+        elsetNum = parseInt(card1, 64, 68);
+        if (elsetNum < 0) {
+            return fail("Element set number error");
+        }
+
+        // Card 2
+        double inclinationDeg = parseDecimal(card2, 8, 17);
+        double rightAscensionDeg = parseDecimal(card2, 17, 26);
+        eccentricity = parseDecimal(card2, 26, 33) / POW10[7];
+        double argPerigeeDeg = parseDecimal(card2, 34, 42);
+        double meanAnomalyDeg = parseDecimal(card2, 43, 51);
+        meanMotion = parseDecimal(card2, 52, 63);
+        revNum = parseInt(card2, 63, 68);
+        if (!(inclinationDeg >= 0 && inclinationDeg <= 180)) {
+            return fail("Inclination out of range");
+        }
+        if (!(rightAscensionDeg >= 0 && rightAscensionDeg <= 360) || !(argPerigeeDeg >= 0 && argPerigeeDeg <= 360)
+                || !(meanAnomalyDeg >= 0 && meanAnomalyDeg <= 360)) {
+            return fail("Angle out of range");
+        }
+        if (!(eccentricity >= 0 && eccentricity < 1)) {
+            return fail("Eccentricity out of range");
+        }
+        if (!(meanMotion > 0 && meanMotion <= 17) || revNum < 0) {
+            return fail("Mean motion or revolution number out of range");
+        }
+        inclination = inclinationDeg * TORADIANS;
+        rightAscension = rightAscensionDeg * TORADIANS;
+        argPerigee = argPerigeeDeg * TORADIANS;
+        meanAnomaly = meanAnomalyDeg * TORADIANS;
+        return true;
+
+    }
+
+    /**
+     * Sets the name of the entry from the given bytes, trimmed, without the "0 " prefix of some 3LE files
+     */
+    public void setName(byte[] buffer, int from, int length) {
+        int to = from + length;
+        while (from < to && buffer[from] == ' ') {
+            from++;
+        }
+        while (to > from && (buffer[to - 1] == ' ' || buffer[to - 1] == '\r' || buffer[to - 1] == '\t')) {
+            to--;
+        }
+        if (to - from > 2 && buffer[from] == '0' && buffer[from + 1] == ' ') {
+            from += 2;
+        }
+        nameLength = Math.min(MAX_NAME_LENGTH, to - from);
+        System.arraycopy(buffer, from, name, 0, nameLength);
+    }
+
+    public void clearName() {
+        nameLength = 0;
+    }
+
+    /**
+     * Sets the position of the entry in its file: entry number and byte offset
+     */
+    public void setPosition(long index, long offset) {
+        this.index = index;
+        this.offset = offset;
+    }
+
+    private boolean fail(String reason) {
+        error = reason;
+        return false;
+    }
+
+    /**
+     * Copies a card, padding it with blanks to CARD_LENGTH. Cards shorter than 68 columns are rejected.
+     */
+    private static boolean copyCard(byte[] buffer, int from, int length, byte[] card) {
+        if (length > 0 && buffer[from + length - 1] == '\r') {
+            length--;
+        }
+        if (length < CARD_LENGTH - 1) {
+            return false;
+        }
+        int copied = Math.min(length, CARD_LENGTH);
+        System.arraycopy(buffer, from, card, 0, copied);
+        for (int i = copied; i < CARD_LENGTH; i++) {
+            card[i] = ' ';
+        }
+        return true;
+    }
+
+    /**
+     * Checks the modulo 10 checksum of the card, when it has one
+     */
+    private static boolean checksumMatches(byte[] card) {
+        byte expected = card[CARD_LENGTH - 1];
+        if (expected == ' ') {
+            return true;
+        }
+        return expected >= '0' && expected <= '9' && checksum(card) == expected - '0';
+    }
+
+    /**
+     * Modulo 10 sum of the digits of the first 68 columns, minus signs counting as 1
+     */
+    public static int checksum(byte[] card) {
+        int sum = 0;
+        for (int i = 0; i < CARD_LENGTH - 1; i++) {
+            byte c = card[i];
+            if (c >= '0' && c <= '9') {
+                sum += c - '0';
+            } else if (c == '-') {
+                sum++;
+            }
+        }
+        return sum % 10;
+    }
+
+    /**
+     * Catalog number from columns 3 to 7, blanks read as zeros. A leading letter is read as Alpha-5 (A = 10, without I
+     * and O). Returns -1 if the field is not a number.
+     */
+    private static int parseCatalogNumber(byte[] card) {
+        int value = 0;
+        for (int i = 2; i < 7; i++) {
+            byte c = card[i];
+            int digit;
+            if (c >= '0' && c <= '9') {
+                digit = c - '0';
+            } else if (c == ' ') {
+                digit = 0;
+            } else if (i == 2 && c >= 'A' && c <= 'Z' && c != 'I' && c != 'O') {
+                digit = 10 + (c - 'A') - (c > 'I' ? 1 : 0) - (c > 'O' ? 1 : 0);
+            } else {
+                return -1;
+            }
+            value = 10 * value + digit;
+        }
+        return value;
+    }
+
+    /**
+     * Parses an unsigned integer in the given columns, ignoring blanks. Returns -1 if it is not a number.
+     */
+    private static int parseInt(byte[] card, int from, int to) {
+        int value = 0;
+        boolean digits = false;
+        for (int i = from; i < to; i++) {
+            byte c = card[i];
+            if (c >= '0' && c <= '9') {
+                value = 10 * value + (c - '0');
+                digits = true;
+            } else if (c != ' ') {
+                return -1;
+            }
+        }
+        return digits ? value : -1;
+    }
+
+    /**
+     * Parses a signed decimal number in the given columns, with leading or trailing blanks and an optional point.
+     * Returns NaN if it is not a number. The result is rounded as by Double.parseDouble.
+     */
+    private static double parseDecimal(byte[] card, int from, int to) {
+        while (from < to && card[from] == ' ') {
+            from++;
+        }
+        while (to > from && card[to - 1] == ' ') {
+            to--;
+        }
+        boolean negative = false;
+        if (from < to && (card[from] == '-' || card[from] == '+')) {
+            negative = card[from] == '-';
+            from++;
+        }
+        long mantissa = 0;
+        int decimals = -1;
+        boolean digits = false;
+        for (int i = from; i < to; i++) {
+            byte c = card[i];
+            if (c >= '0' && c <= '9') {
+                mantissa = 10 * mantissa + (c - '0');
+                digits = true;
+                if (decimals >= 0) {
+                    decimals++;
+                }
+            } else if (c == '.' && decimals < 0) {
+                decimals = 0;
+            } else {
+                return Double.NaN;
+            }
+        }
+        if (!digits || decimals >= POW10.length) {
+            return Double.NaN;
+        }
+        double value = decimals > 0 ? mantissa / POW10[decimals] : mantissa;
+        return negative ? -value : value;
+    }
+
+    /**
+     * Parses a field with an assumed leading decimal point and a signed exponent, as " 12345-5" for 0.12345e-5, in the
+     * 8 columns from the given one. Returns NaN if it is not a number.
+     */
+    private static double parseExponential(byte[] card, int from) {
+        byte sign = card[from];
+        if (sign != ' ' && sign != '-' && sign != '+') {
+            return Double.NaN;
+        }
+        long mantissa = 0;
+        for (int i = from + 1; i < from + 6; i++) {
+            byte c = card[i];
+            if (c >= '0' && c <= '9') {
+                mantissa = 10 * mantissa + (c - '0');
+            } else if (c != ' ') {
+                return Double.NaN;
+            }
+        }
+        byte exponentSign = card[from + 6];
+        byte exponentDigit = card[from + 7];
+        if ((exponentSign != '-' && exponentSign != '+' && exponentSign != ' ')
+                || exponentDigit < '0' || exponentDigit > '9') {
+            return Double.NaN;
+        }
+        int exponent = (exponentSign == '-' ? -1 : 1) * (exponentDigit - '0') - 5;
+        double value = exponent < 0 ? mantissa / POW10[-exponent] : mantissa * POW10[exponent];
+        return sign == '-' ? -value : value;
+    }
+
+    /**
+     * Returns the reason why the last parse() failed, or null if it succeeded
+     */
+    public String getError() {
+        return error;
+    }
+
+    /**
+     * Returns the position of the entry in its file, counting from 0
+     */
+    public long getIndex() {
+        return index;
+    }
+
+    /**
+     * Returns the byte offset of the first card of the entry in its file
+     */
+    public long getOffset() {
+        return offset;
+    }
+
+    public boolean hasName() {
+        return nameLength > 0;
+    }
+
+    public String getName() {
+        return new String(name, 0, nameLength, StandardCharsets.US_ASCII);
+    }
+
+    public String getLine1() {
+        return new String(card1, StandardCharsets.US_ASCII);
+    }
+
+    public String getLine2() {
+        return new String(card2, StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * Returns the bytes of card 1. The array is reused by the next parse().
+     */
+    public byte[] getCard1() {
+        return card1;
+    }
+
+    /**
+     * Returns the bytes of card 2. The array is reused by the next parse().
+     */
+    public byte[] getCard2() {
+        return card2;
+    }
+
+    public int getSatID() {
+        return satID;
+    }
+
+    public char getClassification() {
+        return classification;
+    }
+
+    public String getIntDesig() {
+        return new String(card1, 9, 8, StandardCharsets.US_ASCII);
+    }
+
+    public int getEpochYr() {
+        return epochYr;
+    }
+
+    public double getEpochDay() {
+        return epochDay;
+    }
+
+    /**
+     * Returns the epoch as a unix time in milliseconds, with two-digit years from 57 to 99 in the 1900s
+     */
+    public long getEpochMillis() {
+        return epochMillis(epochYr, epochDay);
+    }
+
+    /**
+     * Converts an epoch to unix milliseconds, with two or four digit years
+     */
+    static long epochMillis(int epochYr, double epochDay) {
+        int year = epochYr >= 100 ? epochYr : epochYr < 57 ? 2000 + epochYr : 1900 + epochYr;
+        // Days from 1970-01-01 to January 1st of the year
+        int y = year - 1;
+        long days = 365L * (year - 1970) + (y / 4 - y / 100 + y / 400) - (1969 / 4 - 1969 / 100 + 1969 / 400);
+        return days * 86400000L + Math.round((epochDay - 1) * 86400000.0);
+    }
+
+    public double getNdot() {
+        return nDot;
+    }
+
+    public double getNdotdot() {
+        return nDotDot;
+    }
+
+    public double getBstar() {
+        return bstar;
+    }
+
+    public int getEphemerisType() {
+        return ephemerisType;
+    }
+
+    public int getElsetNum() {
+        return elsetNum;
+    }
+
+    public double getInclination() {
+        return inclination;
+    }
+
+    public double getInclinationDeg() {
+        return inclination / TORADIANS;
+    }
+
+    public double getRightAscension() {
+        return rightAscension;
+    }
+
+    public double getRightAscensionDeg() {
+        return rightAscension / TORADIANS;
+    }
+
+    public double getEccentricity() {
+        return eccentricity;
+    }
+
+    public double getArgPerigee() {
+        return argPerigee;
+    }
+
+    public double getArgPerigeeDeg() {
+        return argPerigee / TORADIANS;
+    }
+
+    public double getMeanAnomaly() {
+        return meanAnomaly;
+    }
+
+    public double getMeanAnomalyDeg() {
+        return meanAnomaly / TORADIANS;
+    }
+
+    public double getMeanMotion() {
+        return meanMotion;
+    }
+
+    public int getRevNum() {
+        return revNum;
+    }
+
+    /**
+     * Returns the orbital elements of the entry, as Utils.tle2elements() computes them
+     */
+    public OrbitalElements toOrbitalElements() {
+        var elements = new OrbitalElements();
+        double period = (24 * 60 * 60) / meanMotion;
+        elements.setPeriod(period);
+        elements.setSemiMajorAxis(Math.pow((Utils.MU * Math.pow(period / (2 * Math.PI), 2)), 1.0 / 3.0));
+        elements.setEccentricity(eccentricity);
+        elements.setInclination(getInclinationDeg());
+        elements.setRightAscension(getRightAscensionDeg());
+        elements.setArgOfPerigee(getArgPerigeeDeg());
+        elements.setAnomaly(getMeanAnomalyDeg());
+        return elements;
+    }
+
+    /**
+     * Returns a new Satellite with the given id from the cards of the entry
+     */
+    public Satellite toSatellite(int id) {
+        return new Satellite(id, getLine1(), getLine2());
+    }
+
+}
@@ -0,0 +1,328 @@
+package satellite.tools.utils;
+
+import satellite.tools.assets.entities.Satellite;
+import satellite.tools.structures.TleRecord;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
+
+/**
+ * TleReader reads catalogs of two line (TLE) or three line (3LE, a name line before the cards) element sets. Files are
+ * read through a FileChannel in large buffers and each entry is parsed from the bytes into a reused TleRecord, which is
+ * handed to a callback: no String or object is created per entry unless the callback asks for one. Both formats can
+ * be mixed in a file; blank lines are skipped, and invalid entries are counted, logged and skipped.
+ * <p>
+ * read() streams the file sequentially. readParallel() splits it in chunks of CHUNK_SIZE bytes that are read and
+ * parsed in parallel, each with its own TleRecord, so the callback must be thread-safe; entries are numbered (see
+ * TleRecord.getIndex()) in the order of the file in both cases, counting invalid entries too.
+ */
+public class TleReader {
+
+    /**
+     * Size of the read buffer of sequential reads, in bytes
+     */
+    public static final int BUFFER_SIZE = 1 << 20;
+
+    /**
+     * Size of the chunks of parallel reads, in bytes
+     */
+    public static final int CHUNK_SIZE = 1 << 21;
+
+    /**
+     * Bytes read around each chunk for the name line of its first entry and the cards of its last one
+     */
+    private static final int MARGIN = 1024;
+
+    private long entries = 0;
+    private long invalid = 0;
+    private double lastReadTime = 0;
+
+    /**
+     * Reads the file sequentially, calling the consumer with every valid entry, and returns the number of them. The
+     * record passed is reused for the next entry.
+     */
+    public long read(Path path, Consumer<TleRecord> consumer) throws IOException {
+
+        long t0 = System.currentTimeMillis();
+
+        var record = new TleRecord();
+        var scanner = new Scanner(record, consumer);
+        byte[] bytes = new byte[BUFFER_SIZE];
+        var buffer = ByteBuffer.wrap(bytes);
+        long position = 0;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            boolean endOfInput = false;
+            while (!endOfInput) {
+                endOfInput = channel.read(buffer) < 0;
+                int limit = buffer.position();
+                int consumed = scanner.scan(bytes, 0, limit, endOfInput, Integer.MAX_VALUE, position);
+                if (!endOfInput && consumed == 0 && limit == bytes.length) {
+                    throw new IOException("Line longer than " + BUFFER_SIZE + " bytes at byte " + position + ": "
+                            + path);
+                }
+                System.arraycopy(bytes, consumed, bytes, 0, limit - consumed);
+                buffer.position(limit - consumed);
+                position += consumed;
+            }
+        }
+        entries = scanner.valid;
+        invalid = scanner.rejected;
+
+        lastReadTime = System.currentTimeMillis() - t0;
+        Log.debug("Read " + entries + " element sets from " + path + " in " + lastReadTime + " ms ("
+                + invalid + " invalid)");
+        return entries;
+
+    }
+
+    /**
+     * Reads the file in parallel chunks, calling the consumer with every valid entry from several threads, and returns
+     * the number of them. Each thread reuses its own record.
+     */
+    public long readParallel(Path path, Consumer<TleRecord> consumer) throws IOException {
+
+        long t0 = System.currentTimeMillis();
+
+        byte[][] regions;
+        long[] regionStarts;
+        long size;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            size = channel.size();
+            int chunks = (int) Math.max(1, (size + CHUNK_SIZE - 1) / CHUNK_SIZE);
+            regions = new byte[chunks][];
+            regionStarts = new long[chunks];
+            for (int c = 0; c < chunks; c++) {
+                regionStarts[c] = Math.max(0, (long) c * CHUNK_SIZE - MARGIN);
+                long regionEnd = Math.min(size, (long) (c + 1) * CHUNK_SIZE + MARGIN);
+                regions[c] = new byte[(int) (regionEnd - regionStarts[c])];
+            }
+            // Positional reads do not move the channel, so chunks can be read concurrently
+            IOException[] failure = new IOException[1];
+            IntStream.range(0, chunks).parallel().forEach(c -> {
+                var buffer = ByteBuffer.wrap(regions[c]);
+                try {
+                    while (buffer.hasRemaining()) {
+                        if (channel.read(buffer, regionStarts[c] + buffer.position()) < 0) {
+                            throw new IOException("Unexpected end of file: " + path);
+                        }
+                    }
+                } catch (IOException e) {
+                    failure[0] = e;
+                }
+            });
+            if (failure[0] != null) {
+                throw failure[0];
+            }
+        }
+
+        // Entries are counted per chunk first, so that each chunk knows the number of its first entry
+        int chunks = regions.length;
+        int[] from = new int[chunks];
+        int[] stop = new int[chunks];
+        long[] counts = new long[chunks];
+        IntStream.range(0, chunks).parallel().forEach(c -> {
+            long chunkStart = (long) c * CHUNK_SIZE;
+            from[c] = c == 0 ? 0 : firstEntry(regions[c], (int) (chunkStart - regionStarts[c]));
+            stop[c] = c == chunks - 1 ? Integer.MAX_VALUE : (int) (chunkStart + CHUNK_SIZE - regionStarts[c]);
+            var counter = new Scanner(null, null);
+            counter.scan(regions[c], from[c], regions[c].length, true, stop[c], regionStarts[c]);
+            counts[c] = counter.count;
+        });
+        long[] firstIndex = new long[chunks];
+        for (int c = 1; c < chunks; c++) {
+            firstIndex[c] = firstIndex[c - 1] + counts[c - 1];
+        }
+        Scanner[] scanners = new Scanner[chunks];
+        IntStream.range(0, chunks).parallel().forEach(c -> {
+            scanners[c] = new Scanner(new TleRecord(), consumer);
+            scanners[c].count = firstIndex[c];
+            scanners[c].scan(regions[c], from[c], regions[c].length, true, stop[c], regionStarts[c]);
+        });
+        entries = 0;
+        invalid = 0;
+        for (Scanner scanner : scanners) {
+            entries += scanner.valid;
+            invalid += scanner.rejected;
+        }
+
+        lastReadTime = System.currentTimeMillis() - t0;
+        Log.debug("Read " + entries + " element sets from " + path + " (" + size + " bytes, " + chunks
+                + " chunks) in " + lastReadTime + " ms (" + invalid + " invalid)");
+        return entries;
+
+    }
+
+    /**
+     * Reads the file and returns a Satellite per valid entry, with its position in the file as id
+     */
+    public List<Satellite> readSatellites(Path path) throws IOException {
+        List<Satellite> satellites = new ArrayList<>();
+        read(path, record -> satellites.add(record.toSatellite((int) record.getIndex())));
+        return satellites;
+    }
+
+    /**
+     * Returns the number of entries rejected on the last read
+     */
+    public long getInvalidCount() {
+        return invalid;
+    }
+
+    public double getLastReadTime() {
+        return lastReadTime;
+    }
+
+    /**
+     * Returns the start of the first entry at or after the given position: its name line if it has one, or its first
+     * card. Entries are recognized as by the scanner, so consecutive chunks split the file at the same entries.
+     */
+    private static int firstEntry(byte[] bytes, int position) {
+        int p = position;
+        while (p < bytes.length && p > 0 && bytes[p - 1] != '\n') {
+            p++;
+        }
+        while (p < bytes.length) {
+            int end = lineEnd(bytes, p, bytes.length);
+            int next = Math.min(bytes.length, end + 1);
+            if (isCard(bytes, p, end, '1') && next < bytes.length
+                    && isCard(bytes, next, lineEnd(bytes, next, bytes.length), '2')) {
+                // Include the name line before the cards, if any
+                if (p > 0) {
+                    int previous = p - 1;
+                    while (previous > 0 && bytes[previous - 1] != '\n') {
+                        previous--;
+                    }
+                    if (previous > 0 && !isCard(bytes, previous, p - 1, '1') && !isCard(bytes, previous, p - 1, '2')
+                            && !isBlank(bytes, previous, p - 1)) {
+                        return previous;
+                    }
+                }
+                return p;
+            }
+            p = next;
+        }
+        return bytes.length;
+    }
+
+    /**
+     * Returns the position of the line feed that ends the line, or the limit if there is none
+     */
+    private static int lineEnd(byte[] bytes, int from, int limit) {
+        for (int i = from; i < limit; i++) {
+            if (bytes[i] == '\n') {
+                return i;
+            }
+        }
+        return limit;
+    }
+
+    private static boolean isCard(byte[] bytes, int from, int end, char number) {
+        return end - from >= 2 && bytes[from] == number && bytes[from + 1] == ' ';
+    }
+
+    private static boolean isBlank(byte[] bytes, int from, int end) {
+        for (int i = from; i < end; i++) {
+            if (bytes[i] != ' ' && bytes[i] != '\r' && bytes[i] != '\t') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Walks the lines of a buffer, pairing cards 1 and 2 in entries, with the line before them as name when it is
+     * neither a card nor blank. With no record, entries are only counted.
+     */
+    private class Scanner {
+
+        private final TleRecord record;
+        private final Consumer<TleRecord> consumer;
+        private long count = 0;
+        private long valid = 0;
+        private long rejected = 0;
+
+        Scanner(TleRecord record, Consumer<TleRecord> consumer) {
+            this.record = record;
+            this.consumer = consumer;
+        }
+
+        /**
+         * Scans the buffer from the given position and returns where the next scan should start: the first entry that
+         * is not complete before the limit, unless this is the end of the input. Entries whose first card starts at or
+         * after stop are left out.
+         */
+        int scan(byte[] bytes, int from, int limit, boolean endOfInput, int stop, long offset) {
+
+            int p = from;
+            int name = -1;
+            while (p < limit) {
+                int end = lineEnd(bytes, p, limit);
+                if (end == limit && !endOfInput) {
+                    break;
+                }
+                int next = Math.min(limit, end + 1);
+                if (isCard(bytes, p, end, '1')) {
+                    if (p >= stop) {
+                        return p;
+                    }
+                    int end2 = lineEnd(bytes, next, limit);
+                    if (end2 == limit && !endOfInput) {
+                        break;
+                    }
+                    if (next < limit && isCard(bytes, next, end2, '2')) {
+                        entry(bytes, name, p, end, next, end2, offset);
+                        p = Math.min(limit, end2 + 1);
+                    } else {
+                        reject(offset + p, "Card 1 not followed by card 2");
+                        p = next;
+                    }
+                    name = -1;
+                } else if (isCard(bytes, p, end, '2')) {
+                    reject(offset + p, "Card 2 without card 1");
+                    name = -1;
+                    p = next;
+                } else {
+                    name = isBlank(bytes, p, end) ? -1 : p;
+                    p = next;
+                }
+            }
+            return name >= 0 ? name : p;
+
+        }
+
+        private void entry(byte[] bytes, int name, int line1, int end1, int line2, int end2, long offset) {
+            long index = count++;
+            if (record == null) {
+                return;
+            }
+            if (record.parse(bytes, line1, end1 - line1, line2, end2 - line2)) {
+                if (name >= 0) {
+                    record.setName(bytes, name, line1 - 1 - name);
+                } else {
+                    record.clearName();
+                }
+                record.setPosition(index, offset + line1);
+                valid++;
+                consumer.accept(record);
+            } else {
+                reject(offset + line1, record.getError());
+            }
+        }
+
+        private void reject(long position, String reason) {
+            if (record != null) {
+                rejected++;
+                Log.warn("Invalid element set at byte " + position + ": " + reason);
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,344 @@
+package satellite.tools.utils;
+
+import satellite.tools.structures.SatElset;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * TleWriter formats the cards of two line element sets into a reused char buffer, without DecimalFormat objects or
+ * intermediate Strings. The output is the same, character by character, as the one SatElset produced with
+ * DecimalFormat: fields are rounded half-even on the exact value of the doubles, implied decimal fields (ndotdot,
+ * bstar) keep their "-0" exponent for zero, and fields that do not fit their columns shift the rest of the card as
+ * before. Digits are always ASCII, whatever the default locale.
+ * <p>
+ * A writer is not thread-safe, but it is cheap: use one per thread.
+ */
+public class TleWriter {
+
+    private static final char[] CARD1 =
+            "1 00001U 00000000 70001.00000000 +.00000000 +00000+0 +00000+0 0 00009".toCharArray();
+    private static final char[] CARD2 =
+            "2 00001  60.0000  90.0000 0010000  90.0000  90.0000 15.00000000    19".toCharArray();
+
+    private static final long[] POW10 = {1L, 10L, 100L, 1000L, 10000L, 100000L, 1000000L, 10000000L, 100000000L};
+
+    private char[] card = new char[2 * CARD1.length];
+    private int length = 0;
+    private final char[] field = new char[64];
+    private final int[] parts = new int[3];
+    private double lastWriteTime = 0;
+
+    /**
+     * Formats card 1 of the element set into the buffer and returns its length
+     */
+    public int formatCard1(SatElset elset) {
+        return formatCard1(elset.getSatID(), elset.getSecClass(), elset.getIntDesig(), elset.getEpochYr(),
+                elset.getEpochDay(), elset.getNdot(), elset.getNdotdot(), elset.getBstar(), elset.getEphemerisType(),
+                elset.getElsetNum());
+    }
+
+    /**
+     * Formats card 2 of the element set into the buffer and returns its length
+     */
+    public int formatCard2(SatElset elset) {
+        return formatCard2(elset.getSatID(), elset.getInclinationDeg(), elset.getRightAscensionDeg(),
+                elset.getEccentricity(), elset.getArgPerigeeDeg(), elset.getMeanAnomalyDeg(), elset.getMeanMotion(),
+                elset.getRevNum());
+    }
+
+    /**
+     * Formats card 1 into the buffer and returns its length. The epoch year can have two or four digits, and the
+     * other values are those SatElset holds.
+     */
+    public int formatCard1(int satID, String satClass, String intDesig, int epochYr, double epochDay, double nDot,
+                           double nDotDot, double bstar, int ephemerisType, int elsetNum) {
+
+        System.arraycopy(CARD1, 0, card, 0, CARD1.length);
+        length = CARD1.length;
+
+        replace(2, 7, integer(satID, 5, 0));
+        int n = satClass.length();
+        satClass.getChars(0, n, field, 0);
+        replace(7, 8, n);
+
+        int idLen = intDesig.length();
+        if (idLen > 0) {
+            int copied = Math.min(8, idLen);
+            intDesig.getChars(0, copied, field, 0);
+            for (int i = copied; i < 8; i++) {
+                field[i] = ' ';
+            }
+            replace(9, 17, 8);
+        }
+
+        int year = epochYr;
+        if (year > 1900) {
+            year -= 1900;
+            if (year > 100) {
+                year -= 100;
+            }
+        }
+        // " 00" pattern: the blank prefix goes after the sign
+        n = 0;
+        if (year < 0) {
+            field[n++] = '-';
+        }
+        field[n++] = ' ';
+        replace(17, 20, digits(n, Math.abs(year), 2));
+
+        replace(20, 32, decimal(epochDay, 3, 8, 0));
+
+        n = decimal(nDot, 0, 8, 1);
+        if (field[1] == '-') {
+            System.arraycopy(field, 1, field, 0, --n);
+        } else {
+            field[0] = ' ';
+        }
+        replace(33, 43, n);
+
+        replace(44, 52, impliedDecimal(nDotDot));
+        replace(53, 61, impliedDecimal(bstar));
+        replace(62, 63, integer(ephemerisType, 1, 0));
+        replace(64, 68, integer(elsetNum, 4, 0));
+        field[0] = (char) ('0' + checksum(card));
+        replace(68, 69, 1);
+
+        return length;
+
+    }
+
+    /**
+     * Formats card 2 into the buffer and returns its length. Angles are in degrees and the mean motion in rev/day.
+     */
+    public int formatCard2(int satID, double inclination, double rightAscension, double eccentricity,
+                           double argPerigee, double meanAnomaly, double meanMotion, int revNum) {
+
+        System.arraycopy(CARD2, 0, card, 0, CARD2.length);
+        length = CARD2.length;
+
+        replace(2, 7, integer(satID, 5, 0));
+        replace(8, 16, decimal(inclination, 3, 4, 0));
+        replace(17, 25, decimal(rightAscension, 3, 4, 0));
+        // Seven columns from the second character, dropping the leading point
+        decimal(eccentricity, 0, 7, 0);
+        System.arraycopy(field, 1, field, 0, 7);
+        replace(26, 33, 7);
+        replace(34, 42, decimal(argPerigee, 3, 4, 0));
+        replace(43, 51, decimal(meanAnomaly, 3, 4, 0));
+        replace(52, 63, decimal(meanMotion, 2, 8, 0));
+        replace(63, 68, integer(revNum, 5, 0));
+        field[0] = (char) ('0' + checksum(card));
+        replace(68, 69, 1);
+
+        return length;
+
+    }
+
+    /**
+     * Returns the buffer holding the last card formatted, valid up to getLength()
+     */
+    public char[] getBuffer() {
+        return card;
+    }
+
+    public int getLength() {
+        return length;
+    }
+
+    /**
+     * Returns the last card formatted
+     */
+    public String getCard() {
+        return new String(card, 0, length);
+    }
+
+    /**
+     * Appends the last card formatted to the builder
+     */
+    public StringBuilder appendTo(StringBuilder builder) {
+        return builder.append(card, 0, length);
+    }
+
+    /**
+     * Writes the two cards of every element set to the file, one per line, and returns the number of element sets
+     */
+    public long write(Path path, Iterable<SatElset> elsets) throws IOException {
+
+        long t0 = System.currentTimeMillis();
+
+        long count = 0;
+        try (Writer writer = Files.newBufferedWriter(path, StandardCharsets.US_ASCII)) {
+            for (SatElset elset : elsets) {
+                formatCard1(elset);
+                writer.write(card, 0, length);
+                writer.write('\n');
+                formatCard2(elset);
+                writer.write(card, 0, length);
+                writer.write('\n');
+                count++;
+            }
+        }
+
+        lastWriteTime = System.currentTimeMillis() - t0;
+        Log.debug("Wrote " + count + " element sets to " + path + " in " + lastWriteTime + " ms");
+        return count;
+
+    }
+
+    public double getLastWriteTime() {
+        return lastWriteTime;
+    }
+
+    /**
+     * Returns the TLE checksum of the first 68 characters of a card: the sum of its digits, with minus signs counting
+     * as one, modulo 10
+     */
+    public static int checksum(char[] card) {
+        int sum = 0;
+        for (int i = 0; i < 68; i++) {
+            char c = card[i];
+            if (c >= '1' && c <= '9') {
+                sum += c - '0';
+            } else if (c == '-') {
+                sum++;
+            }
+        }
+        return sum % 10;
+    }
+
+    /**
+     * Replaces the columns [start, end) of the card with the first n characters of the field, shifting the rest of
+     * the card when the lengths differ, as StringBuffer.replace() does
+     */
+    private void replace(int start, int end, int n) {
+        end = Math.min(end, length);
+        int tail = length - end;
+        int newLength = start + n + tail;
+        if (newLength > card.length) {
+            char[] larger = new char[2 * newLength];
+            System.arraycopy(card, 0, larger, 0, length);
+            card = larger;
+        }
+        if (n != end - start) {
+            System.arraycopy(card, end, card, start + n, tail);
+        }
+        System.arraycopy(field, 0, card, start, n);
+        length = newLength;
+    }
+
+    /**
+     * Writes the value in the field from the given position, with at least the given number of digits (as the
+     * "0000" patterns of DecimalFormat), and returns the length of the field
+     */
+    private int integer(long value, int digits, int from) {
+        int p = from;
+        if (value < 0) {
+            field[p++] = '-';
+        }
+        return digits(p, Math.abs(value), digits);
+    }
+
+    private int digits(int from, long value, int digits) {
+        int n = 1;
+        for (long v = value / 10; v > 0; v /= 10) {
+            n++;
+        }
+        n = Math.max(n, digits);
+        for (int i = from + n - 1; i >= from; i--) {
+            field[i] = (char) ('0' + value % 10);
+            value /= 10;
+        }
+        return from + n;
+    }
+
+    /**
+     * Writes the value in the field from the given position with the given number of integer and fraction digits (as
+     * the "000.0000" patterns of DecimalFormat, rounding half-even), and returns the length of the field. Negative
+     * values keep their sign when they round to zero, also as DecimalFormat does.
+     */
+    private int decimal(double value, int integerDigits, int fractionDigits, int from) {
+
+        int p = from;
+        if (Double.isNaN(value)) {
+            "NaN".getChars(0, 3, field, p);
+            return p + 3;
+        }
+        if (value < 0 || Double.doubleToRawLongBits(value) == Long.MIN_VALUE) {
+            field[p++] = '-';
+        }
+        if (Double.isInfinite(value)) {
+            field[p] = '\u221e';
+            return p + 1;
+        }
+        double abs = Math.abs(value);
+        long scale = POW10[fractionDigits];
+        double scaled = abs * scale;
+        long units;
+        double floor = Math.floor(scaled);
+        // The product can be off by an ulp, which only matters close to a tie: those are rounded exactly
+        if (scaled < 1L << 52 && Math.abs(scaled - floor - 0.5) > 4 * Math.ulp(scaled)) {
+            units = (long) Math.rint(scaled);
+        } else {
+            units = new BigDecimal(abs).setScale(fractionDigits, RoundingMode.HALF_EVEN).unscaledValue().longValue();
+        }
+
+        long integer = units / scale;
+        if (integer > 0 || integerDigits > 0) {
+            p = digits(p, integer, integerDigits);
+        }
+        field[p++] = '.';
+        return digits(p, units % scale, fractionDigits);
+
+    }
+
+    /**
+     * Writes the value in the implied decimal notation of ndotdot and bstar (sign, five digit mantissa and signed
+     * exponent) and returns the length of the field
+     */
+    private int impliedDecimal(double value) {
+        mantissa(value, parts);
+        field[0] = parts[0] < 0 ? '-' : ' ';
+        int n = digits(1, parts[1], 5);
+        field[n] = parts[2] > 0 ? '+' : '-';
+        return digits(n + 1, Math.abs(parts[2]), 1);
+    }
+
+    /**
+     * Splits the value in sign, mantissa of five significant digits and exponent, as 0.NNNNN * 10^exponent. Values
+     * too small or too large for a single digit exponent are clamped to 0 and 0.99999e9.
+     */
+    private static void mantissa(double value, int[] parts) {
+
+        double abs = Math.abs(value);
+        parts[0] = value < 0.0 ? -1 : 1;
+        if (abs <= 1.0E-10) {
+            parts[1] = 0;
+            parts[2] = 0;
+            return;
+        }
+        if (abs >= 1.0E9) {
+            parts[1] = 99999;
+            parts[2] = 9;
+            return;
+        }
+        int exp = 0;
+        while (abs > 1.0) {
+            abs /= 10.0;
+            exp++;
+        }
+        while (abs < 0.1) {
+            abs *= 10.0;
+            exp--;
+        }
+        parts[1] = (int) (abs * 1.0E5 + 0.5);
+        parts[2] = exp;
+
+    }
+
+}
@@ -0,0 +1,98 @@
+package satellite.tools.utils;
+
+import org.orekit.frames.Frame;
+import org.orekit.frames.Transform;
+import org.orekit.time.AbsoluteDate;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * TransformCache keeps the transforms between two frames for the latest instants requested, keyed by date. Assets that
+ * are evaluated on a common time grid then share a single computation of the whole frame chain (precession, nutation,
+ * Earth orientation) per instant. It is safe to use from several threads.
+ * <p>
+ * The cache holds at most its capacity and evicts the least recently used dates beyond it. Its capacity should be at
+ * least the number of dates of the grid it is shared over (see Simulation.newTransformCache()): a grid run again over
+ * a smaller cache evicts every date before it is requested again, and gets no hits at all. It should only be given
+ * the dates of such grids: arbitrary dates (event searches, for instance) are never requested twice and only fill it.
+ */
+public class TransformCache {
+
+    private final Frame from;
+    private final Frame to;
+    private final int capacity;
+    private final Map<AbsoluteDate, Transform> transforms;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    public TransformCache(Frame from, Frame to, int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Cache capacity must be positive: " + capacity);
+        }
+        this.from = from;
+        this.to = to;
+        this.capacity = capacity;
+        this.transforms = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<AbsoluteDate, Transform> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    /**
+     * Returns the transform between both frames at the given date, computing it only if it is not cached
+     */
+    public Transform getTransform(AbsoluteDate date) {
+        Transform transform;
+        synchronized (transforms) {
+            transform = transforms.get(date);
+        }
+        if (transform != null) {
+            hits.incrementAndGet();
+            return transform;
+        }
+        misses.incrementAndGet();
+        // Computed outside the lock: threads missing the same date compute the same transform
+        transform = from.getTransformTo(to, date);
+        synchronized (transforms) {
+            transforms.put(date, transform);
+        }
+        return transform;
+    }
+
+    public Frame getFrom() {
+        return from;
+    }
+
+    public Frame getTo() {
+        return to;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public int size() {
+        synchronized (transforms) {
+            return transforms.size();
+        }
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public void clear() {
+        synchronized (transforms) {
+            transforms.clear();
+        }
+    }
+
+}
@@ -1,9 +1,11 @@
 package satellite.tools.utils;
 
 import org.orekit.data.DataContext;
+import org.orekit.data.DirectoryCrawler;
 import org.orekit.propagation.analytical.tle.TLE;
 import org.orekit.time.AbsoluteDate;
 import org.orekit.time.TimeScale;
+import org.orekit.utils.Constants;
 import satellite.tools.exceptions.SatElsetException;
 import satellite.tools.structures.Ephemeris;
 import satellite.tools.structures.SatElset;
@@ -29,6 +31,9 @@ public class Utils {
     public static final double ECCENTRICITY = 8.1819190842622e-2;    // Ellipsoid constants: eccentricity; WGS84
     public static final double MU = 3.986004418e+14; // Gravitation coefficient
     public static final double C_VACUUM = 299792458.0;  // Speed of light in vacuum
+    public static final double ACCESS_BAND_MARGIN = 1.0;  // Margin in degrees for oblateness and geodetic latitudes
+
+    private static final Set<String> orekitDataPaths = new HashSet<>();
 
     /**
      * Reads a properties file and loads it into a Properties class
@@ -161,6 +166,54 @@ public class Utils {
 
     }
 
+    /**
+     * Gets the maximum Earth central angle in degrees (lambda max) between a satellite at its apogee and a point on the
+     * surface that sees it above the visibility threshold, assuming a spherical Earth with EQ Radius
+     *
+     * @return double
+     */
+    public static double getMaxCentralAngle(Satellite satellite, double th) {
+
+        OrbitalElements elements = getElementsOf(satellite);
+        double ra = elements.getSemiMajorAxis() * (1 + elements.getEccentricity()); // Get the radius of the apogee
+
+        double etaMax = Math.asin((EARTH_RADIUS_EQ_M * Math.cos(Math.toRadians(th))) / ra);
+        return 90 - th - Math.toDegrees(etaMax);
+
+    }
+
+    /**
+     * Gets the highest latitude in degrees (north or south) from which a satellite can be seen above the visibility
+     * threshold: its orbit's maximum latitude plus lambda max, plus the ACCESS_BAND_MARGIN
+     *
+     * @return double
+     */
+    public static double getMaxReachableLatitude(Satellite satellite, double th) {
+        double inc = getElementsOf(satellite).getInclination();
+        double maxOrbitLatitude = inc > 90 ? 180 - inc : inc;
+        return maxOrbitLatitude + getMaxCentralAngle(satellite, th) + ACCESS_BAND_MARGIN;
+    }
+
+    /**
+     * Returns false when the asset's latitude lies outside the band from which the satellite can be seen above the
+     * visibility threshold, meaning that there is no access between them whatever the scenario dates are
+     *
+     * @return boolean
+     */
+    public static boolean isAccessPossible(Asset asset, Satellite satellite, double th) {
+        return Math.abs(asset.getLat()) <= getMaxReachableLatitude(satellite, th);
+    }
+
+    /**
+     * Returns the satellite's orbital elements, deriving them from its TLE when it was declared from one
+     */
+    private static OrbitalElements getElementsOf(Satellite satellite) {
+        if (satellite.getElements() == null) {
+            return tle2elements(satellite.getTLE1(), satellite.getTLE2());
+        }
+        return satellite.getElements();
+    }
+
     /**
      * Transforms an asset's Longitude, Latitude and Height to ECEF coordinates
      */
@@ -208,6 +261,35 @@ public class Utils {
 
     }
 
+    /**
+     * Converts Earth-fixed coordinates (m) to WGS84 geodetic latitude and longitude (degrees) and height (m), written
+     * into the array from the given offset. Uses Bowring's closed form, without iterations nor allocations, which stays
+     * within millimeters of the exact conversion up to LEO altitudes. Points on the polar axis are not supported.
+     */
+    public static void ecef2geodetic(double x, double y, double z, double[] lla, int offset) {
+        double a = Constants.WGS84_EARTH_EQUATORIAL_RADIUS;
+        double f = Constants.WGS84_EARTH_FLATTENING;
+        double b = a * (1 - f);
+        double e2 = f * (2 - f);
+        double ep2 = e2 / (1 - e2);
+
+        double p = Math.sqrt(x * x + y * y);
+        // Sine and cosine of the parametric latitude and of the latitude, from their tangents
+        double tanTh = a * z / (b * p);
+        double cosTh = 1 / Math.sqrt(1 + tanTh * tanTh);
+        double sinTh = tanTh * cosTh;
+        double num = z + ep2 * b * sinTh * sinTh * sinTh;
+        double den = p - e2 * a * cosTh * cosTh * cosTh;
+        double norm = Math.sqrt(num * num + den * den);
+        double sinLat = num / norm;
+        double cosLat = den / norm;
+
+        lla[offset] = Math.toDegrees(Math.atan2(num, den));
+        lla[offset + 1] = Math.toDegrees(Math.atan2(y, x));
+        // Stable at every latitude, unlike p / cos(lat) - N
+        lla[offset + 2] = p * cosLat + z * sinLat - a * Math.sqrt(1 - e2 * sinLat * sinLat);
+    }
+
     /**
      * Transforms TEME coordinates into ECEF for a given ephemeris and julianDate
      *
@@ -356,6 +438,25 @@ public class Utils {
         return orbitalElements;
     }
 
+    /**
+     * Adds the orekit data directory set as orekit_data_path in sim.properties to the default data context
+     */
+    public static void loadOrekitData() {
+        loadOrekitData((String) loadProperties("sim.properties").get("orekit_data_path"));
+    }
+
+    /**
+     * Adds the orekit data directory at the given path to the default data context. Paths already added are skipped,
+     * so it can be called more than once.
+     */
+    public static synchronized void loadOrekitData(String path) {
+        var file = loadFile(path);
+        if (orekitDataPaths.add(file.getAbsolutePath())) {
+            DataContext.getDefault().getDataProvidersManager().addProvider(new DirectoryCrawler(file));
+            Log.debug("Orekit data loaded from " + file.getAbsolutePath());
+        }
+    }
+
     /**
      * This method returns a File instance for the provided Path
      * **/
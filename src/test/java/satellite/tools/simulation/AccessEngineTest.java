@@ -0,0 +1,113 @@
+package satellite.tools.simulation;
+
+import org.junit.Test;
+import satellite.tools.AccessEngine;
+import satellite.tools.Simulation;
+import satellite.tools.assets.entities.Device;
+import satellite.tools.assets.entities.Satellite;
+import satellite.tools.structures.Interval;
+import satellite.tools.structures.OrbitalElements;
+import satellite.tools.utils.Log;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class AccessEngineTest {
+
+    private static final String START = "2022-03-20T12:00:00.000";
+    private static final String END = "2022-03-21T00:00:00.000";
+
+    private List<Satellite> satellites() {
+        Satellite iss = new Satellite(0, "1 25544U 98067A   22122.68846215  .00030457  00000-0  54086-3 0  9994",
+                "2 25544  51.6435 201.9265 0006436  54.9097 105.7177 15.49915502338120");
+        Satellite sso = new Satellite(1, new OrbitalElements("2022-03-20T00:00:00.000", 6978135, 0, 98, 310, 0, 220));
+        return List.of(iss, sso);
+    }
+
+    private List<Device> devices() {
+        return List.of(new Device(0, 15, 15, 3), new Device(1, -34.6, -58.4, 25), new Device(2, 60, 10, 0));
+    }
+
+    @Test
+    public void testMatchesSinglePairSimulations() {
+
+        List<Satellite> satellites = satellites();
+        List<Device> devices = devices();
+        AccessEngine engine = new AccessEngine(START, END, devices, satellites, 60, 5);
+        engine.computeAccess();
+
+        assertEquals(6, engine.getPairIntervals().size());
+        assertTrue(engine.getIntervals().size() > 0);
+        Log.debug("Pairs/s: " + engine.getPairsPerSecond());
+
+        for (int s = 0; s < satellites.size(); s++) {
+            for (int d = 0; d < devices.size(); d++) {
+                Simulation simulation = new Simulation(START, END, devices.get(d), satellites.get(s), 60, 5);
+                simulation.computeAccess();
+                List<Interval> expected = simulation.getIntervals();
+                List<Interval> actual = engine.getIntervals(s, d);
+                assertEquals(expected.size(), actual.size());
+                for (int i = 0; i < expected.size(); i++) {
+                    assertEquals(expected.get(i).getStart(), actual.get(i).getStart());
+                    assertEquals(expected.get(i).getEnd(), actual.get(i).getEnd());
+                    assertEquals(devices.get(d).getId(), (int) actual.get(i).getFirstFrom());
+                    assertEquals(satellites.get(s).getId(), (int) actual.get(i).getFirstTo());
+                }
+            }
+        }
+
+    }
+
+    @Test
+    public void testMultiplexedMatchesPairwise() {
+
+        List<Satellite> satellites = satellites();
+        List<Device> devices = devices();
+        AccessEngine pairwise = new AccessEngine(START, END, devices, satellites, 60, 5);
+        pairwise.computeAccess();
+        AccessEngine multiplexed = new AccessEngine(START, END, devices, satellites, 60, 5);
+        multiplexed.setMultiplexed(true);
+        multiplexed.computeAccess();
+
+        for (int pair = 0; pair < pairwise.getPairCount(); pair++) {
+            List<Interval> expected = pairwise.getPairIntervals().get(pair);
+            List<Interval> actual = multiplexed.getPairIntervals().get(pair);
+            assertEquals(expected.size(), actual.size());
+            for (int i = 0; i < expected.size(); i++) {
+                // Roots are located within th_detection, the sampling grid differs between both modes
+                assertEquals(expected.get(i).getStart(), actual.get(i).getStart(), 2);
+                assertEquals(expected.get(i).getEnd(), actual.get(i).getEnd(), 2);
+                assertEquals(expected.get(i).getFirstFrom(), actual.get(i).getFirstFrom());
+                assertEquals(expected.get(i).getFirstTo(), actual.get(i).getFirstTo());
+            }
+        }
+
+    }
+
+    @Test
+    public void testPreFilterOnlyPrunesPairsWithoutAccess() {
+
+        Satellite equatorial = new Satellite(0, new OrbitalElements("2022-03-20T00:00:00.000", 6928135, 0.001, 5, 0, 0, 0));
+        List<Satellite> satellites = List.of(equatorial, satellites().get(0));
+        List<Device> devices = List.of(new Device(0, 0, 0, 0), new Device(1, 20, 30, 0),
+                new Device(2, 30, 30, 0), new Device(3, -70, -60, 0), new Device(4, 80, 10, 0));
+
+        AccessEngine filtered = new AccessEngine(START, END, devices, satellites, 60, 5);
+        filtered.computeAccess();
+        AccessEngine unfiltered = new AccessEngine(START, END, devices, satellites, 60, 5);
+        unfiltered.setPreFilter(false);
+        unfiltered.computeAccess();
+
+        // Equatorial satellite: lat 30, -70 and 80 are out of reach. ISS: lat -70 and 80 are out of reach
+        assertEquals(5, filtered.getPrunedPairs());
+        assertEquals(0, unfiltered.getPrunedPairs());
+        for (int pair = 0; pair < filtered.getPairCount(); pair++) {
+            assertEquals(unfiltered.getPairIntervals().get(pair).size(), filtered.getPairIntervals().get(pair).size());
+        }
+        assertTrue(unfiltered.getIntervals(0, 1).size() > 0);
+
+    }
+
+}
@@ -0,0 +1,93 @@
+package satellite.tools.simulation;
+
+import org.junit.Test;
+import satellite.tools.Simulation;
+import satellite.tools.assets.entities.Device;
+import satellite.tools.assets.entities.Satellite;
+import satellite.tools.structures.ChebyshevEphemeris;
+import satellite.tools.structures.Ephemeris;
+import satellite.tools.structures.EphemerisBlock;
+import satellite.tools.utils.Log;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ChebyshevEphemerisTest {
+
+    private static final String START = "2022-05-02T00:00:00.000";
+    private static final String END = "2022-05-02T06:00:00.000";
+
+    private Simulation simulation() {
+        Satellite satellite = new Satellite("1 25544U 98067A   22122.68846215  .00030457  00000-0  54086-3 0  9994",
+                "2 25544  51.6435 201.9265 0006436  54.9097 105.7177 15.49915502338120");
+        return new Simulation(START, END, new Device(3, -34.6, -58.4, 25), satellite, 1, 5);
+    }
+
+    @Test
+    public void testMatchesPropagatedSamples() {
+
+        Simulation simulation = simulation();
+        EphemerisBlock samples = simulation.computePVDBlock();
+        ChebyshevEphemeris chebyshev = simulation.computePVDChebyshev(600, 12);
+        Log.debug("Chebyshev fit: " + simulation.getLastSimTime() + " ms, " + chebyshev.getBlockCount() + " blocks");
+
+        double maxPosition = 0;
+        double maxVelocity = 0;
+        double maxRange = 0;
+        double maxDoppler = 0;
+        for (int i = 0; i < samples.size(); i++) {
+            Ephemeris ephemeris = chebyshev.getEphemeris(samples.getTime(i));
+            maxPosition = Math.max(maxPosition, Math.abs(ephemeris.getPosX() - samples.getPosX(i)));
+            maxPosition = Math.max(maxPosition, Math.abs(ephemeris.getPosZ() - samples.getPosZ(i)));
+            maxVelocity = Math.max(maxVelocity, Math.abs(ephemeris.getVelY() - samples.getVelY(i)));
+            maxRange = Math.max(maxRange, Math.abs(ephemeris.getRange() - samples.getRange(i)));
+            maxDoppler = Math.max(maxDoppler, Math.abs(ephemeris.getDopplerShift() - samples.getDopplerShift(i)));
+        }
+        Log.debug("Chebyshev errors: position " + maxPosition + " m, velocity " + maxVelocity + " m/s, range "
+                + maxRange + " m, doppler " + maxDoppler + " m/s");
+        assertEquals(0, maxPosition, 1e-2);
+        assertEquals(0, maxRange, 1e-2);
+        // Velocities are derived from the positions, SGP4's own velocities differ by a few centimetres per second
+        assertEquals(0, maxVelocity, 0.05);
+        assertEquals(0, maxDoppler, 0.05);
+        assertEquals(3, chebyshev.getEphemeris(samples.getTime(0)).getIndexFrom());
+
+        // Raw samples take a long and eight doubles each
+        int rawSize = samples.size() * 9 * 8;
+        Log.debug("Raw samples: " + rawSize + " bytes, Chebyshev: " + chebyshev.getSerializedSize() + " bytes");
+        assertTrue(rawSize > 10 * chebyshev.getSerializedSize());
+
+        long t0 = System.nanoTime();
+        double[] position = new double[3];
+        for (int i = 0; i < samples.size(); i++) {
+            chebyshev.evaluate(samples.getTime(i), position, null);
+        }
+        double lookupTime = (System.nanoTime() - t0) / 1e6;
+        Log.debug(samples.size() + " lookups: " + lookupTime + " ms, propagation: " + simulation.getLastSimTime() + " ms");
+
+    }
+
+    @Test
+    public void testBinaryRoundTrip() throws IOException {
+
+        ChebyshevEphemeris chebyshev = simulation().computePVDChebyshev(900, 10);
+        var out = new ByteArrayOutputStream();
+        chebyshev.write(out);
+        assertEquals(chebyshev.getSerializedSize(), out.size());
+
+        ChebyshevEphemeris read = ChebyshevEphemeris.read(new ByteArrayInputStream(out.toByteArray()));
+        assertEquals(chebyshev.getStart(), read.getStart());
+        assertEquals(chebyshev.getEnd(), read.getEnd());
+        assertEquals(chebyshev.getDegree(), read.getDegree());
+        assertEquals(chebyshev.getBlockCount(), read.getBlockCount());
+        assertEquals(chebyshev.getIndexTo(), read.getIndexTo());
+        assertArrayEquals(chebyshev.getCoefficients(), read.getCoefficients(), 0);
+
+    }
+
+}
@@ -0,0 +1,44 @@
+package satellite.tools.simulation;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import satellite.tools.ConjunctionEngine;
+import satellite.tools.assets.entities.Satellite;
+import satellite.tools.utils.Log;
+import satellite.tools.utils.Utils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Scale run of ConjunctionEngine, left out of mvn test (surefire only picks up *Test classes). Run it with
+ * mvn test -Dtest=ConjunctionEngineBenchmark.
+ */
+public class ConjunctionEngineBenchmark {
+
+    private static final String ISS1 = "1 25544U 98067A   22122.68846215  .00030457  00000-0  54086-3 0  9994";
+    private static final String ISS2 = "2 25544  51.6435 201.9265 0006436  54.9097 105.7177 15.49915502338120";
+
+    @BeforeClass
+    public static void loadOrekitData() {
+        Utils.loadOrekitData();
+    }
+
+    @Test
+    public void benchmarkLargeCatalog() {
+
+        List<Satellite> primaries = new ArrayList<>(ConjunctionEngineTest.catalog(9, 6700e3, 0, 4));
+        primaries.add(new Satellite(9, ISS1, ISS2));
+        List<Satellite> catalog = ConjunctionEngineTest.catalog(4000, 6700e3, 100, 5);
+        catalog.addAll(ConjunctionEngineTest.catalog(1000, 7200e3, 5000, 6));
+
+        ConjunctionEngine engine = new ConjunctionEngine(ConjunctionEngineTest.START, ConjunctionEngineTest.END,
+                primaries, catalog, 60, 10e3);
+        engine.computeConjunctions();
+        Log.info("Screened " + primaries.size() + " primaries against " + catalog.size() + " objects: "
+                + engine.getConjunctions().size() + " conjunctions, " + engine.getCandidates() + " candidates in "
+                + engine.getLastSimTime() + " ms (" + engine.getPairsPerSecond() + " pairs/s)");
+
+    }
+
+}
@@ -0,0 +1,126 @@
+package satellite.tools.simulation;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.orekit.time.TimeScalesFactory;
+import satellite.tools.ConjunctionEngine;
+import satellite.tools.assets.entities.Satellite;
+import satellite.tools.propagation.Sgp4Kernel;
+import satellite.tools.structures.Conjunction;
+import satellite.tools.structures.OrbitalElements;
+import satellite.tools.utils.Utils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ConjunctionEngineTest {
+
+    static final String START = "2022-05-02T00:00:00.000";
+    static final String END = "2022-05-02T02:00:00.000";
+
+    @BeforeClass
+    public static void loadOrekitData() {
+        Utils.loadOrekitData();
+    }
+
+    /**
+     * Random near-circular orbits around the given radius, with ids from the given one
+     */
+    static List<Satellite> catalog(int size, double radius, int firstId, long seed) {
+        Random random = new Random(seed);
+        List<Satellite> satellites = new ArrayList<>();
+        for (int s = 0; s < size; s++) {
+            satellites.add(new Satellite(firstId + s, new OrbitalElements(START, radius + 20e3 * random.nextDouble(),
+                    0.001 * random.nextDouble(), 180 * random.nextDouble(), 360 * random.nextDouble(),
+                    360 * random.nextDouble(), 360 * random.nextDouble())));
+        }
+        return satellites;
+    }
+
+    private static double distance(Sgp4Kernel k1, Sgp4Kernel k2, long time) {
+        double[] p = new double[3];
+        double[] q = new double[3];
+        k1.propagate(time, p, null);
+        k2.propagate(time, q, null);
+        return Math.sqrt((q[0] - p[0]) * (q[0] - p[0]) + (q[1] - p[1]) * (q[1] - p[1]) + (q[2] - p[2]) * (q[2] - p[2]));
+    }
+
+    @Test
+    public void testAgainstBruteForce() {
+
+        double threshold = 300e3;
+        List<Satellite> primaries = catalog(3, 6928e3, 0, 1);
+        List<Satellite> catalog = catalog(40, 6928e3, 100, 2);
+        catalog.addAll(catalog(5, 42164e3, 1000, 3));
+        catalog.add(primaries.get(0));
+
+        ConjunctionEngine engine = new ConjunctionEngine(START, END, primaries, catalog, 60, threshold);
+        engine.computeConjunctions();
+        // Geostationary objects and the primary itself are filtered out
+        assertEquals(3 * 41 - 1, engine.getFilteredPairs());
+        List<Satellite> nearby = new ArrayList<>(catalog.subList(0, 40));
+        nearby.add(primaries.get(0));
+
+        // Local minima of the distance of every pair, sampled every 4 seconds and refined by ternary search
+        long start = Utils.stamp2AD(START).toDate(TimeScalesFactory.getUTC()).getTime();
+        long end = Utils.stamp2AD(END).toDate(TimeScalesFactory.getUTC()).getTime();
+        List<Conjunction> expected = new ArrayList<>();
+        for (Satellite primary : primaries) {
+            var k1 = new Sgp4Kernel(primary);
+            for (Satellite secondary : nearby) {
+                if (secondary == primary) {
+                    continue;
+                }
+                var k2 = new Sgp4Kernel(secondary);
+                double previous = distance(k1, k2, start);
+                double d = distance(k1, k2, start + 4000);
+                for (long t = start + 4000; t < end; t += 4000) {
+                    double next = distance(k1, k2, t + 4000);
+                    if (d < threshold + 50e3 && d <= previous && d < next) {
+                        long a = t - 4000;
+                        long b = t + 4000;
+                        while (b - a > 2) {
+                            long m1 = a + (b - a) / 3;
+                            long m2 = b - (b - a) / 3;
+                            if (distance(k1, k2, m1) < distance(k1, k2, m2)) {
+                                b = m2;
+                            } else {
+                                a = m1;
+                            }
+                        }
+                        double miss = distance(k1, k2, a);
+                        if (miss <= threshold) {
+                            expected.add(new Conjunction(a, primary.getId(), secondary.getId(), miss, 0));
+                        }
+                    }
+                    previous = d;
+                    d = next;
+                }
+            }
+        }
+
+        List<Conjunction> found = engine.getConjunctions();
+        assertTrue(expected.size() > 0);
+        assertEquals(expected.size(), found.size());
+        for (Conjunction conjunction : expected) {
+            boolean matched = false;
+            for (Conjunction candidate : found) {
+                matched |= candidate.getPrimaryId() == conjunction.getPrimaryId()
+                        && candidate.getSecondaryId() == conjunction.getSecondaryId()
+                        && Math.abs(candidate.getTime() - conjunction.getTime()) <= 5
+                        && Math.abs(candidate.getMissDistance() - conjunction.getMissDistance()) < 1;
+            }
+            assertTrue("Missed " + conjunction, matched);
+        }
+        for (Conjunction conjunction : found) {
+            assertTrue(conjunction.getMissDistance() <= threshold);
+            assertTrue(conjunction.getRelativeSpeed() > 0);
+        }
+
+    }
+
+}
@@ -0,0 +1,96 @@
+package satellite.tools.simulation;
+
+import org.junit.Test;
+import org.orekit.time.TimeScalesFactory;
+import satellite.tools.CoverageEngine;
+import satellite.tools.Simulation;
+import satellite.tools.assets.entities.Device;
+import satellite.tools.assets.entities.Satellite;
+import satellite.tools.structures.CoverageGrid;
+import satellite.tools.structures.Interval;
+import satellite.tools.structures.IntervalSet;
+import satellite.tools.structures.OrbitalElements;
+import satellite.tools.utils.Log;
+import satellite.tools.utils.Utils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class CoverageEngineTest {
+
+    private static final String START = "2022-05-02T00:00:00.000";
+    private static final String END = "2022-05-02T12:00:00.000";
+    private static final double STEP = 20;
+
+    private List<Satellite> satellites() {
+        Satellite iss = new Satellite(0, "1 25544U 98067A   22122.68846215  .00030457  00000-0  54086-3 0  9994",
+                "2 25544  51.6435 201.9265 0006436  54.9097 105.7177 15.49915502338120");
+        Satellite sso = new Satellite(1, new OrbitalElements("2022-05-02T00:00:00.000", 6978135, 0, 98, 310, 0, 220));
+        return List.of(iss, sso);
+    }
+
+    @Test
+    public void testMatchesSimulationPerCell() {
+
+        List<Satellite> satellites = satellites();
+        CoverageGrid grid = new CoverageGrid(15, -75, 75);
+        CoverageEngine engine = new CoverageEngine(START, END, grid, satellites, STEP, 5);
+        engine.computeCoverage();
+        Log.debug("Cells/s: " + engine.getCellsPerSecond() + ", mean coverage: " + engine.getMeanCoverage());
+
+        long start = Utils.stamp2AD(START).toDate(TimeScalesFactory.getUTC()).getTime();
+        long end = Utils.stamp2AD(END).toDate(TimeScalesFactory.getUTC()).getTime();
+        double window = (end - start) / 1000.0;
+        int covered = 0;
+
+        for (int c = 0; c < grid.size(); c += 5) {
+            List<Interval> intervals = new ArrayList<>();
+            for (Satellite satellite : satellites) {
+                Device device = new Device(c, grid.getLatitude(c), grid.getLongitude(c), 0);
+                // Simulation only keeps finished passes, so its window is widened and the intervals clipped
+                Simulation simulation = new Simulation("2022-05-01T23:00:00.000", "2022-05-02T13:00:00.000", device,
+                        satellite, STEP, 5);
+                simulation.computeAccess();
+                intervals.addAll(simulation.getIntervals());
+            }
+            IntervalSet set = IntervalSet.of(intervals).clip(start, end);
+            // A step of error at both ends of every pass
+            double tolerance = 2 * STEP * (set.size() + 1);
+            assertEquals(set.getCoverage(start, end), engine.getCoverage(c), tolerance / window);
+            if (set.size() > 0) {
+                covered++;
+                long first = set.getStart(0) - start;
+                long last = end - set.getEnd(set.size() - 1);
+                double maxGap = Math.max(set.getMaxRevisitGap(), Math.max(first, last)) / 1000.0;
+                assertEquals(maxGap, engine.getMaxGap(c), 2 * STEP);
+                assertEquals(set.size(), engine.getAccessCount(c));
+            } else {
+                assertEquals(window, engine.getMaxGap(c), STEP);
+            }
+        }
+        assertTrue(covered > 0);
+
+    }
+
+    @Test
+    public void testFineGrid() {
+
+        CoverageGrid grid = new CoverageGrid(1, -90, 90);
+        CoverageEngine engine = new CoverageEngine(START, END, grid, satellites(), 60, 10);
+        engine.computeCoverage();
+        Log.debug(grid.size() + " cells in " + engine.getLastSimTime() + " ms (" + engine.getCellsPerSecond()
+                + " cells/s), mean coverage: " + engine.getMeanCoverage());
+
+        // The ISS does not reach the poles, the SSO flies over them every orbit
+        int equator = grid.getCell(0.5, 10);
+        int pole = grid.getCell(89.5, 10);
+        assertTrue(engine.getCoverage(pole) > engine.getCoverage(equator));
+        assertTrue(engine.getMeanRevisit(pole) > 0);
+        assertTrue(engine.getMeanCoverage() > 0 && engine.getMeanCoverage() < 0.2);
+
+    }
+
+}
@@ -0,0 +1,101 @@
+package satellite.tools.simulation;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.orekit.time.AbsoluteDate;
+import satellite.tools.Simulation;
+import satellite.tools.assets.entities.Device;
+import satellite.tools.assets.entities.Satellite;
+import satellite.tools.propagation.EphemerisCache;
+import satellite.tools.propagation.Sgp4Kernel;
+import satellite.tools.structures.EphemerisBlock;
+import satellite.tools.structures.OrbitalElements;
+import satellite.tools.utils.Log;
+import satellite.tools.utils.Utils;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class EphemerisCacheTest {
+
+    private static final Satellite ISS = new Satellite("1 25544U 98067A   22122.68846215  .00030457  00000-0  54086-3 0  9994",
+            "2 25544  51.6435 201.9265 0006436  54.9097 105.7177 15.49915502338120");
+
+    @BeforeClass
+    public static void loadOrekitData() {
+        Utils.loadOrekitData();
+    }
+
+    private void assertWithinBudget(Satellite satellite, double errorBudget, double velocityTolerance) {
+
+        Sgp4Kernel kernel = new Sgp4Kernel(satellite);
+        EphemerisCache cache = new EphemerisCache(satellite, errorBudget);
+        AbsoluteDate start = kernel.getEpoch();
+        double[] expectedPosition = new double[3];
+        double[] expectedVelocity = new double[3];
+        double[] position = new double[3];
+        double[] velocity = new double[3];
+
+        double maxPosition = 0;
+        double maxVelocity = 0;
+        for (int t = 0; t < 86400; t++) {
+            kernel.propagate(start.shiftedBy(t), expectedPosition, expectedVelocity);
+            cache.interpolate(start.shiftedBy(t), position, velocity);
+            for (int j = 0; j < 3; j++) {
+                maxPosition = Math.max(maxPosition, Math.abs(expectedPosition[j] - position[j]));
+                maxVelocity = Math.max(maxVelocity, Math.abs(expectedVelocity[j] - velocity[j]));
+            }
+        }
+        Log.debug("Budget " + errorBudget + " m, spacing " + cache.getSpacing() + " s, " + cache.getNodeCount()
+                + " nodes: max position error " + maxPosition + " m, max velocity error " + maxVelocity + " m/s");
+        assertTrue(maxPosition < errorBudget);
+        assertTrue(maxVelocity < velocityTolerance);
+        assertEquals(Math.floor(86399 / cache.getSpacing()) + 2, cache.getNodeCount(), 0);
+
+    }
+
+    @Test
+    public void testInterpolationWithinErrorBudget() {
+        Satellite eccentric = new Satellite(new OrbitalElements("2022-03-20T00:00:00.000", 7578135, 0.05, 63.4, 30, 270, 10));
+        assertWithinBudget(ISS, EphemerisCache.DEFAULT_ERROR_BUDGET, 0.05);
+        assertWithinBudget(ISS, EphemerisCache.MIN_ERROR_BUDGET, 0.05);
+        // SGP4 velocities drift further from the derivative of its positions on eccentric orbits
+        assertWithinBudget(eccentric, EphemerisCache.DEFAULT_ERROR_BUDGET, 0.5);
+    }
+
+    @Test
+    public void testCacheSharedBetweenDevices() {
+
+        String start = "2022-05-02T00:00:00.000";
+        String end = "2022-05-02T06:00:00.000";
+        List<Device> devices = List.of(new Device(0, 15, 15, 3), new Device(1, -34.6, -58.4, 25),
+                new Device(2, 60, 10, 0));
+        EphemerisCache cache = new EphemerisCache(ISS, EphemerisCache.DEFAULT_ERROR_BUDGET);
+
+        int nodes = 0;
+        for (Device device : devices) {
+            Simulation exact = new Simulation(start, end, device, ISS, 1, 5);
+            EphemerisBlock expected = exact.computePVDBlock();
+            Simulation interpolated = new Simulation(start, end, device, ISS, 1, 5);
+            interpolated.setEphemerisCache(cache);
+            EphemerisBlock actual = interpolated.computePVDBlock();
+            Log.debug("Device " + device.getId() + ": exact " + exact.getLastSimTime() + " ms, interpolated "
+                    + interpolated.getLastSimTime() + " ms");
+
+            assertEquals(expected.size(), actual.size());
+            for (int i = 0; i < expected.size(); i++) {
+                assertEquals(expected.getTime(i), actual.getTime(i));
+                assertEquals(expected.getRange(i), actual.getRange(i), EphemerisCache.DEFAULT_ERROR_BUDGET);
+            }
+            // Only the first device propagates nodes, the others reuse them
+            if (nodes == 0) {
+                nodes = cache.getNodeCount();
+            }
+            assertEquals(nodes, cache.getNodeCount());
+        }
+
+    }
+
+}
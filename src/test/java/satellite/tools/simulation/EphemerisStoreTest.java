@@ -0,0 +1,163 @@
+package satellite.tools.simulation;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import satellite.tools.Simulation;
+import satellite.tools.assets.entities.Device;
+import satellite.tools.assets.entities.Satellite;
+import satellite.tools.structures.Ephemeris;
+import satellite.tools.structures.EphemerisBlock;
+import satellite.tools.structures.EphemerisStore;
+import satellite.tools.utils.Log;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+public class EphemerisStoreTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testWriteAndMap() throws IOException {
+
+        Satellite satellite = new Satellite("1 25544U 98067A   22122.68846215  .00030457  00000-0  54086-3 0  9994",
+                "2 25544  51.6435 201.9265 0006436  54.9097 105.7177 15.49915502338120");
+        // The window is a whole number of steps, so the block ends with the end time twice
+        Simulation simulation = new Simulation("2022-05-02T00:00:00.000", "2022-05-02T01:00:00.000",
+                new Device(3, -34.6, -58.4, 25), satellite, 1, 5);
+        EphemerisBlock block = simulation.computePVDBlock();
+
+        Path path = folder.getRoot().toPath().resolve("iss.eph");
+        long t0 = System.nanoTime();
+        EphemerisStore.write(path, block);
+        Log.debug("Wrote " + Files.size(path) + " bytes in " + (System.nanoTime() - t0) / 1e6 + " ms");
+
+        t0 = System.nanoTime();
+        try (EphemerisStore store = EphemerisStore.open(path); EphemerisStore shared = EphemerisStore.open(path)) {
+            Log.debug("Opened in " + (System.nanoTime() - t0) / 1e6 + " ms");
+
+            assertEquals(3602, block.size());
+            assertEquals(block.getTime(3600), block.getTime(3601));
+            assertEquals(block.size() - 1, store.size());
+            assertEquals(block.getIndexTo(), store.getIndexTo());
+            assertEquals(1000, store.getStep());
+            for (int i = 0; i < store.size(); i++) {
+                Ephemeris expected = block.getEphemeris(i);
+                Ephemeris read = store.getEphemerisAt(block.getTime(i));
+                assertEquals(expected.getTime(), read.getTime());
+                assertEquals(expected.getPosX(), read.getPosX(), 0);
+                assertEquals(expected.getPosY(), read.getPosY(), 0);
+                assertEquals(expected.getPosZ(), read.getPosZ(), 0);
+                assertEquals(expected.getVelX(), read.getVelX(), 0);
+                assertEquals(expected.getVelZ(), read.getVelZ(), 0);
+                assertEquals(expected.getRange(), read.getRange(), 0);
+                assertEquals(expected.getDopplerShift(), read.getDopplerShift(), 0);
+            }
+
+            // Times between samples fall on the previous one
+            assertEquals(10, store.indexOf(block.getTime(10) + 999));
+            assertEquals(store.size() - 2, store.indexOf(block.getTime(block.size() - 1) - 1));
+            assertNull(store.getEphemerisAt(block.getTime(0) - 1));
+            assertNull(store.getEphemerisAt(block.getTime(block.size() - 1) + 1));
+
+            EphemerisBlock copy = shared.toBlock(100, 200);
+            assertEquals(100, copy.size());
+            assertEquals(block.getRange(150), copy.getRange(50), 0);
+        }
+
+    }
+
+    @Test
+    public void testStreamingWriter() throws IOException {
+
+        Satellite satellite = new Satellite("1 25544U 98067A   22122.68846215  .00030457  00000-0  54086-3 0  9994",
+                "2 25544  51.6435 201.9265 0006436  54.9097 105.7177 15.49915502338120");
+        Simulation simulation = new Simulation("2022-05-02T00:00:00.000", "2022-05-02T01:00:00.000",
+                new Device(3, -34.6, -58.4, 25), satellite, 1, 5);
+        EphemerisBlock block = simulation.computePVDBlock();
+        assertEquals(block.size(), simulation.countGridPoints());
+
+        // Straight from the simulation, without holding the ephemeris
+        Path streamed = folder.getRoot().toPath().resolve("streamed.eph");
+        try (EphemerisStore.Writer writer = EphemerisStore.newWriter(streamed, 3, satellite.getId(),
+                simulation.countGridPoints())) {
+            simulation.computePVD(writer);
+            assertEquals(block.size() - 1, writer.size());
+        }
+
+        // From blocks, with capacity to spare
+        Path chunked = folder.getRoot().toPath().resolve("chunked.eph");
+        try (EphemerisStore.Writer writer = EphemerisStore.newWriter(chunked, 3, satellite.getId(), 5000)) {
+            writer.add(simulation.computePVDBlockBetween("2022-05-02T00:00:00.000", "2022-05-02T00:29:59.000", 1));
+            writer.add(simulation.computePVDBlockBetween("2022-05-02T00:30:00.000", "2022-05-02T01:00:00.000", 1));
+        }
+
+        for (Path path : new Path[]{streamed, chunked}) {
+            try (EphemerisStore store = EphemerisStore.open(path)) {
+                assertEquals(block.size() - 1, store.size());
+                assertEquals(1000, store.getStep());
+                assertEquals(3, store.getIndexFrom());
+                for (int i = 0; i < store.size(); i++) {
+                    assertEquals(block.getTime(i), store.getTime(i));
+                    assertEquals(block.getPosX(i), store.getPosX(i), 1e-6);
+                    assertEquals(block.getVelZ(i), store.getVelZ(i), 1e-9);
+                    assertEquals(block.getRange(i), store.getRange(i), 1e-6);
+                    assertEquals(block.getDopplerShift(i), store.getDopplerShift(i), 1e-9);
+                }
+            }
+        }
+
+    }
+
+    @Test
+    public void testRejectsInvalidFiles() throws IOException {
+
+        Path path = folder.getRoot().toPath().resolve("invalid.eph");
+        Files.write(path, new byte[128]);
+        try (EphemerisStore ignored = EphemerisStore.open(path)) {
+            fail("A file without header should not open");
+        } catch (IOException e) {
+            Log.debug("Rejected: " + e.getMessage());
+        }
+
+        EphemerisBlock block = new EphemerisBlock(1, 2, 3);
+        block.add(0, 0, 0, 0, 0, 0, 0, 0, 0);
+        block.add(1000, 0, 0, 0, 0, 0, 0, 0, 0);
+        block.add(3000, 0, 0, 0, 0, 0, 0, 0, 0);
+        try {
+            EphemerisStore.write(path, block);
+            fail("Unevenly spaced samples should not be written");
+        } catch (IllegalArgumentException e) {
+            Log.debug("Rejected: " + e.getMessage());
+        }
+
+        // A repeated time is only left out as the last sample, and the capacity is a bound
+        try (EphemerisStore.Writer writer = EphemerisStore.newWriter(path, 1, 2, 3)) {
+            writer.add(0, 0, 0, 0, 0, 0, 0, 0, 0);
+            writer.add(1000, 0, 0, 0, 0, 0, 0, 0, 0);
+            writer.add(1000, 0, 0, 0, 0, 0, 0, 0, 0);
+            writer.add(2000, 0, 0, 0, 0, 0, 0, 0, 0);
+            fail("Samples after a repeated time should not be written");
+        } catch (IllegalArgumentException e) {
+            Log.debug("Rejected: " + e.getMessage());
+        }
+        try (EphemerisStore.Writer writer = EphemerisStore.newWriter(path, 1, 2, 2)) {
+            writer.add(0, 0, 0, 0, 0, 0, 0, 0, 0);
+            writer.add(1000, 0, 0, 0, 0, 0, 0, 0, 0);
+            writer.add(1000, 0, 0, 0, 0, 0, 0, 0, 0);
+            writer.add(2000, 0, 0, 0, 0, 0, 0, 0, 0);
+            fail("Samples beyond the capacity should not be written");
+        } catch (IllegalArgumentException e) {
+            Log.debug("Rejected: " + e.getMessage());
+        }
+
+    }
+
+}
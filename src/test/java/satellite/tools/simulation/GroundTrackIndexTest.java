@@ -0,0 +1,148 @@
+package satellite.tools.simulation;
+
+import org.junit.Test;
+import org.orekit.bodies.GeodeticPoint;
+import org.orekit.bodies.OneAxisEllipsoid;
+import org.orekit.propagation.analytical.tle.TLE;
+import org.orekit.propagation.analytical.tle.TLEPropagator;
+import org.orekit.time.AbsoluteDate;
+import org.orekit.utils.Constants;
+import satellite.tools.GroundTrackIndex;
+import satellite.tools.Simulation;
+import satellite.tools.assets.entities.Satellite;
+import satellite.tools.structures.OrbitalElements;
+import satellite.tools.utils.Log;
+import satellite.tools.utils.Utils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class GroundTrackIndexTest {
+
+    private static final String START = "2022-05-02T00:00:00.000";
+    private static final String END = "2022-05-02T02:00:00.000";
+
+    private static final String ISS1 = "1 25544U 98067A   22122.68846215  .00030457  00000-0  54086-3 0  9994";
+    private static final String ISS2 = "2 25544  51.6435 201.9265 0006436  54.9097 105.7177 15.49915502338120";
+
+    /**
+     * The ISS followed by shells of near-Earth satellites at several inclinations
+     */
+    private List<Satellite> catalog(int planes, int perPlane) {
+        List<Satellite> satellites = new ArrayList<>();
+        satellites.add(new Satellite(ISS1, ISS2));
+        double[] inclinations = {53, 70, 97.6};
+        for (int p = 0; p < planes; p++) {
+            for (int s = 0; s < perPlane; s++) {
+                satellites.add(new Satellite(new OrbitalElements(START, 6928135 + 2000 * (s % 5), 0.001,
+                        inclinations[p % 3], 360.0 * p / planes, 90, 360.0 * s / perPlane)));
+            }
+        }
+        return satellites;
+    }
+
+    /**
+     * Positions of the satellites with a sample in the region, checked over every sample
+     */
+    private static int[] bruteForce(GroundTrackIndex index, double minLat, double maxLat, double minLon, double maxLon,
+                                    int firstStep, int lastStep) {
+        List<Integer> result = new ArrayList<>();
+        for (int s = 0; s < index.getSatellites().size(); s++) {
+            for (int k = firstStep; k <= lastStep; k++) {
+                double lat = index.getLatitude(k, s);
+                double lon = index.getLongitude(k, s);
+                boolean inLongitude = minLon > maxLon ? lon >= minLon || lon <= maxLon : lon >= minLon && lon <= maxLon;
+                if (lat >= minLat && lat <= maxLat && inLongitude) {
+                    result.add(s);
+                    break;
+                }
+            }
+        }
+        return result.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    @Test
+    public void testSubSatellitePoints() {
+
+        GroundTrackIndex index = new GroundTrackIndex(START, END, List.of(new Satellite(ISS1, ISS2)), 60);
+        index.build();
+        assertEquals(121, index.getSteps());
+
+        TLEPropagator propagator = TLEPropagator.selectExtrapolator(new TLE(ISS1, ISS2));
+        var earth = new OneAxisEllipsoid(Constants.WGS84_EARTH_EQUATORIAL_RADIUS, Constants.WGS84_EARTH_FLATTENING,
+                Simulation.getEarthFrame());
+        AbsoluteDate start = Utils.stamp2AD(START);
+        for (int k = 0; k < index.getSteps(); k += 10) {
+            AbsoluteDate date = start.shiftedBy(k * 60.0);
+            GeodeticPoint point = earth.transform(propagator.getPVCoordinates(date, Simulation.getEarthFrame())
+                    .getPosition(), Simulation.getEarthFrame(), date);
+            assertEquals(Math.toDegrees(point.getLatitude()), index.getLatitude(k, 0), 1e-4);
+            assertEquals(Math.toDegrees(point.getLongitude()), index.getLongitude(k, 0), 1e-4);
+        }
+
+    }
+
+    @Test
+    public void testQueriesMatchBruteForce() {
+
+        List<Satellite> satellites = catalog(30, 40);
+        GroundTrackIndex index = new GroundTrackIndex(START, END, satellites, 30);
+        index.setResolution(5, 600);
+        index.build();
+        Log.debug("Index of " + satellites.size() + " satellites built in " + index.getLastSimTime() + " ms");
+
+        Random random = new Random(5);
+        long start = index.getTime(0);
+        double queryTime = 0;
+        int total = 0;
+        for (int q = 0; q < 200; q++) {
+            double minLat = -80 + 150 * random.nextDouble();
+            double maxLat = minLat + 20 * random.nextDouble();
+            double minLon = -180 + 360 * random.nextDouble();
+            double maxLon = minLon + 40 * random.nextDouble();
+            if (maxLon > 180) {
+                // Crosses the antimeridian
+                maxLon -= 360;
+            }
+            int firstStep = random.nextInt(index.getSteps());
+            int lastStep = Math.min(index.getSteps() - 1, firstStep + random.nextInt(120));
+
+            long t0 = System.nanoTime();
+            int[] result = index.query(minLat, maxLat, minLon, maxLon, index.getTime(firstStep) - 1,
+                    index.getTime(lastStep) + 1);
+            queryTime += (System.nanoTime() - t0) / 1e6;
+            total += result.length;
+            assertArrayEquals(bruteForce(index, minLat, maxLat, minLon, maxLon, firstStep, lastStep), result);
+        }
+        assertTrue(total > 0);
+        Log.debug("200 region queries in " + queryTime + " ms, " + total + " overflights");
+
+        // Times outside the scenario
+        assertEquals(0, index.query(-90, 90, -180, 180, start - 10000, start - 1).length);
+        assertEquals(satellites.size(), index.query(-90, 90, -180, 180, start, start + 7200_000).length);
+
+    }
+
+    @Test
+    public void testRejectsTooManySamples() {
+
+        // 30k satellites over a day at 1 s would overflow the sample columns
+        var satellites = Collections.nCopies(30000, new Satellite(ISS1, ISS2));
+        var index = new GroundTrackIndex(START, "2022-05-03T00:00:00.000", satellites, 1);
+        try {
+            index.build();
+            fail("The index should not hold more than " + GroundTrackIndex.MAX_SAMPLES + " samples");
+        } catch (IllegalArgumentException e) {
+            Log.debug("Rejected: " + e.getMessage());
+        }
+
+    }
+
+}
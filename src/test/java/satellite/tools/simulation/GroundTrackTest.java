@@ -0,0 +1,88 @@
+package satellite.tools.simulation;
+
+import org.junit.Test;
+import org.orekit.bodies.GeodeticPoint;
+import org.orekit.bodies.OneAxisEllipsoid;
+import org.orekit.propagation.analytical.tle.TLE;
+import org.orekit.propagation.analytical.tle.TLEPropagator;
+import org.orekit.time.AbsoluteDate;
+import org.orekit.time.TimeScalesFactory;
+import org.orekit.utils.Constants;
+import satellite.tools.Simulation;
+import satellite.tools.assets.entities.Device;
+import satellite.tools.assets.entities.Satellite;
+import satellite.tools.structures.GroundTrack;
+import satellite.tools.structures.OrbitalElements;
+import satellite.tools.utils.Log;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class GroundTrackTest {
+
+    private static final String START = "2022-05-02T00:00:00.000";
+    private static final String END = "2022-05-03T00:00:00.000";
+    private static final String ISS1 = "1 25544U 98067A   22122.68846215  .00030457  00000-0  54086-3 0  9994";
+    private static final String ISS2 = "2 25544  51.6435 201.9265 0006436  54.9097 105.7177 15.49915502338120";
+
+    @Test
+    public void testMatchesOrekitProjection() {
+
+        Simulation simulation = new Simulation(START, END, new Device(0, 0, 0), new Satellite(ISS1, ISS2), 60, 5);
+        GroundTrack track = simulation.computeGroundTrack();
+        Log.debug("Ground track of " + track.size() + " points in " + simulation.getLastSimTime() + " ms");
+        // The time grid ends with the end date
+        assertEquals(1442, track.size());
+
+        TLEPropagator propagator = TLEPropagator.selectExtrapolator(new TLE(ISS1, ISS2));
+        var earth = new OneAxisEllipsoid(Constants.WGS84_EARTH_EQUATORIAL_RADIUS, Constants.WGS84_EARTH_FLATTENING,
+                Simulation.getEarthFrame());
+        for (int i = 0; i < track.size(); i += 37) {
+            AbsoluteDate date = new AbsoluteDate(new Date(track.getTime(i)), TimeScalesFactory.getUTC());
+            GeodeticPoint point = earth.transform(propagator.getPVCoordinates(date, Simulation.getEarthFrame())
+                    .getPosition(), Simulation.getEarthFrame(), date);
+            assertEquals(Math.toDegrees(point.getLatitude()), track.getLatitude(i), 1e-7);
+            assertEquals(Math.toDegrees(point.getLongitude()), track.getLongitude(i), 1e-7);
+            assertEquals(point.getAltitude(), track.getHeight(i), 1e-3);
+        }
+
+        // The allocation-free kernel follows the same path
+        simulation.setKernelPropagation(true);
+        GroundTrack kernelTrack = simulation.computeGroundTrack();
+        assertArrayEquals(track.getLatitudes(), kernelTrack.getLatitudes(), 1e-9);
+        assertArrayEquals(track.getLongitudes(), kernelTrack.getLongitudes(), 1e-9);
+
+    }
+
+    @Test
+    public void testFleet() {
+
+        List<Satellite> fleet = new ArrayList<>();
+        fleet.add(new Satellite(ISS1, ISS2));
+        for (int p = 0; p < 20; p++) {
+            for (int s = 0; s < 50; s++) {
+                fleet.add(new Satellite(1 + p * 50 + s, new OrbitalElements(START, 6928135, 0.001, 53, 18.0 * p, 90,
+                        7.2 * s)));
+            }
+        }
+
+        long t0 = System.currentTimeMillis();
+        List<GroundTrack> tracks = Simulation.computeGroundTracks(fleet, START, END, 60);
+        Log.debug("Fleet ground tracks: " + tracks.size() + " x " + tracks.get(0).size() + " points in "
+                + (System.currentTimeMillis() - t0) + " ms");
+        assertEquals(fleet.size(), tracks.size());
+        assertEquals(fleet.get(7).getId(), tracks.get(7).getSatelliteId());
+
+        Simulation simulation = new Simulation(START, END, new Device(0, 0, 0), fleet.get(0), 60, 5);
+        GroundTrack single = simulation.computeGroundTrack();
+        assertArrayEquals(single.getTimes(), tracks.get(0).getTimes());
+        assertArrayEquals(single.getLatitudes(), tracks.get(0).getLatitudes(), 1e-9);
+        assertArrayEquals(single.getHeights(), tracks.get(0).getHeights(), 1e-6);
+
+    }
+
+}
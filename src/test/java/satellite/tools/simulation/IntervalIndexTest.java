@@ -0,0 +1,109 @@
+package satellite.tools.simulation;
+
+import org.junit.Test;
+import satellite.tools.AccessEngine;
+import satellite.tools.assets.entities.Device;
+import satellite.tools.assets.entities.Satellite;
+import satellite.tools.structures.ContactIndex;
+import satellite.tools.structures.Interval;
+import satellite.tools.structures.IntervalIndex;
+import satellite.tools.structures.OrbitalElements;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class IntervalIndexTest {
+
+    private static List<Interval> randomIntervals(int count, long span, long maxDuration, Random random) {
+        List<Interval> intervals = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            long start = (long) (random.nextDouble() * span);
+            long end = start + (long) (random.nextDouble() * maxDuration);
+            intervals.add(new Interval(start, end, random.nextInt(50), random.nextInt(500)));
+        }
+        return intervals;
+    }
+
+    private static List<Interval> scan(List<Interval> intervals, long from, long to) {
+        List<Interval> result = new ArrayList<>();
+        for (Interval interval : intervals) {
+            if (interval.getStart() <= to && interval.getEnd() >= from) {
+                result.add(interval);
+            }
+        }
+        return result;
+    }
+
+    @Test
+    public void testMatchesLinearScan() {
+
+        Random random = new Random(7);
+        for (int size : new int[]{0, 1, 2, 7, 16, 100, 1023, 5000}) {
+            List<Interval> intervals = randomIntervals(size, 1_000_000, 20_000, random);
+            // A few long intervals, which the largest end of each subtree must account for
+            if (size > 10) {
+                intervals.add(new Interval(0, 900_000, 1, 1));
+                intervals.add(new Interval(500_000, 2_000_000, 1, 1));
+            }
+            IntervalIndex index = new IntervalIndex(intervals);
+            for (int q = 0; q < 200; q++) {
+                long from = (long) (random.nextDouble() * 1_100_000) - 50_000;
+                long to = from + (q % 2 == 0 ? 0 : (long) (random.nextDouble() * 30_000));
+                List<Interval> expected = scan(intervals, from, to);
+                List<Interval> actual = index.overlap(from, to);
+                assertEquals(expected.size(), actual.size());
+                assertEquals(expected.size(), index.count(from, to));
+                assertEquals(new HashSet<>(expected), new HashSet<>(actual));
+                if (from == to) {
+                    assertEquals(new HashSet<>(expected), new HashSet<>(index.stab(from)));
+                }
+                for (int i = 1; i < actual.size(); i++) {
+                    assertTrue(actual.get(i - 1).getStart() <= actual.get(i).getStart());
+                }
+            }
+        }
+
+    }
+
+    @Test
+    public void testContactIndex() {
+
+        Satellite iss = new Satellite(0, "1 25544U 98067A   22122.68846215  .00030457  00000-0  54086-3 0  9994",
+                "2 25544  51.6435 201.9265 0006436  54.9097 105.7177 15.49915502338120");
+        Satellite sso = new Satellite(1, new OrbitalElements("2022-03-20T00:00:00.000", 6978135, 0, 98, 310, 0, 220));
+        List<Device> devices = List.of(new Device(0, 15, 15, 3), new Device(1, -34.6, -58.4, 25),
+                new Device(2, 60, 10, 0));
+        AccessEngine engine = new AccessEngine("2022-03-20T12:00:00.000", "2022-03-21T00:00:00.000", devices,
+                List.of(iss, sso), 60, 5);
+        engine.computeAccess();
+        List<Interval> intervals = engine.getIntervals();
+        ContactIndex index = engine.getContactIndex();
+
+        for (Interval interval : intervals) {
+            long middle = (interval.getStart() + interval.getEnd()) / 2;
+            Set<Integer> satellites = index.getToAssetsAt(interval.getFirstFrom(), middle);
+            assertTrue(satellites.contains(interval.getFirstTo()));
+            Set<Integer> stations = index.getFromAssetsDuring(interval.getFirstTo(), interval.getStart() - 1000,
+                    interval.getStart());
+            assertTrue(stations.contains(interval.getFirstFrom()));
+            for (int d = 0; d < devices.size(); d++) {
+                List<Interval> expected = new ArrayList<>();
+                for (Interval i : scan(intervals, interval.getStart(), interval.getEnd())) {
+                    if (i.getFirstFrom() == d) {
+                        expected.add(i);
+                    }
+                }
+                assertEquals(expected.size(), index.getIntervalsFrom(d, interval.getStart(), interval.getEnd()).size());
+            }
+        }
+        assertTrue(index.getToAssetsAt(42, intervals.get(0).getStart()).isEmpty());
+
+    }
+
+}
@@ -0,0 +1,179 @@
+package satellite.tools.simulation;
+
+import org.junit.Test;
+import satellite.tools.Simulation;
+import satellite.tools.assets.entities.Device;
+import satellite.tools.assets.entities.Satellite;
+import satellite.tools.structures.Interval;
+import satellite.tools.structures.IntervalSet;
+import satellite.tools.utils.Log;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class IntervalSetTest {
+
+    private static final int SPAN = 10_000;
+
+    private static IntervalSet randomSet(int count, Random random) {
+        long[] starts = new long[count];
+        long[] ends = new long[count];
+        for (int i = 0; i < count; i++) {
+            starts[i] = random.nextInt(SPAN - 200);
+            ends[i] = starts[i] + random.nextInt(200);
+        }
+        return IntervalSet.fromArrays(starts, ends);
+    }
+
+    /**
+     * Marks every millisecond [t, t + 1) covered by the set
+     */
+    private static boolean[] cells(IntervalSet set) {
+        boolean[] cells = new boolean[SPAN];
+        for (int i = 0; i < set.size(); i++) {
+            for (long t = set.getStart(i); t < set.getEnd(i); t++) {
+                cells[(int) t] = true;
+            }
+        }
+        return cells;
+    }
+
+    private static int count(boolean[] cells) {
+        int count = 0;
+        for (boolean cell : cells) {
+            count += cell ? 1 : 0;
+        }
+        return count;
+    }
+
+    private static void assertSorted(IntervalSet set, boolean disjoint) {
+        for (int i = 0; i < set.size(); i++) {
+            assertTrue(set.getStart(i) <= set.getEnd(i));
+            if (i > 0) {
+                assertTrue(disjoint ? set.getEnd(i - 1) < set.getStart(i) : set.getEnd(i - 1) <= set.getStart(i));
+            }
+        }
+    }
+
+    @Test
+    public void testAlgebraMatchesBitmap() {
+
+        Random random = new Random(3);
+        for (int run = 0; run < 50; run++) {
+            IntervalSet a = randomSet(random.nextInt(60), random);
+            IntervalSet b = randomSet(random.nextInt(60), random);
+            boolean[] ca = cells(a);
+            boolean[] cb = cells(b);
+            int union = 0;
+            int intersection = 0;
+            int difference = 0;
+            for (int t = 0; t < SPAN; t++) {
+                union += ca[t] || cb[t] ? 1 : 0;
+                intersection += ca[t] && cb[t] ? 1 : 0;
+                difference += ca[t] && !cb[t] ? 1 : 0;
+            }
+
+            IntervalSet u = a.union(b);
+            IntervalSet i = a.intersect(b);
+            IntervalSet d = a.difference(b);
+            IntervalSet gaps = a.complement(0, SPAN);
+            assertSorted(u, true);
+            assertSorted(d, true);
+            // Zero length intervals split the gaps around them
+            assertSorted(gaps, false);
+            assertEquals(union, u.getTotalDuration());
+            assertEquals(intersection, i.getTotalDuration());
+            assertEquals(difference, d.getTotalDuration());
+            assertEquals(SPAN - count(ca), gaps.getTotalDuration());
+            assertEquals((double) count(ca) / SPAN, a.getCoverage(0, SPAN), 1e-12);
+
+            for (int t = 0; t < SPAN; t += 7) {
+                boolean covered = false;
+                for (int k = 0; k < a.size(); k++) {
+                    covered |= a.getStart(k) <= t && t <= a.getEnd(k);
+                }
+                assertEquals(covered, a.contains(t));
+            }
+
+            long maxGap = 0;
+            long gapSum = 0;
+            for (int k = 1; k < a.size(); k++) {
+                maxGap = Math.max(maxGap, a.getStart(k) - a.getEnd(k - 1));
+                gapSum += a.getStart(k) - a.getEnd(k - 1);
+            }
+            assertEquals(maxGap, a.getMaxRevisitGap());
+            assertEquals(a.size() > 1 ? (double) gapSum / (a.size() - 1) : 0, a.getMeanRevisitGap(), 1e-9);
+        }
+
+    }
+
+    @Test
+    public void testMergesOverlappingIntervals() {
+
+        List<Interval> intervals = new ArrayList<>();
+        intervals.add(new Interval(50, 60, 0, 0));
+        intervals.add(new Interval(0, 10, 0, 0));
+        intervals.add(new Interval(5, 20, 1, 0));
+        intervals.add(new Interval(20, 30, 0, 1));
+        intervals.add(new Interval(8, 9, 0, 0));
+        IntervalSet set = IntervalSet.of(intervals);
+        assertEquals(2, set.size());
+        assertEquals(0, set.getStart(0));
+        assertEquals(30, set.getEnd(0));
+        assertEquals(50, set.getStart(1));
+        assertEquals(20, set.getMaxRevisitGap());
+        assertEquals(40, set.getTotalDuration());
+
+        // Times are set in order of start, without reordering the list
+        IntervalSet.fillTimeSinceLastContact(intervals, -5);
+        assertEquals(50, intervals.get(0).getStart());
+        assertEquals(20, intervals.get(0).getTimeSinceLastContact());
+        assertEquals(5, intervals.get(1).getTimeSinceLastContact());
+        assertEquals(0, intervals.get(2).getTimeSinceLastContact());
+        assertEquals(0, intervals.get(4).getTimeSinceLastContact());
+
+        // The columns given are copied, neither sorted nor merged in place
+        long[] starts = {50, 0, 5};
+        long[] ends = {60, 10, 20};
+        IntervalSet fromArrays = IntervalSet.fromArrays(starts, ends);
+        assertArrayEquals(new long[]{50, 0, 5}, starts);
+        assertArrayEquals(new long[]{60, 10, 20}, ends);
+        starts[1] = 55;
+        assertEquals(0, fromArrays.getStart(0));
+        assertEquals(20, fromArrays.getEnd(0));
+
+    }
+
+    @Test
+    public void testTimeSinceLastContactAndRevisit() {
+
+        Satellite satellite = new Satellite("1 25544U 98067A   22122.68846215  .00030457  00000-0  54086-3 0  9994",
+                "2 25544  51.6435 201.9265 0006436  54.9097 105.7177 15.49915502338120");
+        Simulation simulation = new Simulation("2022-05-02T00:00:00.000", "2022-05-04T00:00:00.000",
+                new Device(-34.6, -58.4, 25), satellite, 60, 5);
+        simulation.computeAccess();
+        List<Interval> intervals = simulation.getIntervals();
+        assertTrue(intervals.size() > 2);
+
+        for (int i = 1; i < intervals.size(); i++) {
+            assertEquals(intervals.get(i).getStart() - intervals.get(i - 1).getEnd(),
+                    intervals.get(i).getTimeSinceLastContact());
+        }
+        assertTrue(intervals.get(0).getTimeSinceLastContact() > 0);
+
+        IntervalSet set = IntervalSet.of(intervals);
+        long start = intervals.get(0).getStart() - intervals.get(0).getTimeSinceLastContact();
+        long end = start + 2 * 86400_000L;
+        Log.debug("Coverage: " + set.getCoverage(start, end) + ", max revisit: " + set.getMaxRevisitGap() / 60000.0
+                + " min, mean revisit: " + set.getMeanRevisitGap() / 60000.0 + " min");
+        assertEquals((double) simulation.getTotalAccess() / (end - start), set.getCoverage(start, end), 1e-12);
+        assertEquals(end - start - set.getTotalDuration(), set.complement(start, end).getTotalDuration());
+
+    }
+
+}
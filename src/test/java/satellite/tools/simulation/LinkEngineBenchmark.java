@@ -0,0 +1,39 @@
+package satellite.tools.simulation;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import satellite.tools.LinkEngine;
+import satellite.tools.assets.entities.Satellite;
+import satellite.tools.utils.Log;
+import satellite.tools.utils.Utils;
+
+import java.util.List;
+
+/**
+ * Scale run of LinkEngine, left out of mvn test (surefire only picks up *Test classes). Run it with
+ * mvn test -Dtest=LinkEngineBenchmark.
+ */
+public class LinkEngineBenchmark {
+
+    @BeforeClass
+    public static void loadOrekitData() {
+        Utils.loadOrekitData();
+    }
+
+    @Test
+    public void benchmarkLargeConstellation() {
+
+        // A shorter range, as for optical terminals, where the sweep skips most pairs
+        List<Satellite> satellites = LinkEngineTest.constellation(40, 25);
+        LinkEngine engine = new LinkEngine(LinkEngineTest.START, LinkEngineTest.END, satellites, 60, 2000e3,
+                LinkEngineTest.GRAZING_HEIGHT);
+        engine.computeLinks();
+
+        long pairSteps = 121L * 1000 * 999 / 2;
+        Log.info("Links for " + satellites.size() + " satellites: " + engine.getIntervals().size() + " windows in "
+                + engine.getLastSimTime() + " ms, " + engine.getCheckedPairs() + " of " + pairSteps
+                + " pairs checked (" + engine.getPairsPerSecond() + " pairs/s)");
+
+    }
+
+}
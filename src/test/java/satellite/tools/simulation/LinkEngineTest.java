@@ -0,0 +1,167 @@
+package satellite.tools.simulation;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.orekit.time.AbsoluteDate;
+import org.orekit.time.TimeScalesFactory;
+import org.orekit.utils.Constants;
+import satellite.tools.LinkEngine;
+import satellite.tools.assets.entities.Satellite;
+import satellite.tools.propagation.Sgp4Kernel;
+import satellite.tools.structures.Interval;
+import satellite.tools.structures.OrbitalElements;
+import satellite.tools.utils.Utils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class LinkEngineTest {
+
+    static final String START = "2022-05-02T00:00:00.000";
+    static final String END = "2022-05-02T02:00:00.000";
+
+    private static final double MAX_RANGE = 5000e3;
+    static final double GRAZING_HEIGHT = 100e3;
+
+    @BeforeClass
+    public static void loadOrekitData() {
+        Utils.loadOrekitData();
+    }
+
+    /**
+     * Walker-like shells at two altitudes, with planes spread in right ascension
+     */
+    static List<Satellite> constellation(int planes, int perPlane) {
+        List<Satellite> satellites = new ArrayList<>();
+        double[] inclinations = {53, 97.6};
+        for (int p = 0; p < planes; p++) {
+            for (int s = 0; s < perPlane; s++) {
+                satellites.add(new Satellite(satellites.size(), new OrbitalElements(START, 6928135 + 400e3 * (p % 2),
+                        0.001, inclinations[p % 2], 360.0 * p / planes, 90, 360.0 * s / perPlane + 7 * p)));
+            }
+        }
+        return satellites;
+    }
+
+    /**
+     * Link margin of a pair as the engine defines it, from independent SGP4 positions
+     */
+    private static boolean inSight(double[] p, double[] q) {
+        double dx = q[0] - p[0];
+        double dy = q[1] - p[1];
+        double dz = q[2] - p[2];
+        double d2 = dx * dx + dy * dy + dz * dz;
+        if (Math.sqrt(d2) > MAX_RANGE) {
+            return false;
+        }
+        double t = Math.max(0, Math.min(1, -(p[0] * dx + p[1] * dy + p[2] * dz) / d2));
+        double cx = p[0] + t * dx;
+        double cy = p[1] + t * dy;
+        double cz = p[2] + t * dz;
+        return Math.sqrt(cx * cx + cy * cy + cz * cz) >= Constants.WGS84_EARTH_EQUATORIAL_RADIUS + GRAZING_HEIGHT;
+    }
+
+    @Test
+    public void testAgainstBruteForce() {
+        assertMatchesBruteForce(constellation(6, 5), END, 60);
+    }
+
+    @Test
+    public void testWindowNotMultipleOfStep() {
+
+        // 7170 s, so the end date falls half way between two steps
+        String end = "2022-05-02T01:59:30.000";
+        List<Satellite> satellites = constellation(6, 5);
+        LinkEngine engine = assertMatchesBruteForce(satellites, end, 60);
+
+        // Pairs in sight at the end date keep their window open up to it, and only those
+        long endTime = Utils.stamp2AD(end).toDate(TimeScalesFactory.getUTC()).getTime();
+        double[] p = new double[3];
+        double[] q = new double[3];
+        int openAtEnd = 0;
+        for (int i = 0; i < satellites.size(); i++) {
+            new Sgp4Kernel(satellites.get(i)).propagate(endTime, p, null);
+            for (int j = i + 1; j < satellites.size(); j++) {
+                new Sgp4Kernel(satellites.get(j)).propagate(endTime, q, null);
+                List<Interval> windows = engine.getIntervals(i, j);
+                boolean endsAtEnd = !windows.isEmpty() && windows.get(windows.size() - 1).getEnd() == endTime;
+                assertEquals("Pair " + i + "-" + j, inSight(p, q), endsAtEnd);
+                openAtEnd += endsAtEnd ? 1 : 0;
+            }
+        }
+        assertTrue(openAtEnd > 0);
+
+    }
+
+    /**
+     * Runs the engine and compares its windows with the link margin of every pair sampled every 5 seconds, with
+     * independent SGP4 positions
+     */
+    private LinkEngine assertMatchesBruteForce(List<Satellite> satellites, String end, double step) {
+
+        LinkEngine engine = new LinkEngine(START, end, satellites, step, MAX_RANGE, GRAZING_HEIGHT);
+        engine.computeLinks();
+        int n = satellites.size();
+        assertTrue(engine.getIntervals().size() > 0);
+
+        AbsoluteDate start = Utils.stamp2AD(START);
+        long startTime = start.toDate(TimeScalesFactory.getUTC()).getTime();
+        long endTime = Utils.stamp2AD(end).toDate(TimeScalesFactory.getUTC()).getTime();
+        long steps = (long) Math.ceil((endTime - startTime) / 1000.0 / step) + 1;
+        assertTrue(engine.getCheckedPairs() < steps * n * (n - 1) / 2);
+        List<Sgp4Kernel> kernels = new ArrayList<>();
+        for (Satellite satellite : satellites) {
+            kernels.add(new Sgp4Kernel(satellite));
+        }
+
+        // The engine must be in sight whenever the samples are, away from the refined window bounds
+        double[] p = new double[3];
+        double[] q = new double[3];
+        int checked = 0;
+        for (int i = 0; i < n; i++) {
+            for (int j = i + 1; j < n; j++) {
+                List<Interval> windows = engine.getIntervals(i, j);
+                for (int k = 1; k < windows.size(); k++) {
+                    assertTrue(windows.get(k).getStart() > windows.get(k - 1).getEnd());
+                }
+                for (long t = startTime; t <= endTime; t += 5000) {
+                    kernels.get(i).propagate(t, p, null);
+                    kernels.get(j).propagate(t, q, null);
+                    boolean expected = inSight(p, q);
+                    boolean inWindow = false;
+                    boolean nearBound = false;
+                    for (Interval window : windows) {
+                        inWindow |= t >= window.getStart() && t <= window.getEnd();
+                        nearBound |= Math.abs(t - window.getStart()) < 10 || Math.abs(t - window.getEnd()) < 10;
+                    }
+                    if (!nearBound) {
+                        assertEquals("Pair " + i + "-" + j + " at " + t, expected, inWindow);
+                        checked++;
+                    }
+                }
+            }
+        }
+        assertTrue(checked > 0);
+
+        // Refined bounds inside the scenario are roots of the link margin
+        for (Interval window : engine.getIntervals()) {
+            assertTrue(window.getStart() >= startTime && window.getEnd() <= endTime);
+            int i = window.getFirstFrom();
+            int j = window.getFirstTo();
+            if (window.getStart() > startTime) {
+                kernels.get(i).propagate(window.getStart() - 1000, p, null);
+                kernels.get(j).propagate(window.getStart() - 1000, q, null);
+                assertTrue(!inSight(p, q));
+                kernels.get(i).propagate(window.getStart() + 1000, p, null);
+                kernels.get(j).propagate(window.getStart() + 1000, q, null);
+                assertTrue(inSight(p, q));
+            }
+        }
+        return engine;
+
+    }
+
+}
@@ -0,0 +1,95 @@
+package satellite.tools.simulation;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.orekit.propagation.analytical.tle.TLE;
+import org.orekit.propagation.analytical.tle.TLEPropagator;
+import org.orekit.time.AbsoluteDate;
+import org.orekit.utils.PVCoordinates;
+import satellite.tools.assets.entities.Satellite;
+import satellite.tools.propagation.Sgp4Batch;
+import satellite.tools.structures.OrbitalElements;
+import satellite.tools.utils.Log;
+import satellite.tools.utils.Utils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class Sgp4BatchTest {
+
+    @BeforeClass
+    public static void loadOrekitData() {
+        Utils.loadOrekitData();
+    }
+
+    /**
+     * A Walker-like shell of near-Earth satellites with different epochs, plus the ISS and a deep-space satellite
+     */
+    private List<Satellite> catalog(int planes, int perPlane) {
+        List<Satellite> satellites = new ArrayList<>();
+        satellites.add(new Satellite("1 25544U 98067A   22122.68846215  .00030457  00000-0  54086-3 0  9994",
+                "2 25544  51.6435 201.9265 0006436  54.9097 105.7177 15.49915502338120"));
+        satellites.add(new Satellite(new OrbitalElements("2022-05-01T00:00:00.000", 26560000, 0.01, 55, 120, 40, 200)));
+        for (int p = 0; p < planes; p++) {
+            for (int s = 0; s < perPlane; s++) {
+                String epoch = "2022-05-0" + (1 + (p + s) % 3) + "T0" + s % 10 + ":00:00.000";
+                satellites.add(new Satellite(new OrbitalElements(epoch, 6928135 + 1000 * s, 0.001 * (s % 4), 53,
+                        360.0 * p / planes, 90, 360.0 * s / perPlane)));
+            }
+        }
+        return satellites;
+    }
+
+    @Test
+    public void testMatchesOrekit() {
+
+        List<Satellite> satellites = catalog(6, 8);
+        Sgp4Batch batch = Sgp4Batch.fromSatellites(satellites);
+        assertEquals(satellites.size(), batch.size());
+        assertEquals(1, batch.getDeepSpaceCount());
+        assertTrue(batch.isDeepSpace(1));
+
+        AbsoluteDate date = Utils.stamp2AD("2022-05-02T12:00:00.000");
+        double[] positions = new double[3 * batch.size()];
+        double[] velocities = new double[3 * batch.size()];
+        batch.propagate(date, positions, velocities);
+
+        for (int k = 0; k < batch.size(); k++) {
+            TLE tle = batch.getTLEs().get(k);
+            PVCoordinates expected = TLEPropagator.selectExtrapolator(tle).getPVCoordinates(date);
+            assertEquals(expected.getPosition().getX(), positions[3 * k], 1e-4);
+            assertEquals(expected.getPosition().getY(), positions[3 * k + 1], 1e-4);
+            assertEquals(expected.getPosition().getZ(), positions[3 * k + 2], 1e-4);
+            assertEquals(expected.getVelocity().getX(), velocities[3 * k], 1e-7);
+            assertEquals(expected.getVelocity().getY(), velocities[3 * k + 1], 1e-7);
+            assertEquals(expected.getVelocity().getZ(), velocities[3 * k + 2], 1e-7);
+        }
+
+    }
+
+    @Test
+    public void testParallelMatchesSequential() {
+
+        Sgp4Batch batch = Sgp4Batch.fromSatellites(catalog(40, 60));
+        AbsoluteDate date = Utils.stamp2AD("2022-05-02T12:00:00.000");
+
+        long t0 = System.nanoTime();
+        double[] sequential = batch.propagate(date);
+        double sequentialTime = (System.nanoTime() - t0) / 1e6;
+        double[] parallel = new double[3 * batch.size()];
+        t0 = System.nanoTime();
+        batch.propagateParallel(date, parallel, null);
+        double parallelTime = (System.nanoTime() - t0) / 1e6;
+        Log.debug("Batch of " + batch.size() + " satellites: " + sequentialTime + " ms sequential, " + parallelTime
+                + " ms parallel");
+
+        for (int j = 0; j < sequential.length; j++) {
+            assertEquals(sequential[j], parallel[j], 0);
+        }
+
+    }
+
+}
@@ -0,0 +1,110 @@
+package satellite.tools.simulation;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.orekit.propagation.analytical.tle.TLE;
+import org.orekit.propagation.analytical.tle.TLEPropagator;
+import org.orekit.time.AbsoluteDate;
+import org.orekit.utils.PVCoordinates;
+import satellite.tools.Simulation;
+import satellite.tools.assets.entities.Device;
+import satellite.tools.assets.entities.Satellite;
+import satellite.tools.propagation.Sgp4Kernel;
+import satellite.tools.structures.EphemerisBlock;
+import satellite.tools.structures.OrbitalElements;
+import satellite.tools.utils.Log;
+import satellite.tools.utils.Utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class Sgp4KernelTest {
+
+    private static final Satellite ISS = new Satellite("1 25544U 98067A   22122.68846215  .00030457  00000-0  54086-3 0  9994",
+            "2 25544  51.6435 201.9265 0006436  54.9097 105.7177 15.49915502338120");
+
+    @BeforeClass
+    public static void loadOrekitData() {
+        Utils.loadOrekitData();
+    }
+
+    private void assertMatchesOrekit(Satellite satellite, double span, double step) {
+        assertMatchesOrekit(new Sgp4Kernel(satellite).getTLE(), span, step);
+    }
+
+    private void assertMatchesOrekit(TLE tle, double span, double step) {
+
+        Sgp4Kernel kernel = new Sgp4Kernel(tle);
+        TLEPropagator propagator = TLEPropagator.selectExtrapolator(tle);
+        double[] position = new double[3];
+        double[] velocity = new double[3];
+
+        double maxPosition = 0;
+        double maxVelocity = 0;
+        for (double t = -span; t <= span; t += step) {
+            kernel.propagate(tle.getDate().shiftedBy(t), position, velocity);
+            PVCoordinates expected = propagator.getPVCoordinates(tle.getDate().shiftedBy(t));
+            maxPosition = Math.max(maxPosition, Math.abs(expected.getPosition().getX() - position[0]));
+            maxPosition = Math.max(maxPosition, Math.abs(expected.getPosition().getY() - position[1]));
+            maxPosition = Math.max(maxPosition, Math.abs(expected.getPosition().getZ() - position[2]));
+            maxVelocity = Math.max(maxVelocity, Math.abs(expected.getVelocity().getX() - velocity[0]));
+            maxVelocity = Math.max(maxVelocity, Math.abs(expected.getVelocity().getY() - velocity[1]));
+            maxVelocity = Math.max(maxVelocity, Math.abs(expected.getVelocity().getZ() - velocity[2]));
+        }
+        Log.debug("Kernel vs Orekit, max position error: " + maxPosition + " m, max velocity error: " + maxVelocity + " m/s");
+        assertEquals(0, maxPosition, 1e-6);
+        assertEquals(0, maxVelocity, 1e-9);
+
+    }
+
+    @Test
+    public void testMatchesOrekitNearEarth() {
+        Satellite sso = new Satellite(new OrbitalElements("2020-01-01T19:40:00.000", 6978135, 0, 98, 310, 0, 220));
+        Satellite eccentric = new Satellite(new OrbitalElements("2022-03-20T00:00:00.000", 7578135, 0.05, 63.4, 30, 270, 10));
+        assertFalse(new Sgp4Kernel(ISS).isDeepSpace());
+        assertMatchesOrekit(ISS, 3 * 86400, 61);
+        assertMatchesOrekit(sso, 3 * 86400, 61);
+        assertMatchesOrekit(eccentric, 3 * 86400, 61);
+    }
+
+    @Test
+    public void testMatchesOrekitLowPerigeeWithDrag() {
+        // Perigees around 90 km and 190 km, below the 156 km and 220 km thresholds where SGP4 changes its drag model
+        AbsoluteDate epoch = Utils.stamp2AD("2022-03-20T00:00:00.000");
+        for (double e : new double[]{0.028, 0.012}) {
+            TLE tle = new TLE(99999, 'U', 2022, 1, "A", 0, 999, epoch, 2 * Math.PI / 5400, 0, 0, e,
+                    Math.toRadians(51.6), Math.toRadians(30), Math.toRadians(60), Math.toRadians(10), 1, 2e-4);
+            assertMatchesOrekit(tle, 86400, 61);
+        }
+    }
+
+    @Test
+    public void testDeepSpaceFallsBackToOrekit() {
+        Satellite gps = new Satellite(new OrbitalElements("2022-03-20T00:00:00.000", 26560000, 0.01, 55, 120, 40, 200));
+        assertTrue(new Sgp4Kernel(gps).isDeepSpace());
+        assertMatchesOrekit(gps, 86400, 600);
+    }
+
+    @Test
+    public void testKernelBackendMatchesOrekitBackend() {
+
+        Device device = new Device(-34.6, -58.4, 25);
+        Simulation simulation = new Simulation("2022-05-02T00:00:00.000", "2022-05-02T12:00:00.000", device, ISS, 5, 5);
+
+        EphemerisBlock expected = simulation.computePVDBlock();
+        double orekitTime = simulation.getLastSimTime();
+        simulation.setKernelPropagation(true);
+        EphemerisBlock actual = simulation.computePVDBlock();
+        Log.debug("Orekit backend: " + orekitTime + " ms, kernel backend: " + simulation.getLastSimTime() + " ms");
+
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.getTime(i), actual.getTime(i));
+            assertEquals(expected.getRange(i), actual.getRange(i), 1e-6);
+            assertEquals(expected.getDopplerShift(i), actual.getDopplerShift(i), 1e-6);
+        }
+
+    }
+
+}
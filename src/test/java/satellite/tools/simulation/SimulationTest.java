@@ -1,18 +1,31 @@
 package satellite.tools.simulation;
 
+import org.hipparchus.geometry.euclidean.threed.Rotation;
 import org.junit.Test;
+import org.orekit.frames.Frame;
+import org.orekit.frames.FramesFactory;
+import org.orekit.frames.Transform;
+import org.orekit.time.AbsoluteDate;
+import org.orekit.utils.IERSConventions;
 import satellite.tools.Simulation;
 import satellite.tools.assets.entities.Device;
 import satellite.tools.assets.entities.Satellite;
 import satellite.tools.structures.Ephemeris;
+import satellite.tools.structures.EphemerisBlock;
+import satellite.tools.structures.Interval;
 import satellite.tools.structures.OrbitalElements;
+import satellite.tools.utils.EarthOrientationTable;
 import satellite.tools.utils.Log;
+import satellite.tools.utils.TransformCache;
 import satellite.tools.utils.Utils;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Properties;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
 
 public class SimulationTest {
 
@@ -118,4 +131,357 @@ public class SimulationTest {
         assertNotNull(ephemeris);
     }
 
+    @Test
+    public void testRepeatedRunsAreIdentical() {
+
+        Satellite satellite = new Satellite("1 25544U 98067A   22122.68846215  .00030457  00000-0  54086-3 0  9994",
+                "2 25544  51.6435 201.9265 0006436  54.9097 105.7177 15.49915502338120");
+        Device device = new Device(15, 15, 3);
+        Simulation simulation = new Simulation("2022-03-20T12:00:00.000", "2022-03-22T12:00:00.000",
+                device, satellite, 60, 5);
+
+        simulation.computeAccess();
+        List<Interval> first = new ArrayList<>(simulation.getIntervals());
+        assertTrue(first.size() > 0);
+
+        int detectors = simulation.getPropagator().getEventsDetectors().size();
+
+        for (int run = 0; run < 10; run++) {
+            simulation.computeAccess();
+            // Detectors must not pile up from one run to the next
+            assertEquals(detectors, simulation.getPropagator().getEventsDetectors().size());
+            assertEquals(first.size(), simulation.getIntervals().size());
+            for (int i = 0; i < first.size(); i++) {
+                assertEquals(first.get(i).getStart(), simulation.getIntervals().get(i).getStart());
+                assertEquals(first.get(i).getEnd(), simulation.getIntervals().get(i).getEnd());
+            }
+        }
+        Log.debug("Last run: " + simulation.getLastSimTime() + " ms");
+
+    }
+
+    @Test
+    public void testResetSimulationMatchesNewSimulation() {
+
+        Satellite satellite = new Satellite("1 25544U 98067A   22122.68846215  .00030457  00000-0  54086-3 0  9994",
+                "2 25544  51.6435 201.9265 0006436  54.9097 105.7177 15.49915502338120");
+        Device device = new Device(-34.6, -58.4, 25);
+        Simulation pooled = new Simulation("2022-03-20T12:00:00.000", "2022-03-21T12:00:00.000",
+                new Device(15, 15, 3), satellite, 60, 5);
+        pooled.computeAccess();
+        pooled.computePVD();
+
+        pooled.reset();
+        assertTrue(pooled.getIntervals().isEmpty());
+        assertTrue(pooled.getEphemerisList().isEmpty());
+
+        pooled.setDevice(device);
+        pooled.setParams("2022-03-21T00:00:00.000", "2022-03-22T00:00:00.000", 30, 10);
+        pooled.computeAccess();
+
+        Simulation fresh = new Simulation("2022-03-21T00:00:00.000", "2022-03-22T00:00:00.000",
+                device, satellite, 30, 10);
+        fresh.computeAccess();
+
+        assertEquals(fresh.getIntervals().size(), pooled.getIntervals().size());
+        for (int i = 0; i < fresh.getIntervals().size(); i++) {
+            assertEquals(fresh.getIntervals().get(i).getStart(), pooled.getIntervals().get(i).getStart());
+            assertEquals(fresh.getIntervals().get(i).getEnd(), pooled.getIntervals().get(i).getEnd());
+        }
+
+    }
+
+    @Test
+    public void testAdaptiveDetectionMatchesFixedStep() {
+
+        Satellite satellite = new Satellite("1 25544U 98067A   22122.68846215  .00030457  00000-0  54086-3 0  9994",
+                "2 25544  51.6435 201.9265 0006436  54.9097 105.7177 15.49915502338120");
+        Device device = new Device(-34.6, -58.4, 25);
+        double minPass = 60;
+        double step = 10;
+
+        Simulation fixed = new Simulation("2022-03-20T00:00:00.000", "2022-03-22T00:00:00.000", device, satellite, step, 5);
+        fixed.computeAccess();
+        Simulation adaptive = new Simulation("2022-03-20T00:00:00.000", "2022-03-22T00:00:00.000", device, satellite, step, 5);
+        adaptive.setAdaptiveDetection(minPass);
+        adaptive.computeAccess();
+
+        List<Interval> expected = new ArrayList<>();
+        fixed.getIntervals().stream().filter(interval -> interval.getDuration() >= minPass * 1000).forEach(expected::add);
+        List<Interval> actual = new ArrayList<>();
+        adaptive.getIntervals().stream().filter(interval -> interval.getDuration() >= minPass * 1000).forEach(actual::add);
+
+        assertTrue(expected.size() > 0);
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).getStart(), actual.get(i).getStart(), 2);
+            assertEquals(expected.get(i).getEnd(), actual.get(i).getEnd(), 2);
+        }
+
+        double fixedChecks = 2 * 86400 / step;
+        Log.debug("Adaptive propagations: " + adaptive.getLastPropagations() + " vs " + fixedChecks + " fixed checks");
+        assertTrue(adaptive.getLastPropagations() < fixedChecks);
+
+    }
+
+    @Test
+    public void testStreamingPVDMatchesList() {
+
+        OrbitalElements orbitalElements = new OrbitalElements("2020-01-01T19:40:00.000", 6978135, 0, 98, 310, 0, 220);
+        Satellite satellite = new Satellite(orbitalElements);
+        Device device = new Device(15, 15, 3);
+        Simulation simulation = new Simulation("2022-03-20T01:00:00.000", "2022-03-20T03:00:00.000", device, satellite, 7, 5);
+
+        simulation.computePVD();
+        List<Ephemeris> expected = new ArrayList<>(simulation.getEphemerisList());
+
+        List<Ephemeris> consumed = new ArrayList<>();
+        simulation.computePVD(consumed::add);
+        List<Ephemeris> streamed = new ArrayList<>();
+        simulation.streamPVDBetween("2022-03-20T01:00:00.000", "2022-03-20T03:00:00.000", 7).forEach(streamed::add);
+
+        assertEquals(expected.size(), consumed.size());
+        assertEquals(expected.size(), streamed.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).toString(), consumed.get(i).toString());
+            assertEquals(expected.get(i).toString(), streamed.get(i).toString());
+        }
+
+    }
+
+    @Test
+    public void testPVDBlockMatchesList() {
+
+        OrbitalElements orbitalElements = new OrbitalElements("2020-01-01T19:40:00.000", 6978135, 0, 98, 310, 0, 220);
+        Satellite satellite = new Satellite(orbitalElements);
+        Device device = new Device(15, 15, 3);
+        Simulation simulation = new Simulation("2022-03-20T01:00:00.000", "2022-03-20T03:00:00.000", device, satellite, 7, 5);
+
+        simulation.computePVD();
+        List<Ephemeris> expected = simulation.getEphemerisList();
+        EphemerisBlock block = simulation.computePVDBlock();
+
+        assertEquals(expected.size(), block.size());
+        assertEquals(expected.size(), block.asList().size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).getTime(), block.getTime(i));
+            assertEquals(expected.get(i).getRange(), block.getRanges()[i], 0);
+            assertEquals(expected.get(i).toString(), block.asList().get(i).toString());
+        }
+
+    }
+
+    @Test
+    public void testMultiDevicePVDBlocksMatchSingleDevice() {
+
+        Satellite satellite = new Satellite("1 25544U 98067A   22122.68846215  .00030457  00000-0  54086-3 0  9994",
+                "2 25544  51.6435 201.9265 0006436  54.9097 105.7177 15.49915502338120");
+        List<Device> devices = List.of(new Device(0, 15, 15, 3), new Device(1, -34.6, -58.4, 25),
+                new Device(2, 60, 10, 0));
+        String start = "2022-05-02T00:00:00.000";
+        String end = "2022-05-02T02:00:00.000";
+
+        Simulation simulation = new Simulation(satellite);
+        List<EphemerisBlock> blocks = simulation.computePVDBlocksBetween(devices, start, end, 10);
+        Log.debug("Multi-device PVD: " + simulation.getLastSimTime() + " ms");
+
+        assertEquals(devices.size(), blocks.size());
+        for (int d = 0; d < devices.size(); d++) {
+            Simulation single = new Simulation(start, end, devices.get(d), satellite, 10, 5);
+            EphemerisBlock expected = single.computePVDBlock();
+            EphemerisBlock actual = blocks.get(d);
+            assertEquals(expected.size(), actual.size());
+            assertEquals(devices.get(d).getId(), actual.getIndexFrom());
+            for (int i = 0; i < expected.size(); i++) {
+                assertEquals(expected.getTime(i), actual.getTime(i));
+                assertEquals(expected.getPosX(i), actual.getPosX(i), 1e-6);
+                assertEquals(expected.getRange(i), actual.getRange(i), 1e-6);
+                assertEquals(expected.getDopplerShift(i), actual.getDopplerShift(i), 1e-6);
+            }
+        }
+
+    }
+
+    @Test
+    public void testFastFramesMatchExactFrames() {
+
+        Satellite satellite = new Satellite("1 25544U 98067A   22122.68846215  .00030457  00000-0  54086-3 0  9994",
+                "2 25544  51.6435 201.9265 0006436  54.9097 105.7177 15.49915502338120");
+        Device device = new Device(-34.6, -58.4, 25);
+        Simulation simulation = new Simulation("2022-05-02T00:00:00.000", "2022-05-03T00:00:00.000", device, satellite, 30, 5);
+
+        EphemerisBlock exact = simulation.computePVDBlock();
+        double exactTime = simulation.getLastSimTime();
+        simulation.setFastFrames(EarthOrientationTable.DEFAULT_SPACING);
+        EphemerisBlock fast = simulation.computePVDBlock();
+        Log.debug("Exact frames: " + exactTime + " ms, fast frames: " + simulation.getLastSimTime() + " ms");
+
+        // Nodes are aligned to J2000 (TT), so a one day window spans 25 grid intervals
+        assertEquals(26, simulation.getEarthOrientationTable().getNodeCount());
+        assertEquals(exact.size(), fast.size());
+        for (int i = 0; i < exact.size(); i++) {
+            assertEquals(exact.getTime(i), fast.getTime(i));
+            assertEquals(exact.getPosX(i), fast.getPosX(i), 1e-2);
+            assertEquals(exact.getPosY(i), fast.getPosY(i), 1e-2);
+            assertEquals(exact.getPosZ(i), fast.getPosZ(i), 1e-2);
+            assertEquals(exact.getVelX(i), fast.getVelX(i), 1e-4);
+            assertEquals(exact.getRange(i), fast.getRange(i), 1e-2);
+            assertEquals(exact.getDopplerShift(i), fast.getDopplerShift(i), 1e-4);
+        }
+
+    }
+
+    @Test
+    public void testFastFramesMatchExactSSP() {
+
+        Satellite satellite = new Satellite("1 25544U 98067A   22122.68846215  .00030457  00000-0  54086-3 0  9994",
+                "2 25544  51.6435 201.9265 0006436  54.9097 105.7177 15.49915502338120");
+        Simulation exact = new Simulation(satellite);
+        Simulation fast = new Simulation(satellite);
+        fast.setFastFrames(EarthOrientationTable.DEFAULT_SPACING);
+
+        AbsoluteDate start = Utils.stamp2AD("2022-05-02T00:00:00.000");
+        for (int i = 0; i < 1440; i++) {
+            AbsoluteDate date = start.shiftedBy(60.0 * i);
+            Ephemeris reference = exact.computeSSPAndGetEphemeris(date);
+            Ephemeris ephemeris = fast.computeSSPAndGetEphemeris(date);
+            // 1e-10 rad from the table, as degrees
+            assertEquals(reference.getLatitude(), ephemeris.getLatitude(), 1e-8);
+            assertEquals(reference.getLongitude(), ephemeris.getLongitude(), 1e-8);
+        }
+
+    }
+
+    @Test
+    public void testEarthOrientationTableAccuracy() {
+
+        Frame eme2000 = FramesFactory.getEME2000();
+        Frame itrf = FramesFactory.getITRF(IERSConventions.IERS_2010, true);
+        AbsoluteDate start = Utils.stamp2AD("2022-05-02T00:00:00.000");
+
+        double[] spacings = {3600, 21600, 86400};
+        double[] tolerances = {1e-10, 2e-9, 3e-8};
+        for (int s = 0; s < spacings.length; s++) {
+            EarthOrientationTable table = new EarthOrientationTable(eme2000, itrf, spacings[s]);
+            double maxAngle = 0;
+            double maxRate = 0;
+            for (double dt = 0; dt < 10 * 86400; dt += 317) {
+                AbsoluteDate date = start.shiftedBy(dt);
+                Transform expected = eme2000.getTransformTo(itrf, date);
+                Transform actual = table.getTransform(date);
+                maxAngle = Math.max(maxAngle, Rotation.distance(expected.getRotation(), actual.getRotation()));
+                maxRate = Math.max(maxRate, expected.getRotationRate().subtract(actual.getRotationRate()).getNorm());
+            }
+            Log.debug("Spacing " + spacings[s] + " s: max angle error " + maxAngle + " rad, max rate error " + maxRate);
+            assertTrue(maxAngle < tolerances[s]);
+            assertTrue(maxRate < 1e-10);
+        }
+
+    }
+
+    @Test
+    public void testTransformCacheOnlyHoldsGridDates() {
+
+        Satellite satellite = new Satellite("1 25544U 98067A   22122.68846215  .00030457  00000-0  54086-3 0  9994",
+                "2 25544  51.6435 201.9265 0006436  54.9097 105.7177 15.49915502338120");
+        String start = "2022-05-02T00:00:00.000";
+        String end = "2022-05-02T00:10:00.000";
+        Simulation first = new Simulation(start, end, new Device(15, 15, 3), satellite, 10, 5);
+        Simulation second = new Simulation(start, end, new Device(-34.6, -58.4, 25), satellite, 10, 5);
+        TransformCache cache = first.newTransformCache();
+        assertEquals(62, cache.getCapacity());
+        EphemerisBlock uncached = second.computePVDBlock();
+        first.setTransformCache(cache);
+        second.setTransformCache(cache);
+
+        // One transform per date of the grid, whose end time comes twice
+        first.computePVDBlock();
+        long misses = cache.getMisses();
+        assertEquals(61, misses);
+        EphemerisBlock cached = second.computePVDBlock();
+        assertEquals(misses, cache.getMisses());
+        for (int i = 0; i < cached.size(); i++) {
+            assertEquals(uncached.getRange(i), cached.getRange(i), 0);
+        }
+
+        // Dates off the grid are computed without going through the cache
+        second.computePVDAt(Utils.stamp2AD(start).shiftedBy(3.7));
+        second.computeAccess();
+        assertEquals(misses, cache.getMisses());
+
+    }
+
+    @Test
+    public void testTransformCacheIsBounded() {
+
+        Satellite satellite = new Satellite("1 25544U 98067A   22122.68846215  .00030457  00000-0  54086-3 0  9994",
+                "2 25544  51.6435 201.9265 0006436  54.9097 105.7177 15.49915502338120");
+        String start = "2022-05-02T00:00:00.000";
+        String end = "2022-05-02T00:10:00.000";
+        Simulation simulation = new Simulation(start, end, new Device(15, 15, 3), satellite, 1, 5);
+
+        // A grid of 602 dates run twice over a cache of 100: each run evicts what the next one needs
+        TransformCache small = Simulation.newTransformCache(100);
+        simulation.setTransformCache(small);
+        simulation.computePVDBlock();
+        simulation.computePVDBlock();
+        assertEquals(100, small.size());
+        assertTrue(small.getHits() <= 2);
+
+        // Sized from the grid, the second run only hits
+        TransformCache sized = simulation.newTransformCache();
+        simulation.setTransformCache(sized);
+        simulation.computePVDBlock();
+        long misses = sized.getMisses();
+        simulation.computePVDBlock();
+        assertEquals(misses, sized.getMisses());
+        assertEquals(601, sized.size());
+
+        // Shared between threads, the bound holds
+        AbsoluteDate date = Utils.stamp2AD(start);
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            int offset = t;
+            threads.add(new Thread(() -> {
+                for (int i = 0; i < 500; i++) {
+                    small.getTransform(date.shiftedBy(offset * 37 + i));
+                }
+            }));
+        }
+        threads.forEach(Thread::start);
+        for (Thread thread : threads) {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        assertEquals(100, small.size());
+
+    }
+
+    @Test
+    public void testParallelPVDBlockMatchesSequential() {
+
+        Satellite satellite = new Satellite("1 25544U 98067A   22122.68846215  .00030457  00000-0  54086-3 0  9994",
+                "2 25544  51.6435 201.9265 0006436  54.9097 105.7177 15.49915502338120");
+        Device device = new Device(-34.6, -58.4, 25);
+        Simulation simulation = new Simulation("2022-05-02T00:00:00.000", "2022-05-02T06:00:00.500", device, satellite, 1, 5);
+
+        EphemerisBlock sequential = simulation.computePVDBlock();
+        double sequentialTime = simulation.getLastSimTime();
+        EphemerisBlock parallel = simulation.computePVDBlockParallel();
+        Log.debug("Sequential: " + sequentialTime + " ms, parallel: " + simulation.getLastSimTime() + " ms");
+
+        assertEquals(6 * 3600 + 2, sequential.size());
+        assertEquals(sequential.size(), parallel.size());
+        for (int i = 0; i < sequential.size(); i++) {
+            assertEquals(sequential.getTime(i), parallel.getTime(i));
+            assertEquals(sequential.getPosX(i), parallel.getPosX(i), 0);
+            assertEquals(sequential.getVelZ(i), parallel.getVelZ(i), 0);
+            assertEquals(sequential.getDopplerShift(i), parallel.getDopplerShift(i), 0);
+        }
+
+    }
+
 }
@@ -0,0 +1,140 @@
+package satellite.tools.simulation;
+
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.orekit.propagation.analytical.tle.TLE;
+import org.orekit.time.AbsoluteDate;
+import org.orekit.time.TimeScalesFactory;
+import satellite.tools.exceptions.SatElsetException;
+import satellite.tools.structures.SatElset;
+import satellite.tools.structures.TleCatalog;
+import satellite.tools.utils.TleWriter;
+import satellite.tools.utils.Utils;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+public class TleCatalogTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @BeforeClass
+    public static void loadOrekitData() {
+        Utils.loadOrekitData();
+    }
+
+    /**
+     * Writes random element sets through Orekit, with a name line before every other entry, and returns their cards
+     */
+    private Path writeCatalog(int size, long seed, List<String[]> cards) throws IOException {
+        Random random = new Random(seed);
+        AbsoluteDate epoch = new AbsoluteDate(2022, 5, 2, 0, 0, 0.0, TimeScalesFactory.getUTC());
+        var text = new StringBuilder();
+        for (int s = 0; s < size; s++) {
+            double meanMotion = (1 + 15 * random.nextDouble()) * 2 * Math.PI / 86400;
+            var tle = new TLE(1 + s % 99999, 'U', 1990 + random.nextInt(30), 1 + random.nextInt(300), "A", 0,
+                    random.nextInt(999), epoch.shiftedBy(-86400 * 10 * random.nextDouble()), meanMotion,
+                    (random.nextDouble() - 0.5) * 1e-9, 0, 0.3 * random.nextDouble(), Math.PI * random.nextDouble(),
+                    2 * Math.PI * random.nextDouble(), 2 * Math.PI * random.nextDouble(),
+                    2 * Math.PI * random.nextDouble(), random.nextInt(99999), (random.nextDouble() - 0.5) * 1e-3);
+            if (s % 2 == 1) {
+                text.append("OBJECT ").append(s).append('\n');
+            }
+            text.append(tle.getLine1()).append('\n').append(tle.getLine2()).append('\n');
+            cards.add(new String[]{tle.getLine1(), tle.getLine2()});
+        }
+        Path path = folder.newFile("catalog.txt").toPath();
+        Files.write(path, text.toString().getBytes(StandardCharsets.US_ASCII));
+        return path;
+    }
+
+    @Test
+    public void testAgainstSatElset() throws IOException, SatElsetException {
+
+        List<String[]> cards = new ArrayList<>();
+        Path path = writeCatalog(3000, 1, cards);
+        TleCatalog catalog = TleCatalog.read(path);
+        assertEquals(cards.size(), catalog.size());
+
+        var view = new SatElset();
+        var writer = new TleWriter();
+        for (int i = 0; i < catalog.size(); i++) {
+            var elset = new SatElset(cards.get(i)[0], cards.get(i)[1]);
+            assertSame(view, catalog.get(i, view));
+            for (SatElset copy : new SatElset[]{view, catalog.get(i)}) {
+                assertEquals(elset.getSatID(), copy.getSatID());
+                assertEquals(elset.getSecClass(), copy.getSecClass());
+                assertEquals(elset.getIntDesig(), copy.getIntDesig());
+                assertEquals(elset.getEpochYr(), copy.getEpochYr());
+                assertEquals(elset.getEpochDay(), copy.getEpochDay(), 0);
+                assertEquals(elset.getNdot(), copy.getNdot(), 0);
+                assertEquals(elset.getNdotdot(), copy.getNdotdot(), 0);
+                assertEquals(elset.getBstar(), copy.getBstar(), 0);
+                assertEquals(elset.getInclination(), copy.getInclination(), 0);
+                assertEquals(elset.getRightAscension(), copy.getRightAscension(), 0);
+                assertEquals(elset.getEccentricity(), copy.getEccentricity(), 0);
+                assertEquals(elset.getArgPerigee(), copy.getArgPerigee(), 0);
+                assertEquals(elset.getMeanAnomaly(), copy.getMeanAnomaly(), 0);
+                assertEquals(elset.getMeanMotion(), copy.getMeanMotion(), 0);
+                assertEquals(elset.getRevNum(), copy.getRevNum());
+                assertEquals(elset.getCard1(), copy.getCard1());
+                assertEquals(elset.getCard2(), copy.getCard2());
+            }
+            catalog.formatCard1(i, writer);
+            assertEquals(elset.getCard1(), writer.getCard());
+            catalog.formatCard2(i, writer);
+            assertEquals(elset.getCard2(), writer.getCard());
+        }
+
+        // Element sets added from SatElset, and lookups by id
+        var copy = new TleCatalog(1);
+        for (int i = 0; i < catalog.size(); i++) {
+            assertEquals(i, copy.add(catalog.get(i)));
+        }
+        for (int i = 0; i < catalog.size(); i += 7) {
+            assertEquals(catalog.get(i).getCard1(), copy.get(i).getCard1());
+            assertEquals(catalog.get(i).getCard2(), copy.get(i).getCard2());
+            assertEquals(i, copy.indexOf(catalog.getSatID(i)));
+        }
+        assertEquals(-1, copy.indexOf(99999));
+        assertEquals(catalog.get(5).getCard1(), catalog.toSatellite(5, 5).getTLE1());
+
+    }
+
+    @Test
+    public void testFootprint() throws IOException {
+
+        List<String[]> cards = new ArrayList<>();
+        Path path = writeCatalog(3000, 2, cards);
+        TleCatalog catalog = TleCatalog.read(path);
+
+        // Read catalogs are trimmed: the columns hold exactly BYTES_PER_ENTRY per element set
+        assertEquals(cards.size(), catalog.size());
+        assertEquals(catalog.size(), catalog.getCapacity());
+        assertEquals((long) catalog.size() * TleCatalog.BYTES_PER_ENTRY, catalog.getColumnBytes());
+
+        // Growing by half, then trimmed back
+        catalog.add(catalog.get(0));
+        assertEquals(3000 + 1500, catalog.getCapacity());
+        assertEquals((long) catalog.getCapacity() * TleCatalog.BYTES_PER_ENTRY, catalog.getColumnBytes());
+        catalog.trimToSize();
+        assertEquals(3001, catalog.getCapacity());
+
+        // The lookup index by id takes an int per element set
+        assertEquals(0, catalog.indexOf(catalog.getSatID(0)));
+        assertEquals(3001L * (TleCatalog.BYTES_PER_ENTRY + Integer.BYTES), catalog.getColumnBytes());
+
+    }
+
+}
@@ -0,0 +1,172 @@
+package satellite.tools.simulation;
+
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.orekit.propagation.analytical.tle.TLE;
+import org.orekit.time.AbsoluteDate;
+import org.orekit.time.TimeScalesFactory;
+import satellite.tools.exceptions.SatElsetException;
+import satellite.tools.structures.SatElset;
+import satellite.tools.structures.TleRecord;
+import satellite.tools.utils.Log;
+import satellite.tools.utils.TleReader;
+import satellite.tools.utils.Utils;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class TleReaderTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @BeforeClass
+    public static void loadOrekitData() {
+        Utils.loadOrekitData();
+    }
+
+    /**
+     * Random element sets written through Orekit, so that cards and checksums are well formed
+     */
+    private static List<TLE> randomTLEs(int size, long seed) {
+        Random random = new Random(seed);
+        AbsoluteDate epoch = new AbsoluteDate(2022, 5, 2, 0, 0, 0.0, TimeScalesFactory.getUTC());
+        List<TLE> tles = new ArrayList<>();
+        for (int s = 0; s < size; s++) {
+            double meanMotion = (1 + 15 * random.nextDouble()) * 2 * Math.PI / 86400;
+            tles.add(new TLE(1 + s, 'U', 1990 + random.nextInt(30), 1 + random.nextInt(300), "A", 0,
+                    random.nextInt(999), epoch.shiftedBy(-86400 * 10 * random.nextDouble()), meanMotion,
+                    (random.nextDouble() - 0.5) * 1e-9, 0, 0.3 * random.nextDouble(), Math.PI * random.nextDouble(),
+                    2 * Math.PI * random.nextDouble(), 2 * Math.PI * random.nextDouble(),
+                    2 * Math.PI * random.nextDouble(), random.nextInt(99999), (random.nextDouble() - 0.5) * 1e-3));
+        }
+        return tles;
+    }
+
+    /**
+     * Writes the element sets as a catalog: odd entries with a name line, some with CRLF line ends, and an invalid
+     * entry every 1000 (bad checksum)
+     */
+    private Path writeCatalog(List<TLE> tles) throws IOException {
+        var text = new StringBuilder();
+        for (int s = 0; s < tles.size(); s++) {
+            String eol = s % 7 == 0 ? "\r\n" : "\n";
+            if (s % 2 == 1) {
+                text.append(s % 4 == 1 ? "0 " : "").append("OBJECT ").append(s).append(eol);
+            }
+            String line1 = tles.get(s).getLine1();
+            if (s % 1000 == 500) {
+                line1 = line1.substring(0, 68) + (char) ('0' + (line1.charAt(68) - '0' + 1) % 10);
+            }
+            text.append(line1).append(eol).append(tles.get(s).getLine2()).append(eol);
+            if (s % 100 == 0) {
+                text.append(eol);
+            }
+        }
+        Path path = folder.newFile("catalog.txt").toPath();
+        Files.write(path, text.toString().getBytes(StandardCharsets.US_ASCII));
+        return path;
+    }
+
+    @Test
+    public void testAgainstSatElset() throws IOException, SatElsetException {
+
+        List<TLE> tles = randomTLEs(3000, 1);
+        Path path = writeCatalog(tles);
+
+        var reader = new TleReader();
+        List<String> names = new ArrayList<>();
+        int[] checked = new int[1];
+        long count = reader.read(path, record -> {
+            int s = (int) record.getIndex();
+            TLE tle = tles.get(s);
+            assertEquals(tle.getLine1(), record.getLine1());
+            assertEquals(tle.getLine2(), record.getLine2());
+            if (record.hasName()) {
+                names.add(record.getName());
+            }
+            try {
+                var elset = new SatElset(tle.getLine1(), tle.getLine2());
+                assertEquals(elset.getSatID(), record.getSatID());
+                assertEquals(elset.getSecClass(), String.valueOf(record.getClassification()));
+                assertEquals(elset.getIntDesig(), record.getIntDesig());
+                assertEquals(elset.getEpochYr(), record.getEpochYr());
+                assertEquals(elset.getEpochDay(), record.getEpochDay(), 0);
+                assertEquals(elset.getNdot(), record.getNdot(), 0);
+                assertEquals(elset.getNdotdot(), record.getNdotdot(), 0);
+                assertEquals(elset.getBstar(), record.getBstar(), 0);
+                assertEquals(elset.getInclination(), record.getInclination(), 0);
+                assertEquals(elset.getRightAscension(), record.getRightAscension(), 0);
+                assertEquals(elset.getEccentricity(), record.getEccentricity(), 0);
+                assertEquals(elset.getArgPerigee(), record.getArgPerigee(), 0);
+                assertEquals(elset.getMeanAnomaly(), record.getMeanAnomaly(), 0);
+                assertEquals(elset.getMeanMotion(), record.getMeanMotion(), 0);
+                assertEquals(elset.getRevNum(), record.getRevNum());
+            } catch (SatElsetException e) {
+                throw new AssertionError(e);
+            }
+            assertEquals(tle.getDate().toDate(TimeScalesFactory.getUTC()).getTime(), record.getEpochMillis(), 1);
+            checked[0]++;
+        });
+
+        assertEquals(2997, count);
+        assertEquals(3, reader.getInvalidCount());
+        assertEquals(count, checked[0]);
+        assertEquals(1500, names.size());
+        assertEquals("OBJECT 1", names.get(0));
+        assertEquals("OBJECT 3", names.get(1));
+
+    }
+
+    @Test
+    public void testParallelCatalog() throws IOException {
+
+        List<TLE> tles = randomTLEs(30000, 2);
+        Path path = writeCatalog(tles);
+        assertTrue(Files.size(path) > 2L * TleReader.CHUNK_SIZE);
+
+        var reader = new TleReader();
+        double[] sequential = new double[tles.size()];
+        long count = reader.read(path, record -> sequential[(int) record.getIndex()] = record.getMeanMotion());
+        assertEquals(29970, count);
+
+        double[] parallel = new double[tles.size()];
+        AtomicLong named = new AtomicLong();
+        long parallelCount = reader.readParallel(path, record -> {
+            parallel[(int) record.getIndex()] = record.getMeanMotion();
+            if (record.hasName()) {
+                named.incrementAndGet();
+            }
+        });
+        assertEquals(count, parallelCount);
+        assertEquals(30, reader.getInvalidCount());
+        assertEquals(15000, named.get());
+        for (int s = 0; s < tles.size(); s++) {
+            if (s % 1000 != 500) {
+                assertEquals(tles.get(s).getMeanMotion() * 86400 / (2 * Math.PI), parallel[s], 1e-8);
+            }
+            assertEquals(sequential[s], parallel[s], 0);
+        }
+
+        // Best of a few runs, after warm up
+        double best = Double.MAX_VALUE;
+        for (int run = 0; run < 5; run++) {
+            reader.readParallel(path, record -> { });
+            best = Math.min(best, reader.getLastReadTime());
+        }
+        Log.info("Parsed " + count + " element sets (" + Files.size(path) + " bytes) in " + best + " ms");
+
+    }
+
+}
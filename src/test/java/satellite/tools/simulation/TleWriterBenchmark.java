@@ -0,0 +1,74 @@
+package satellite.tools.simulation;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import satellite.tools.exceptions.SatElsetException;
+import satellite.tools.structures.SatElset;
+import satellite.tools.utils.Log;
+import satellite.tools.utils.TleWriter;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * TleWriter against the DecimalFormat formatting it replaces, left out of mvn test (surefire only picks up *Test
+ * classes). Run it with mvn test -Dtest=TleWriterBenchmark.
+ */
+public class TleWriterBenchmark {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void benchmarkLargeCatalog() throws SatElsetException, IOException {
+
+        var random = new Random(2);
+        List<SatElset> elsets = new ArrayList<>();
+        for (int s = 0; s < 100000; s++) {
+            elsets.add(TleWriterTest.randomElset(random, 1 + s % 99999));
+        }
+
+        // Best of a few runs, after warm up
+        var writer = new TleWriter();
+        var text = new StringBuilder(elsets.size() * 140);
+        double reference = Double.MAX_VALUE;
+        double formatting = Double.MAX_VALUE;
+        double writing = Double.MAX_VALUE;
+        Path path = folder.newFile("catalog.txt").toPath();
+        for (int run = 0; run < 3; run++) {
+            long t0 = System.nanoTime();
+            text.setLength(0);
+            for (SatElset elset : elsets) {
+                text.append(TleWriterTest.referenceCard1(elset.getSatID(), elset.getSecClass(), elset.getIntDesig(),
+                        elset.getEpochYr(), elset.getEpochDay(), elset.getNdot(), elset.getNdotdot(),
+                        elset.getBstar(), elset.getEphemerisType(), elset.getElsetNum()));
+                text.append(TleWriterTest.referenceCard2(elset.getSatID(), elset.getInclinationDeg(),
+                        elset.getRightAscensionDeg(), elset.getEccentricity(), elset.getArgPerigeeDeg(),
+                        elset.getMeanAnomalyDeg(), elset.getMeanMotion(), elset.getRevNum()));
+            }
+            long t1 = System.nanoTime();
+            text.setLength(0);
+            for (SatElset elset : elsets) {
+                writer.formatCard1(elset);
+                writer.appendTo(text);
+                writer.formatCard2(elset);
+                writer.appendTo(text);
+            }
+            long t2 = System.nanoTime();
+            writer.write(path, elsets);
+            reference = Math.min(reference, (t1 - t0) / 1e6);
+            formatting = Math.min(formatting, (t2 - t1) / 1e6);
+            writing = Math.min(writing, writer.getLastWriteTime());
+        }
+
+        Log.info("Formatted " + elsets.size() + " element sets in " + formatting + " ms (DecimalFormat: " + reference
+                + " ms), written with " + Files.size(path) + " bytes in " + writing + " ms");
+
+    }
+
+}
@@ -0,0 +1,241 @@
+package satellite.tools.simulation;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import satellite.tools.exceptions.SatElsetException;
+import satellite.tools.structures.SatElset;
+import satellite.tools.utils.TleReader;
+import satellite.tools.utils.TleWriter;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.text.DecimalFormat;
+import java.text.DecimalFormatSymbols;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+public class TleWriterTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static final DecimalFormat DF1 = new DecimalFormat("0");
+    private static final DecimalFormat DF4 = new DecimalFormat("0000");
+    private static final DecimalFormat DF5 = new DecimalFormat("00000");
+    private static final DecimalFormat DFYR = new DecimalFormat(" 00");
+    private static final DecimalFormat DF2DOT8 = new DecimalFormat("00.00000000", new DecimalFormatSymbols(Locale.US));
+    private static final DecimalFormat DF3DOT4 = new DecimalFormat("000.0000", new DecimalFormatSymbols(Locale.US));
+    private static final DecimalFormat DF3DOT8 = new DecimalFormat("000.00000000", new DecimalFormatSymbols(Locale.US));
+    private static final DecimalFormat DFDOT7 = new DecimalFormat(".0000000", new DecimalFormatSymbols(Locale.US));
+    private static final DecimalFormat DFDOT8 = new DecimalFormat(".00000000", new DecimalFormatSymbols(Locale.US));
+
+    /**
+     * Card 1 as SatElset formatted it with DecimalFormat
+     */
+    static String referenceCard1(int satID, String satClass, String intDesig, int epochYr, double epochDay,
+                                 double nDot, double nDotDot, double bstar, int ephemerisType, int elsetNum) {
+        var card = new StringBuffer("1 00001U 00000000 70001.00000000 +.00000000 +00000+0 +00000+0 0 00009");
+        card.replace(2, 7, DF5.format(satID));
+        card.replace(7, 8, satClass);
+        if (intDesig.length() > 0) {
+            card.replace(9, 17, (intDesig + "        ").substring(0, 8));
+        }
+        int tempYr = epochYr;
+        if (tempYr > 1900) {
+            tempYr -= 1900;
+            if (tempYr > 100) {
+                tempYr -= 100;
+            }
+        }
+        card.replace(17, 20, DFYR.format(tempYr));
+        card.replace(20, 32, DF3DOT8.format(epochDay));
+        String nDotStr = DFDOT8.format(nDot);
+        card.replace(33, 43, nDotStr.charAt(0) == '-' ? nDotStr : " " + nDotStr);
+        card.replace(44, 52, referenceImplied(nDotDot));
+        card.replace(53, 61, referenceImplied(bstar));
+        card.replace(62, 63, DF1.format(ephemerisType));
+        card.replace(64, 68, DF4.format(elsetNum));
+        card.replace(68, 69, Integer.toString(checksum(card.substring(0, 68))));
+        return card.toString();
+    }
+
+    static String referenceCard2(int satID, double inclination, double rightAscension, double eccentricity,
+                                 double argPerigee, double meanAnomaly, double meanMotion, int revNum) {
+        var card = new StringBuffer("2 00001  60.0000  90.0000 0010000  90.0000  90.0000 15.00000000    19");
+        card.replace(2, 7, DF5.format(satID));
+        card.replace(8, 16, DF3DOT4.format(inclination));
+        card.replace(17, 25, DF3DOT4.format(rightAscension));
+        card.replace(26, 33, DFDOT7.format(eccentricity).substring(1, 8));
+        card.replace(34, 42, DF3DOT4.format(argPerigee));
+        card.replace(43, 51, DF3DOT4.format(meanAnomaly));
+        card.replace(52, 63, DF2DOT8.format(meanMotion));
+        card.replace(63, 68, DF5.format(revNum));
+        card.replace(68, 69, Integer.toString(checksum(card.substring(0, 68))));
+        return card.toString();
+    }
+
+    private static String referenceImplied(double val) {
+        double absVal = Math.abs(val);
+        int mantissa;
+        int exp = 0;
+        if (absVal <= 1.0E-10) {
+            mantissa = 0;
+        } else if (absVal >= 1.0E9) {
+            mantissa = 99999;
+            exp = 9;
+        } else {
+            while (absVal > 1.0) {
+                absVal /= 10.0;
+                exp++;
+            }
+            while (absVal < 0.1) {
+                absVal *= 10.0;
+                exp--;
+            }
+            mantissa = (int) (absVal * 1.0E5 + 0.5);
+        }
+        String sign = val < 0.0 ? "-" : " ";
+        String expStr = DF1.format(exp);
+        if (expStr.charAt(0) == '-') {
+            return sign + DF5.format(mantissa) + expStr;
+        }
+        return sign + DF5.format(mantissa) + (expStr.charAt(0) == '0' ? "-" : "+") + expStr;
+    }
+
+    private static int checksum(String card) {
+        int sum = 0;
+        for (int i = 0; i < 68; i++) {
+            char c = card.charAt(i);
+            sum += c == '-' ? 1 : Character.isDigit(c) ? c - '0' : 0;
+        }
+        return sum % 10;
+    }
+
+    /**
+     * Values drawn around ties and limits of the fields: exact binary ties, neighbours of decimal ties, negative zero
+     * and values rounding to zero or to the next integer digit
+     */
+    private static double tricky(Random random, int fractionDigits, double max) {
+        double scale = Math.pow(10, fractionDigits);
+        double base = Math.floor(random.nextDouble() * max * scale);
+        switch (random.nextInt(8)) {
+            case 0:
+                return (base + 0.5) / scale;
+            case 1:
+                return Math.nextUp((base + 0.5) / scale);
+            case 2:
+                return Math.nextDown((base + 0.5) / scale);
+            case 3:
+                return Math.floor(random.nextDouble() * max * 1024) / 1024 + 1.0 / (1 << (10 + random.nextInt(12)));
+            case 4:
+                return -0.0;
+            case 5:
+                return -random.nextDouble() / scale / 2;
+            case 6:
+                return max - random.nextDouble() / scale;
+            default:
+                return random.nextDouble() * max;
+        }
+    }
+
+    static SatElset randomElset(Random random, int id) throws SatElsetException {
+        String card1 = referenceCard1(id, "U", random.nextBoolean() ? "98067A" : "21001ABC", random.nextInt(100),
+                1 + random.nextDouble() * 365, (random.nextDouble() - 0.5) * 1e-3,
+                random.nextDouble() < 0.8 ? 0 : (random.nextDouble() - 0.5) * 1e-8,
+                (random.nextDouble() - 0.5) * Math.pow(10, -random.nextInt(8)), 0, random.nextInt(1000));
+        String card2 = referenceCard2(id, 180 * random.nextDouble(), 360 * random.nextDouble(),
+                0.3 * random.nextDouble(), 360 * random.nextDouble(), 360 * random.nextDouble(),
+                1 + 15 * random.nextDouble(), random.nextInt(99999));
+        return new SatElset(card1, card2);
+    }
+
+    @Test
+    public void testAgainstDecimalFormat() throws SatElsetException {
+
+        var writer = new TleWriter();
+        var random = new Random(1);
+        for (int s = 0; s < 200000; s++) {
+            int satID = random.nextInt(100000);
+            String intDesig = s % 5 == 0 ? "" : s % 5 == 1 ? "98067A" : "21001ABCD";
+            int epochYr = s % 2 == 0 ? 1957 + random.nextInt(100) : random.nextInt(100);
+            double epochDay = tricky(random, 8, 367);
+            double nDot = (s % 3 == 0 ? -1 : 1) * tricky(random, 8, 0.01);
+            double nDotDot = (s % 4 == 0 ? -1 : 1) * tricky(random, 10, 1e-5) * Math.pow(10, -random.nextInt(6));
+            double bstar = (s % 5 == 0 ? -1 : 1) * tricky(random, 6, 1) * Math.pow(10, -random.nextInt(11));
+            int elsetNum = random.nextInt(10000);
+
+            writer.formatCard1(satID, "U", intDesig, epochYr, epochDay, nDot, nDotDot, bstar, 0, elsetNum);
+            assertEquals(referenceCard1(satID, "U", intDesig, epochYr, epochDay, nDot, nDotDot, bstar, 0, elsetNum),
+                    writer.getCard());
+
+            double inclination = tricky(random, 4, 180);
+            double rightAscension = tricky(random, 4, 360);
+            double eccentricity = Math.abs(tricky(random, 7, 1));
+            double argPerigee = tricky(random, 4, 360);
+            double meanAnomaly = tricky(random, 4, 360);
+            double meanMotion = tricky(random, 8, 17);
+            int revNum = random.nextInt(100000);
+            writer.formatCard2(satID, inclination, rightAscension, eccentricity, argPerigee, meanAnomaly, meanMotion,
+                    revNum);
+            assertEquals(referenceCard2(satID, inclination, rightAscension, eccentricity, argPerigee, meanAnomaly,
+                    meanMotion, revNum), writer.getCard());
+        }
+
+        // Element sets parsed from cards, formatted back
+        for (int s = 0; s < 1000; s++) {
+            var elset = randomElset(random, 1 + s);
+            String card1 = elset.getCard1();
+            String card2 = elset.getCard2();
+            assertEquals(referenceCard1(elset.getSatID(), elset.getSecClass(), elset.getIntDesig(),
+                    elset.getEpochYr(), elset.getEpochDay(), elset.getNdot(), elset.getNdotdot(), elset.getBstar(),
+                    elset.getEphemerisType(), elset.getElsetNum()), card1);
+            assertEquals(referenceCard2(elset.getSatID(), elset.getInclinationDeg(), elset.getRightAscensionDeg(),
+                    elset.getEccentricity(), elset.getArgPerigeeDeg(), elset.getMeanAnomalyDeg(),
+                    elset.getMeanMotion(), elset.getRevNum()), card2);
+            var parsed = new SatElset(card1, card2);
+            assertEquals(card1, parsed.getCard1());
+            assertEquals(card2, parsed.getCard2());
+        }
+
+    }
+
+    @Test
+    public void testRoundTrip() throws SatElsetException, IOException {
+
+        var random = new Random(2);
+        List<SatElset> elsets = new ArrayList<>();
+        for (int s = 0; s < 3000; s++) {
+            elsets.add(randomElset(random, 1 + s));
+        }
+
+        var writer = new TleWriter();
+        Path path = folder.newFile("catalog.txt").toPath();
+        assertEquals(elsets.size(), writer.write(path, elsets));
+
+        // Cards read back as written, and as appended to a builder
+        List<String[]> lines = new ArrayList<>();
+        var reader = new TleReader();
+        assertEquals(elsets.size(), reader.read(path, record -> lines.add(new String[]{record.getLine1(),
+                record.getLine2()})));
+        assertEquals(0, reader.getInvalidCount());
+        var text = new StringBuilder();
+        for (int s = 0; s < elsets.size(); s++) {
+            SatElset elset = elsets.get(s);
+            assertEquals(elset.getCard1(), lines.get(s)[0]);
+            assertEquals(elset.getCard2(), lines.get(s)[1]);
+            text.setLength(0);
+            writer.formatCard1(elset);
+            writer.appendTo(text);
+            writer.formatCard2(elset);
+            writer.appendTo(text);
+            assertEquals(elset.getCard1() + elset.getCard2(), text.toString());
+        }
+
+    }
+
+}